@@ -18,7 +18,6 @@ import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.List;
 import java.util.Locale;
-import java.util.regex.Pattern;
 
 // Defines a panel for displaying and managing appointment details, including treatments, medicines, and feedback.
 public class AppointmentDetailsPanel extends JPanel {
@@ -63,7 +62,6 @@ public class AppointmentDetailsPanel extends JPanel {
     // File paths for storing appointments, treatments, and medicines
     private static final String APPT_RECORDS_FILE = "appointments_records.txt";
     private static final String TREATMENTS_FILE = "treatments.txt";
-    private static final String MEDICINES_FILE = "medicines.txt";
     
     // Constructor: sets up the panel with appointment data, doctor info, and callbacks; loads treatments and medicines; restores existing records; and locks the panel if the appointment is completed.
     public AppointmentDetailsPanel(String[] appointmentData, String doctorId, String doctorUsername, Runnable onSaved, Runnable onClose) {
@@ -75,7 +73,6 @@ public class AppointmentDetailsPanel extends JPanel {
 
         loadTreatments();
         initUI();
-        loadMedicinesCatalog();
         restoreRecordOnOpen();
         
         String status = nz(appt, 12);  // assuming 13th field in appointments.txt = status
@@ -113,7 +110,7 @@ public class AppointmentDetailsPanel extends JPanel {
         treatField.addKeyListener(new KeyAdapter() {
             @Override
             public void keyReleased(KeyEvent e) {
-                showSuggestions(treatField, suggestions, treatmentsByName.keySet());
+                showSuggestions(treatField, suggestions, NameIndex.treatments());
             }
         });
 
@@ -193,20 +190,12 @@ public class AppointmentDetailsPanel extends JPanel {
     
     // Loads treatment data from file and populates the treatmentsByName map with treatment names and prices.
     private void loadTreatments() {
-        Path p = Paths.get(TREATMENTS_FILE);
-        if (!Files.exists(p)) return;
-        try (BufferedReader br = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(Pattern.quote("|"), -1);
-                if (parts.length >= 3) {
-                    String name = parts[1];
-                    double price = parseDoubleSafe(nz(parts, 2));
-                    treatmentsByName.put(name, new Treatment(name, price));
-                }
+        for (String[] parts : DataStore.get().table(TREATMENTS_FILE).rows()) {
+            if (parts.length >= 3) {
+                String name = parts[1];
+                double price = parseDoubleSafe(nz(parts, 2));
+                treatmentsByName.put(name, new Treatment(name, price));
             }
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Failed to load treatments: " + e.getMessage());
         }
     }
     
@@ -275,20 +264,6 @@ public class AppointmentDetailsPanel extends JPanel {
         totalLabel.setText("Total: " + formatCurrency(total));
     }
     
-    // Loads the list of available medicines from file into the medicinesCatalog list.
-    private final List<String> medicinesCatalog = new ArrayList<>();
-    private void loadMedicinesCatalog() {
-        Path p = Paths.get(MEDICINES_FILE);
-        if (!Files.exists(p)) return;
-        try (BufferedReader br = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(Pattern.quote("|"), -1);
-                if (parts.length >= 2) medicinesCatalog.add(parts[1]);
-            }
-        } catch (IOException e) {}
-    }
-
     // Adds a row for prescribing a medicine with fields for name, frequency, and meal timing; supports optional preset values and removal for editable rows.
     private void addMedicineRow(DecodedMedicine preset, boolean editable) {
         JPanel row = new JPanel(new FlowLayout(FlowLayout.LEFT));
@@ -301,7 +276,7 @@ public class AppointmentDetailsPanel extends JPanel {
         medField.addKeyListener(new KeyAdapter() {
             @Override
             public void keyReleased(KeyEvent e) {
-                showSuggestions(medField, sugg, medicinesCatalog);
+                showSuggestions(medField, sugg, NameIndex.medicines());
             }
         });
 
@@ -343,25 +318,21 @@ public class AppointmentDetailsPanel extends JPanel {
         prescriptionListPanel.repaint();
     }
     
-    // Displays a popup with autocomplete suggestions for a text field based on the provided data collection.
-    private void showSuggestions(JTextField field, JPopupMenu popup, Collection<String> data) {
+    // Displays a popup with autocomplete suggestions for a text field from the shared name index.
+    private void showSuggestions(JTextField field, JPopupMenu popup, NameIndex data) {
         popup.removeAll();
-        String txt = field.getText().trim().toLowerCase();
+        String txt = field.getText().trim();
         if (txt.isEmpty()) {
             popup.setVisible(false);
             return;
         }
-        int count = 0;
-        for (String s : data) {
-            if (s.toLowerCase().startsWith(txt)) {  
-                JMenuItem item = new JMenuItem(s);
-                item.addActionListener(e -> {
-                    field.setText(s);
-                    popup.setVisible(false);
-                });
-                popup.add(item);
-                if (++count >= 10) break; 
-            }
+        for (String s : data.suggest(txt, 10)) {
+            JMenuItem item = new JMenuItem(s);
+            item.addActionListener(e -> {
+                field.setText(s);
+                popup.setVisible(false);
+            });
+            popup.add(item);
         }
         if (popup.getComponentCount() > 0)
             popup.show(field, 0, field.getHeight());
@@ -383,20 +354,10 @@ public class AppointmentDetailsPanel extends JPanel {
         appt[12] = "Completed";
         appt[13] = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
 
-        // Update file
-        Path p = Paths.get("appointments.txt");
-        if (Files.exists(p)) {
+        // Update file (appended to the appointments change log; no whole-file rewrite)
+        if (DataStore.get().appointments().contains(appt[0])) {
             try {
-                List<String> lines = Files.readAllLines(p, StandardCharsets.UTF_8);
-                for (int i = 0; i < lines.size(); i++) {
-                    String[] parts = lines.get(i).split("\\|", -1);
-                    if (parts.length > 0 && parts[0].equals(appt[0])) {
-                        // Replace this line with the updated appointment data
-                        lines.set(i, String.join("|", appt));
-                        break;
-                    }
-                }
-                Files.write(p, lines, StandardCharsets.UTF_8);
+                DataStore.get().upsert(DataStore.APPOINTMENTS_FILE, appt);
             } catch (IOException e) {
                 JOptionPane.showMessageDialog(
                     this,
@@ -415,19 +376,9 @@ public class AppointmentDetailsPanel extends JPanel {
     
     // Inserts or updates an appointment record with treatments, feedback, and medicines.
     private AppointmentRecord upsertAppointmentRecordNow() {
-        List<String> lines = readAllLines(APPT_RECORDS_FILE);
         String apptId = nz(appt, 0);
-        int idx = -1;
-        AppointmentRecord existing = null;
-
-        for (int i = 0; i < lines.size(); i++) {
-            AppointmentRecord r = AppointmentRecord.parse(lines.get(i));
-            if (r != null && apptId.equals(r.appointmentId)) {
-                idx = i;
-                existing = r;
-                break;
-            }
-        }
+        String[] stored = DataStore.get().table(APPT_RECORDS_FILE).byId(apptId);
+        AppointmentRecord existing = stored == null ? null : AppointmentRecord.fromParts(stored);
 
         AppointmentRecord rec = (existing != null) ? existing : new AppointmentRecord();
         if (existing == null) {
@@ -472,12 +423,11 @@ public class AppointmentDetailsPanel extends JPanel {
 
         rec.lastUpdated = LocalDateTime.now().format(TS);
 
-        String out = rec.toLine();
-        if (idx >= 0) lines.set(idx, out);
-        else lines.add(out);
-
-        boolean wrote = writeAllLinesRobust(APPT_RECORDS_FILE, lines);
-        if (!wrote) return null;
+        try {
+            DataStore.get().upsert(APPT_RECORDS_FILE, rec.toLine().split("\\|", -1));
+        } catch (IOException e) {
+            return null;
+        }
         return rec;
     }
     
@@ -516,11 +466,11 @@ public class AppointmentDetailsPanel extends JPanel {
     // Restores existing appointment record on panel open: treatments, feedback, and medicines.
     private void restoreRecordOnOpen() {
         String apptId = nz(appt, 0);
-        List<String> lines = readAllLines(APPT_RECORDS_FILE);
+        String[] stored = DataStore.get().table(APPT_RECORDS_FILE).byId(apptId);
 
-        for (String ln : lines) {
-            AppointmentRecord r = AppointmentRecord.parse(ln);
-            if (r != null && apptId.equals(r.appointmentId)) {
+        if (stored != null) {
+            AppointmentRecord r = AppointmentRecord.fromParts(stored);
+            if (r != null) {
                 r.feedbackText = unescapeFeedbackFromStorage(r.feedbackText);
 
                 existingTreatments.clear();
@@ -733,9 +683,9 @@ public class AppointmentDetailsPanel extends JPanel {
                 date = "", time = "", treatmentTotal = "", treatmentsList = "",
                 feedbackText = "", medicines = "", lastUpdated = "";
 
-        static AppointmentRecord parse(String line) {
-            if (line == null) return null;
-            String[] p = line.split(Pattern.quote("|"), -1);
+        // Builds a record from an already split row (as held by the DataStore).
+        static AppointmentRecord fromParts(String[] p) {
+            if (p == null) return null;
             int N = p.length;
             if (N < 1) return null;
             AppointmentRecord r = new AppointmentRecord();
@@ -786,49 +736,7 @@ public class AppointmentDetailsPanel extends JPanel {
         }
     }
     
-    // -------------------- File & Array Helpers --------------------
-    // Reads all lines from a file, returns empty list if not found.
-    private static List<String> readAllLines(String path) {
-        Path p = Paths.get(path);
-        File f = p.toFile();
-
-        if (!f.exists()) {
-            return new ArrayList<>();
-        }
-
-        try {
-            return Files.readAllLines(p, StandardCharsets.UTF_8);
-        } catch (IOException e) {
-            return new ArrayList<>();
-        }
-    }
-    
-    // Writes all lines to a file robustly, using temp files to prevent corruption.
-    private static boolean writeAllLinesRobust(String path, List<String> lines) {
-        Path target = Paths.get(path);
-        Path tmp = Paths.get(path + ".tmp");
-        try {
-            Files.write(tmp, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-            try {
-                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
-            } catch (AtomicMoveNotSupportedException amnse) {
-                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
-            }
-            return true;
-        } catch (IOException e) {
-            try {
-                Files.deleteIfExists(tmp);
-            } catch (IOException ignored) {
-            }
-            try {
-                Files.write(target, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-                return true;
-            } catch (IOException ex) {
-                return false;
-            }
-        }
-    }
-
+    // -------------------- Array Helpers --------------------
     // Safely returns element from array or empty string.
     private static String nz(String[] a, int i) {
         return (a != null && i >= 0 && i < a.length && a[i] != null) ? a[i] : "";
@@ -848,24 +756,15 @@ public class AppointmentDetailsPanel extends JPanel {
     // Retrieves formatted patient details from patients.txt by ID.
     private String getPatientDetails(String patientID) {
         if (patientID == null || patientID.isEmpty()) return "Patient details not found.";
-        Path p = Paths.get("patients.txt");
-        if (!Files.exists(p)) return "Patient details not found.";
-
-        try (BufferedReader br = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(Pattern.quote("|"), -1);
-                if (parts.length >= 13 && Objects.equals(parts[0], patientID)) {
-                    StringBuilder sb = new StringBuilder();
-                    sb.append("Patient Name: ").append(nz(parts, 3)).append(" ").append(nz(parts, 4)).append("\n")
-                            .append("Gender: ").append(nz(parts, 5)).append("\n")
-                            .append("DOB: ").append(nz(parts, 6)).append(" (Age: ").append(nz(parts, 7)).append(")\n")
-                            .append("Contact: ").append(nz(parts, 9)).append("\n")
-                            .append("Email: ").append(nz(parts, 8));
-                    return sb.toString();
-                }
-            }
-        } catch (IOException e) {
+        String[] parts = DataStore.get().users("patient").byId(patientID);
+        if (parts != null && parts.length >= 13) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Patient Name: ").append(nz(parts, 3)).append(" ").append(nz(parts, 4)).append("\n")
+                    .append("Gender: ").append(nz(parts, 5)).append("\n")
+                    .append("DOB: ").append(nz(parts, 6)).append(" (Age: ").append(nz(parts, 7)).append(")\n")
+                    .append("Contact: ").append(nz(parts, 9)).append("\n")
+                    .append("Email: ").append(nz(parts, 8));
+            return sb.toString();
         }
         return "Patient details not found.";
     }
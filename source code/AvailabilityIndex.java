@@ -0,0 +1,144 @@
+package assignment;
+
+import java.time.LocalDate;
+import java.util.*;
+
+// Booked-slot bitmaps for every doctor, shared by booking and rescheduling.
+// A day is 48 half-hour slots (Shift C 00:00-07:30, Shift A 08:00-15:30, Shift B 16:00-23:30), so one
+// doctor-day is a single long where bit n means "slot n is taken". Days are stored per doctor in blocks
+// of 64 consecutive days, so a lookup is one map probe plus an array read and a stray far-off date in
+// old data costs one small block rather than every day in between.
+// The index follows appointments.txt through a DataStore listener; nobody has to "book" slots in it by hand.
+public final class AvailabilityIndex implements DataStore.Listener {
+
+    public static final int SLOT_MINUTES = 30;
+    public static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+
+    private static final AvailabilityIndex INSTANCE = new AvailabilityIndex();
+
+    private final Map<String, DayMasks> byDoctor = new HashMap<>();
+    // Slots holding more than one appointment (duplicates in old data): key -> extra bookings.
+    // Only consulted when a booking is removed, so a double-booked slot stays taken until both are gone.
+    private final Map<String, Integer> overbooked = new HashMap<>();
+
+    private AvailabilityIndex() {
+        DataStore.get().addListener(DataStore.APPOINTMENTS_FILE, this);
+    }
+
+    // Returns the shared index, brought up to date with appointments.txt.
+    public static AvailabilityIndex get() {
+        DataStore.get().appointments();
+        return INSTANCE;
+    }
+
+    // ---------------- QUERIES ----------------
+    // True when the doctor has nothing booked at the given date and "HH:mm" time.
+    public boolean isFree(String doctorId, LocalDate date, String time) {
+        int slot = slotOf(time);
+        if (slot < 0 || date == null) return false;
+        return (bookedMask(doctorId, date.toEpochDay()) & (1L << slot)) == 0;
+    }
+
+    // Bit n set = slot n booked for that doctor on that day.
+    public synchronized long bookedMask(String doctorId, long epochDay) {
+        DayMasks d = byDoctor.get(doctorId);
+        return d == null ? 0L : d.get(epochDay);
+    }
+
+    // ---------------- SLOT HELPERS ----------------
+    // Slot number for an "HH:mm" time (times between grid points fall into the slot they start in), or -1.
+    public static int slotOf(String time) {
+        if (time == null) return -1;
+        String t = time.trim();
+        int colon = t.indexOf(':');
+        if (colon <= 0 || colon + 3 > t.length()) return -1;
+        int h = parse2(t, 0, colon), m = parse2(t, colon + 1, colon + 3);
+        if (h < 0 || h > 23 || m < 0 || m > 59) return -1;
+        return (h * 60 + m) / SLOT_MINUTES;
+    }
+
+    private static int parse2(String s, int from, int to) {
+        int v = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    private static long epochDay(String date) {
+        try {
+            String d = date.trim();
+            if (d.length() != 10 || d.charAt(4) != '-' || d.charAt(7) != '-') return Long.MIN_VALUE;
+            int y = parse2(d, 0, 4), m = parse2(d, 5, 7), day = parse2(d, 8, 10);
+            if (y < 0 || m < 0 || day < 0) return Long.MIN_VALUE;
+            return LocalDate.of(y, m, day).toEpochDay();
+        } catch (RuntimeException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    // ---------------- STORE LISTENER ----------------
+    @Override
+    public synchronized void reloaded(DataStore.Table table) {
+        byDoctor.clear();
+        overbooked.clear();
+        for (String[] p : table.rows()) book(p);
+    }
+
+    @Override
+    public synchronized void changed(DataStore.Table table, String[] oldRow, String[] newRow) {
+        if (oldRow != null) unbook(oldRow);
+        if (newRow != null) book(newRow);
+    }
+
+    private void book(String[] p) {
+        if (p.length < 7) return;
+        long day = epochDay(p[4]);
+        int slot = slotOf(p[5]);
+        if (day == Long.MIN_VALUE || slot < 0) return;
+        DayMasks d = byDoctor.computeIfAbsent(p[6], k -> new DayMasks());
+        long bit = 1L << slot;
+        long cur = d.get(day);
+        if ((cur & bit) != 0) overbooked.merge(p[6] + "|" + day + "|" + slot, 1, Integer::sum);
+        else d.set(day, cur | bit);
+    }
+
+    private void unbook(String[] p) {
+        if (p.length < 7) return;
+        long day = epochDay(p[4]);
+        int slot = slotOf(p[5]);
+        if (day == Long.MIN_VALUE || slot < 0) return;
+        DayMasks d = byDoctor.get(p[6]);
+        if (d == null) return;
+        String key = p[6] + "|" + day + "|" + slot;
+        Integer extra = overbooked.get(key);
+        if (extra != null) {
+            if (extra <= 1) overbooked.remove(key);
+            else overbooked.put(key, extra - 1);
+            return;
+        }
+        d.set(day, d.get(day) & ~(1L << slot));
+    }
+
+    // ---------------- DAY MASKS ----------------
+    // One doctor's masks in blocks of 64 days keyed by epochDay >> 6; a block exists once a day in it is booked.
+    private static final class DayMasks {
+        private final Map<Long, long[]> blocks = new HashMap<>();
+
+        long get(long epochDay) {
+            long[] b = blocks.get(epochDay >> 6);
+            return b == null ? 0L : b[(int) (epochDay & 63)];
+        }
+
+        void set(long epochDay, long mask) {
+            long[] b = blocks.get(epochDay >> 6);
+            if (b == null) {
+                if (mask == 0) return;
+                blocks.put(epochDay >> 6, b = new long[64]);
+            }
+            b[(int) (epochDay & 63)] = mask;
+        }
+    }
+}
@@ -2,7 +2,6 @@ package assignment;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.Collection;
 
 // Abstract base class for dashboards: initializes main frame, sidebar, content panel with CardLayout, and applies theme colors.
 public abstract class BaseDashboard extends JFrame {
@@ -88,25 +87,21 @@ public abstract class BaseDashboard extends JFrame {
         return button;
     }
 
-    // Displays predictive suggestions for a text field based on a given data collection (autocomplete functionality).
-    protected void showSuggestions(JTextField field, JPopupMenu popup, Collection<String> data) {
+    // Displays predictive suggestions for a text field from a name index (autocomplete functionality).
+    protected void showSuggestions(JTextField field, JPopupMenu popup, NameIndex data) {
         popup.removeAll();
-        String txt = field.getText().trim().toLowerCase();
+        String txt = field.getText().trim();
         if (txt.isEmpty()) {
             popup.setVisible(false);
             return;
         }
-        int count = 0;
-        for (String s : data) {
-            if (s.toLowerCase().startsWith(txt)) { // Predictive match
-                JMenuItem item = new JMenuItem(s);
-                item.addActionListener(e -> {
-                    field.setText(s);
-                    popup.setVisible(false);
-                });
-                popup.add(item);
-                if (++count >= 10) break; // max 10 suggestions
-            }
+        for (String s : data.suggest(txt, 10)) { // max 10 suggestions
+            JMenuItem item = new JMenuItem(s);
+            item.addActionListener(e -> {
+                field.setText(s);
+                popup.setVisible(false);
+            });
+            popup.add(item);
         }
         if (popup.getComponentCount() > 0) {
             popup.show(field, 0, field.getHeight());
@@ -6,9 +6,6 @@ import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
 import java.io.*;
-import java.nio.channels.*;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.*;
 import java.time.*;
 import java.time.format.*;
 import java.util.*;
@@ -17,6 +14,8 @@ import javax.imageio.ImageIO;
 
 // BookingApp main panel for managing doctor appointments
 public final class BookingApp extends JPanel {
+    private static final int MAX_PATIENT_MATCHES = 20;
+
     Map<String, Doctor> doctorMap = new HashMap<>();
     JTextField searchField = new JTextField(20);
     JComboBox<String> specializationBox;
@@ -37,14 +36,12 @@ public final class BookingApp extends JPanel {
     public BookingApp(String currentStaffUsername) {
         this.currentStaffUsername = currentStaffUsername;
         loadDoctors();
-        loadAppointments();
         setupUI();
     }
    
     // Inner class representing a Doctor
     static class Doctor {
         String id, specialization, shift, fullName;
-        Set<String> bookedSlots = new HashSet<>();
         
         // Constructor for a doctor object
         Doctor(String id, String username, String firstName, String lastName, String specialization, String shift) {
@@ -54,14 +51,9 @@ public final class BookingApp extends JPanel {
             this.fullName = firstName + " " + lastName;
         }
 
-        // Check if a specific date-time slot is available
-        boolean isAvailable(String dateTime) {
-            return !bookedSlots.contains(dateTime);
-        }
-
-         // Mark a date-time slot as booked
-        void bookSlot(String dateTime) {
-            bookedSlots.add(dateTime);
+        // Check if a specific date-time slot is available (shared slot bitmaps kept in sync with appointments.txt)
+        boolean isAvailable(LocalDate date, String time) {
+            return AvailabilityIndex.get().isFree(id, date, time);
         }
 
         // Return a descriptive string with name, specialization, and shift
@@ -69,9 +61,8 @@ public final class BookingApp extends JPanel {
             return fullName + " (" + specialization + ", " + shift + ")";
         }
 
-        // Create a Doctor object from a line in doctors.txt
-        static Doctor fromLine(String line) {
-            String[] p = line.split("\\|");
+        // Create a Doctor object from a row of doctors.txt
+        static Doctor fromParts(String[] p) {
             if (p.length < 15) return null;
             return new Doctor(p[0], p[1], p[3], p[4], p[13], p[14]);
         }
@@ -115,58 +106,19 @@ public final class BookingApp extends JPanel {
         }
     }
 
-    // Load all patients from patients.txt and return as a list
-    List<Patient> loadPatients() {
-        List<Patient> list = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader("patients.txt"))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] p = line.split("\\|");
-                if (p.length >= 5) {
-                    list.add(new Patient(p[0], p[3], p[4]));
-                }
-            }
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Missing patients.txt file.");
-        }
-        return list;
-    }
-    
-    // Load all doctors from doctors.txt into doctorMap
+    // Load all doctors from the shared data store into doctorMap
     void loadDoctors() {
-        try (BufferedReader br = new BufferedReader(new FileReader("doctors.txt"))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                Doctor d = Doctor.fromLine(line);
-                if (d != null) doctorMap.put(d.id, d);
-            }
-        } catch (IOException e) {
+        DataStore.Table doctors = DataStore.get().users("doctor");
+        if (!doctors.exists()) {
             JOptionPane.showMessageDialog(this, "Missing doctors.txt file.");
+            return;
+        }
+        for (String[] p : doctors.rows()) {
+            Doctor d = Doctor.fromParts(p);
+            if (d != null) doctorMap.put(d.id, d);
         }
     }
 
-    // Load all existing appointments and mark booked slots for each doctor
-    void loadAppointments() {
-        for (Doctor d : doctorMap.values()) {
-            d.bookedSlots.clear();  // Clear any old cached data
-        }
-
-        try (BufferedReader br = new BufferedReader(new FileReader("appointments.txt"))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] p = line.split("\\|");
-                if (p.length >= 7) {
-                    String docId = p[6];
-                    Doctor d = doctorMap.get(docId);
-                    if (d != null) {
-                        String slotKey = p[4] + "-" + p[5];  // date + time
-                        d.bookSlot(slotKey);
-                    }
-                }
-            }
-        } catch (IOException e) {}
-    }
-    
     // Initialize the GUI components: search panel, calendar, slots, log area
     void setupUI() {
         setLayout(new BorderLayout());
@@ -192,9 +144,7 @@ public final class BookingApp extends JPanel {
         searchField.addKeyListener(new KeyAdapter() {
             @Override
             public void keyReleased(KeyEvent e) {
-                List<String> names = new ArrayList<>();
-                for (Doctor d : doctorMap.values()) names.add(d.fullName);
-                showSuggestions(searchField, doctorSuggestPopup, names);
+                showSuggestions(searchField, doctorSuggestPopup, NameIndex.doctors());
             }
         });
         
@@ -448,7 +398,6 @@ public final class BookingApp extends JPanel {
 
     while (!current.isAfter(end)) {
         String timeSlot = current.toLocalTime().format(timeFmt);
-        String slotKey = current.toLocalDate() + "-" + timeSlot;
 
         JButton slotBtn = new JButton(timeSlot);
         slotBtn.setEnabled(false);
@@ -468,7 +417,7 @@ public final class BookingApp extends JPanel {
         }
         
         if (selectedDoctor != null) {
-            if (selectedDoctor.isAvailable(slotKey)) {
+            if (selectedDoctor.isAvailable(slotDate, slotTime)) {
                 slotBtn.setBackground(Color.GREEN); // Available
                 slotBtn.setEnabled(true);
                 slotBtn.addActionListener(e -> bookSlot(slotDate, slotTime, selectedDoctor));
@@ -483,7 +432,7 @@ public final class BookingApp extends JPanel {
                 return;
             }
 
-            Doctor auto = findAvailableDoctor(specialization, slotKey, shift);
+            Doctor auto = findAvailableDoctor(specialization, slotDate, slotTime, shift);
             if (auto != null) {
                 slotBtn.setBackground(Color.GREEN);
                 slotBtn.setEnabled(true);
@@ -509,71 +458,18 @@ public final class BookingApp extends JPanel {
     slotPanel.repaint();
 }
 
-    // Find an available doctor for auto-assignment given specialization, slot, and shift
-    Doctor findAvailableDoctor(String specialization, String slotKey, String shift) {
-        Doctor selected = null;
-        int minCount = Integer.MAX_VALUE;
-        Map<String, Integer> counts = getBookingCounts();
-
-        for (Doctor d : doctorMap.values()) {
-            if (d.specialization.equalsIgnoreCase(specialization) &&
-                d.shift.equalsIgnoreCase(shift)) {
-
-                if (d.isAvailable(slotKey)) {
-                    int count = counts.getOrDefault(d.id, 0);
-                    if (count < minCount) {
-                        minCount = count;
-                        selected = d;
-                    }
-                }
-            }
-        }
-        return selected;
+    // Find an available doctor for auto-assignment given specialization, slot, and shift:
+    // the least loaded doctor of that specialization/shift whose slot is still free (no file access)
+    Doctor findAvailableDoctor(String specialization, LocalDate date, String time, String shift) {
+        AvailabilityIndex slots = AvailabilityIndex.get();
+        String id = DoctorLoadIndex.get().leastLoaded(specialization, shift,
+                docId -> doctorMap.containsKey(docId) && slots.isFree(docId, date, time));
+        return id == null ? null : doctorMap.get(id);
     }
 
-    // Count the number of appointments per doctor from appointments.txt
-    Map<String, Integer> getBookingCounts() {
-        Map<String, Integer> map = new HashMap<>();
-        try (BufferedReader br = new BufferedReader(new FileReader("appointments.txt"))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (line.trim().isEmpty()) continue; // Skip empty lines
-                String[] p = line.split("\\|");
-                if (p.length >= 7) { // Minimum fields needed for Doctor ID
-                    String doctorId = p[6].trim();  // Doctor ID is index 6
-                    map.put(doctorId, map.getOrDefault(doctorId, 0) + 1);
-                }
-            }
-        } catch (IOException e) {}
-        return map;
-    }
-    
-    // Generate a unique appointment ID by checking existing appointments
-    private String generateAppointmentId() {
-        Random rnd = new Random();
-        String id;
-        Set<String> existingIds = new HashSet<>();
-
-        // Load existing appointment IDs to avoid duplicates
-        Path path = Paths.get("appointments.txt");
-        if (Files.exists(path)) {
-            try (BufferedReader br = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
-                String line;
-                while ((line = br.readLine()) != null) {
-                    String[] parts = line.split("\\|");
-                    if (parts.length > 0) existingIds.add(parts[0]);
-                }
-            } catch (IOException e) {
-            }
-        }
-
-        // Generate a random ID and ensure it's unique
-        do {
-            int num = rnd.nextInt(90000) + 10000; // 10000–99999
-            id = "A" + num;
-        } while (existingIds.contains(id));
-
-        return id;
+    // Generate a unique appointment ID from the shared allocator (no scan of appointments.txt)
+    private String generateAppointmentId() throws IOException {
+        return IdAllocator.next('A');
     }
 
     // Book a slot for a patient with a doctor, update file, log, and UI
@@ -583,14 +479,14 @@ public final class BookingApp extends JPanel {
         typed = typed.trim();
         if (typed.isEmpty()) return;
 
-        List<Patient> allPatients = loadPatients();
+        if (!DataStore.get().users("patient").exists()) {
+            JOptionPane.showMessageDialog(this, "Missing patients.txt file.");
+            return;
+        }
+        // Ranked fuzzy match on name, ID or phone, so a misspelt name still finds the patient
         List<Patient> matches = new ArrayList<>();
-        String typedLower = typed.toLowerCase();
-
-        for (Patient p : allPatients) {
-            if (p.getFullName().toLowerCase().startsWith(typedLower) || p.getFullName().toLowerCase().contains(typedLower)) {
-                matches.add(p);
-            }
+        for (String[] p : PatientSearch.get().find(typed, MAX_PATIENT_MATCHES)) {
+            matches.add(new Patient(p[0], p[3], p[4]));
         }
 
         if (matches.isEmpty()) {
@@ -604,42 +500,33 @@ public final class BookingApp extends JPanel {
 
         if (selectedPatient == null) return;
 
-        String appointmentId = generateAppointmentId();
         String createdDate = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-        String slotKey = date + "-" + time;
         
-        if (!doc.isAvailable(slotKey)) {
+        if (!doc.isAvailable(date, time)) {
             JOptionPane.showMessageDialog(this, "This slot has already been booked.");
             return;
         }
 
-        try (RandomAccessFile raf = new RandomAccessFile("appointments.txt", "rw");
-             FileChannel channel = raf.getChannel()) {
-
-            FileLock lock = channel.lock(); 
-            try {
-                raf.seek(raf.length()); // Move to end
-                raf.writeBytes(String.join("|",
-                    appointmentId,
-                    selectedPatient.id,
-                    selectedPatient.fname,
-                    selectedPatient.lname,
-                    date.toString(),
-                    time,
-                    doc.id,
-                    doc.fullName,
-                    doc.specialization,
-                    doc.shift,
-                    createdDate,
-                    currentStaffUsername,
-                    "Upcoming",
-                    ""
-                ) + "\n");
-            } finally {
-                lock.release(); 
-            }
+        try {
+            String appointmentId = generateAppointmentId();
+            // Appended to the store's change log under its file lock
+            DataStore.get().upsert(DataStore.APPOINTMENTS_FILE, new String[]{
+                appointmentId,
+                selectedPatient.id,
+                selectedPatient.fname,
+                selectedPatient.lname,
+                date.toString(),
+                time,
+                doc.id,
+                doc.fullName,
+                doc.specialization,
+                doc.shift,
+                createdDate,
+                currentStaffUsername,
+                "Upcoming",
+                ""
+            });
 
-            doc.bookSlot(slotKey); 
             logArea.append("Booked: " + selectedPatient.getFullName() + " with " +
                 doc.getDetails() + " at " + date + " " + time + "\n");
 
@@ -656,13 +543,11 @@ public final class BookingApp extends JPanel {
         dlg.setLayout(new BorderLayout(8, 8));
         JPanel center = new JPanel(new FlowLayout(FlowLayout.LEFT));
         JTextField tf = new JTextField(30);
-        center.add(new JLabel("Patient name:"));
+        center.add(new JLabel("Patient name, ID or phone:"));
         center.add(tf);
 
         JPopupMenu popup = new JPopupMenu();
-        List<Patient> all = loadPatients();
-        List<String> names = new ArrayList<>();
-        for (Patient p : all) names.add(p.getFullName().trim());
+        NameIndex names = NameIndex.patients();
 
         tf.addKeyListener(new KeyAdapter() {
             @Override
@@ -696,26 +581,21 @@ public final class BookingApp extends JPanel {
         return result[0];
     }
     
-    // Show auto-complete suggestions in a popup for a given text field
-    private void showSuggestions(JTextField field, JPopupMenu popup, Collection<String> data) {
+    // Show auto-complete suggestions in a popup for a given text field, from a shared name index
+    private void showSuggestions(JTextField field, JPopupMenu popup, NameIndex data) {
         popup.removeAll();
-        String txt = field.getText().trim().toLowerCase();
+        String txt = field.getText().trim();
         if (txt.isEmpty()) {
             popup.setVisible(false);
             return;
         }
-        int count = 0;
-        for (String s : data) {
-            if (s == null) continue;
-            if (s.toLowerCase().startsWith(txt)) {  // predictive match from beginning
-                JMenuItem item = new JMenuItem(s);
-                item.addActionListener(e -> {
-                    field.setText(s);
-                    popup.setVisible(false);
-                });
-                popup.add(item);
-                if (++count >= 10) break; // max 10 suggestions
-            }
+        for (String s : data.suggest(txt, 10)) { // max 10 suggestions, name starts first
+            JMenuItem item = new JMenuItem(s);
+            item.addActionListener(e -> {
+                field.setText(s);
+                popup.setVisible(false);
+            });
+            popup.add(item);
         }
         if (popup.getComponentCount() > 0) {
             popup.show(field, 0, field.getHeight());
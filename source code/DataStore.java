@@ -0,0 +1,663 @@
+package assignment;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Process-wide in-memory copy of the pipe-delimited data files.
+// Every file is read and split once, kept as a list of rows plus a hash index on the primary ID (field 0),
+// and only re-read when the file on disk has changed since it was loaded (size or modification time).
+// Panels ask the store for data on every click instead of re-opening the files themselves.
+//
+// Single-row edits do not rewrite the data file. They are appended to "<file>.changes" as
+// "U|<row>" (insert or replace by ID) or "D|<id>" (delete) and replayed on top of the base file
+// when it is loaded. A background thread folds the change log back into the base file from time to time.
+public final class DataStore {
+
+    public static final String APPOINTMENTS_FILE = "appointments.txt";
+    public static final String RECORDS_FILE = "appointments_records.txt";
+    public static final String PAYMENTS_FILE = "payments.txt";
+    public static final String FEEDBACK_FILE = "feedback.txt";
+    public static final String TREATMENTS_FILE = "treatments.txt";
+    public static final String MEDICINES_FILE = "medicines.txt";
+    public static final String PATIENTS_FILE = "patients.txt";
+    public static final String DOCTORS_FILE = "doctors.txt";
+
+    private static final String CHANGELOG_SUFFIX = ".changes";
+    private static final int COMPACT_AFTER_CHANGES = 256;
+    private static final long COMPACT_INTERVAL_SECONDS = 120;
+    // Edits made through this store are applied immediately; the on-disk stamps are only re-checked this often
+    // to notice edits made by another program, so hot loops (slot grids, auto-assign) don't stat files per call.
+    private static final long STAT_INTERVAL_MS = 1000;
+    // Deleted rows a table's ID -> position map may lag behind before it is rebuilt.
+    private static final int MAX_POSITION_DRIFT = 64;
+
+    private static final DataStore INSTANCE = new DataStore();
+
+    private final Map<String, Table> tables = new HashMap<>();
+
+    // Serialises writers and compaction inside this JVM; the FileLock on the change log covers other processes.
+    private final Object writeLock = new Object();
+    private final Map<String, Integer> pendingChanges = new HashMap<>();
+    private ScheduledExecutorService compactor;
+
+    private DataStore() {}
+
+    // Returns the shared store instance.
+    public static DataStore get() {
+        return INSTANCE;
+    }
+
+    // ---------------- TABLE ACCESS ----------------
+    public Table appointments() { return table(APPOINTMENTS_FILE); }
+    public Table records() { return table(RECORDS_FILE); }
+    public Table payments() { return table(PAYMENTS_FILE); }
+    public Table feedback() { return table(FEEDBACK_FILE); }
+    public Table treatments() { return table(TREATMENTS_FILE); }
+    public Table medicines() { return table(MEDICINES_FILE); }
+
+    // Role files follow the "<role>s.txt" naming used by UserFileHandler (patient, doctor, staff, manager).
+    public Table users(String role) {
+        return table(role + "s.txt");
+    }
+
+    // Returns the table for a file, loading it on first use and reloading it if the file changed on disk.
+    // A change log found non-empty on load (left by an earlier run or another process) is queued for compaction.
+    public synchronized Table table(String fileName) {
+        Table t = tables.computeIfAbsent(fileName, Table::new);
+        t.refreshIfStale();
+        if (t.logSize > 0 && pendingChanges.putIfAbsent(fileName, 1) == null) startCompactor();
+        return t;
+    }
+
+    // Size and modification time of the file and its change log as of the loaded rows, e.g. for cache keys.
+    // Moves forward with every change, including edits applied in memory; compaction also moves it.
+    // A file that is not loaded is not loaded for this: its stamp is read from disk, which is what the
+    // first load will record unless the file changes in between.
+    public synchronized String stamp(String fileName) {
+        Table t = tables.get(fileName);
+        if (t == null || t.stale) {
+            Path p = Paths.get(fileName), log = changeLog(fileName);
+            return size(p) + ":" + lastModified(p) + ":" + size(log) + ":" + lastModified(log);
+        }
+        t = table(fileName);
+        return t.baseSize + ":" + t.baseModified + ":" + t.logSize + ":" + t.logModified;
+    }
+
+    // Forces the next access to re-read the file. Called by code that has just written the file itself.
+    public synchronized void invalidate(String fileName) {
+        Table t = tables.get(fileName);
+        if (t != null) t.stale = true;
+    }
+
+    // ---------------- LISTENERS ----------------
+    // Lets derived indexes (slot bitmaps, load counters, report aggregates) follow a table without rescanning it.
+    // Callbacks run on the thread that touched the store, while the store is locked, so they must be quick
+    // and must not call back into the store.
+    public interface Listener {
+        // The table was (re)loaded from disk; rebuild from table.rows().
+        void reloaded(Table table);
+
+        // One row changed through upsert/delete. oldRow is null for an insert, newRow is null for a delete.
+        void changed(Table table, String[] oldRow, String[] newRow);
+    }
+
+    // Registers a listener. If the table is already loaded the listener is brought up to date immediately,
+    // otherwise it sees the first load.
+    public synchronized void addListener(String fileName, Listener listener) {
+        Table t = tables.computeIfAbsent(fileName, Table::new);
+        t.listeners.add(listener);
+        if (!t.stale) listener.reloaded(t);
+    }
+
+    // ---------------- CHANGE LOG WRITES ----------------
+    // Inserts the row, or replaces the row with the same ID (field 0). Costs one small append to the change log.
+    public void upsert(String fileName, String[] row) throws IOException {
+        if (row == null || row.length == 0 || row[0] == null || row[0].isEmpty()) {
+            throw new IOException("Row has no ID.");
+        }
+        writeChange(fileName, "U|" + String.join("|", row));
+    }
+
+    // Removes every row with the given ID.
+    public void delete(String fileName, String id) throws IOException {
+        if (id == null || id.isEmpty()) throw new IOException("No ID given.");
+        writeChange(fileName, "D|" + id);
+    }
+
+    private void writeChange(String fileName, String record) throws IOException {
+        Path log = changeLog(fileName);
+        long before, after;
+        synchronized (writeLock) {
+            try (FileChannel ch = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = ch.lock();
+                try {
+                    before = ch.size();
+                    ByteBuffer buf = ByteBuffer.wrap((record + "\n").getBytes(StandardCharsets.UTF_8));
+                    ch.position(before);
+                    while (buf.hasRemaining()) ch.write(buf);
+                    after = ch.size();
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+
+        boolean compactNow;
+        synchronized (this) {
+            Table t = tables.get(fileName);
+            // If the cached copy is exactly the state this record was appended to, apply it in memory
+            // instead of re-reading the file on the next access.
+            if (t != null && !t.stale && Math.max(t.logSize, 0) == before && t.baseUnchanged()) {
+                t.apply(record);
+                t.logSize = after;
+                t.logModified = lastModified(log);
+            } else if (t != null) {
+                t.stale = true;
+            }
+            int pending = pendingChanges.merge(fileName, 1, Integer::sum);
+            compactNow = pending >= COMPACT_AFTER_CHANGES;
+            startCompactor();
+        }
+        if (compactNow) compactor.execute(() -> compact(fileName));
+    }
+
+    // ---------------- COMPACTION ----------------
+    private void startCompactor() {
+        if (compactor != null) return;
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread th = new Thread(r, "datastore-compactor");
+            th.setDaemon(true);
+            return th;
+        });
+        compactor.scheduleWithFixedDelay(this::compactAll, COMPACT_INTERVAL_SECONDS, COMPACT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void compactAll() {
+        List<String> files;
+        synchronized (this) {
+            files = new ArrayList<>(pendingChanges.keySet());
+        }
+        for (String f : files) compact(f);
+    }
+
+    // Rewrites the base file with the change log applied, then empties the log.
+    // The base file is replaced atomically, and replaying a log over an already-compacted base gives the
+    // same rows, so a reader that catches the files halfway through still sees correct data.
+    public void compact(String fileName) {
+        Path base = Paths.get(fileName);
+        Path log = changeLog(fileName);
+        if (!Files.exists(log)) return;
+
+        synchronized (writeLock) {
+            try (FileChannel ch = FileChannel.open(log, StandardOpenOption.WRITE)) {
+                FileLock lock = ch.lock();
+                try {
+                    if (ch.size() == 0) {
+                        synchronized (this) { pendingChanges.remove(fileName); }
+                        return;
+                    }
+                    long oldBaseSize = size(base), oldBaseModified = lastModified(base);
+                    long oldLogSize = ch.size(), oldLogModified = lastModified(log);
+
+                    List<String[]> merged = readMerged(base, log, fileName);
+                    List<String> lines = new ArrayList<>(merged.size());
+                    for (String[] r : merged) lines.add(String.join("|", r));
+
+                    Path tmp = Paths.get(fileName + ".tmp");
+                    Files.write(tmp, lines, StandardCharsets.UTF_8);
+                    try {
+                        Files.move(tmp, base, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    } catch (AtomicMoveNotSupportedException e) {
+                        Files.move(tmp, base, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    ch.truncate(0);
+
+                    synchronized (this) {
+                        pendingChanges.remove(fileName);
+                        Table t = tables.get(fileName);
+                        if (t != null && !t.stale
+                                && t.baseSize == oldBaseSize && t.baseModified == oldBaseModified
+                                && t.logSize == oldLogSize && t.logModified == oldLogModified) {
+                            // Same rows, new files: just move the stamps forward.
+                            t.baseSize = size(base);
+                            t.baseModified = lastModified(base);
+                            t.logSize = 0;
+                            t.logModified = lastModified(log);
+                        } else if (t != null) {
+                            t.stale = true;
+                        }
+                    }
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                System.err.println("Error compacting file: " + fileName);
+            }
+        }
+    }
+
+    // ---------------- STREAMING ----------------
+    // Calls the visitor with every row of the file as stored (base file with the change log replayed),
+    // in the same order table(fileName).rows() would have, without holding the rows in memory:
+    // the change log (kept short by compaction) is replayed into a per-ID summary first, then the base
+    // file is streamed and each line is passed on, replaced or dropped as that summary says.
+    // Meant for exports of histories too large to load. The log is read before the base file, so a
+    // compaction in between only replays changes the new base already contains, which is harmless.
+    public void stream(String fileName, Consumer<String[]> visitor) throws IOException {
+        read(fileName, null, visitor);
+    }
+
+    // Calls the visitor with the selected fields of each row that meets the query, in row order.
+    // A loaded table is filtered in memory. Otherwise the file is read like stream(), with the query
+    // evaluated while each line is tokenized, so lines that fail it are dropped before any field becomes a
+    // String, and the file is never loaded or split in full.
+    public void scan(String fileName, PipeRecordReader.Query query, Consumer<String[]> visitor) throws IOException {
+        List<String[]> rows = null;
+        synchronized (this) {
+            Table t = tables.get(fileName);
+            if (t != null && !t.stale) rows = table(fileName).rows();
+        }
+        if (rows == null) {
+            read(fileName, query, visitor);
+            return;
+        }
+        for (String[] r : rows) {
+            if (query.matches(r)) visitor.accept(query.project(r));
+        }
+    }
+
+    // stream() and the disk side of scan(). Base lines whose ID has changes in the log are passed through the
+    // query either way, because the logged row that replaces them may match where the line does not.
+    private void read(String fileName, PipeRecordReader.Query query, Consumer<String[]> visitor) throws IOException {
+        Map<String, Replay> log = new HashMap<>();
+        long[] seq = {0};
+        PipeRecordReader.scan(changeLog(fileName), r -> {
+            if (r.fieldEquals(0, "U") && r.fieldCount() > 1) {
+                String[] parts = r.toArray(1);
+                log.computeIfAbsent(parts[0], k -> new Replay()).upsert(parts, seq);
+            } else if (r.fieldEquals(0, "D")) {
+                log.computeIfAbsent(r.field(1), k -> new Replay()).delete();
+            }
+        });
+
+        Set<String> seen = new HashSet<>();   // IDs of the log that occur in the base file
+        PipeRecordReader.Query q = query == null || log.isEmpty() ? query : query.passing(log.keySet());
+        PipeRecordReader.scanMatching(Paths.get(fileName), q, r -> {
+            Replay rp = log.isEmpty() ? null : log.get(r.field(0));
+            if (rp == null) {
+                if (r.matched()) visitor.accept(query == null ? r.toArray() : r.project(query.fields()));
+            } else if (!rp.inBase.baseDeleted) {
+                if (seen.add(r.field(0)) && rp.inBase.baseRow != null) emit(rp.inBase.baseRow, query, visitor);
+                else if (r.matched()) visitor.accept(query == null ? r.toArray() : r.project(query.fields()));
+            } else {
+                seen.add(r.field(0));
+            }
+        });
+
+        // Rows the log added at the end, in the order they were appended.
+        List<long[]> order = new ArrayList<>();
+        List<String[]> tail = new ArrayList<>();
+        log.forEach((id, rp) -> {
+            Replay.Outcome o = seen.contains(id) ? rp.inBase : rp.notInBase;
+            if (o.tail != null) {
+                order.add(new long[]{o.tailSeq, tail.size()});
+                tail.add(o.tail);
+            }
+        });
+        order.sort(Comparator.comparingLong(a -> a[0]));
+        for (long[] o : order) emit(tail.get((int) o[1]), query, visitor);
+    }
+
+    private static void emit(String[] row, PipeRecordReader.Query query, Consumer<String[]> visitor) {
+        if (query == null) visitor.accept(row);
+        else if (query.matches(row)) visitor.accept(query.project(row));
+    }
+
+    // The net effect of one ID's change-log records, worked out both for an ID the base file has and for one
+    // it does not (which of the two applies is only known once the base file is read). Mirrors readMerged:
+    // an upsert replaces the first row with the ID, or appends when there is none; a delete drops them all.
+    private static final class Replay {
+        static final class Outcome {
+            boolean atBase;        // the ID's rows are (still) the base file's rows
+            boolean baseDeleted;
+            String[] baseRow;      // replacement for the first base row, or null
+            String[] tail;         // appended row, or null
+            long tailSeq;
+
+            void upsert(String[] row, long[] seq) {
+                if (atBase) baseRow = row;
+                else if (tail != null) tail = row;   // replaced in place: keeps its position
+                else { tail = row; tailSeq = seq[0]++; }
+            }
+
+            void delete() {
+                if (atBase) { baseDeleted = true; baseRow = null; atBase = false; }
+                tail = null;
+            }
+        }
+
+        final Outcome inBase = new Outcome(), notInBase = new Outcome();
+
+        Replay() {
+            inBase.atBase = true;
+        }
+
+        void upsert(String[] row, long[] seq) {
+            inBase.upsert(row, seq);
+            notInBase.upsert(row, seq);
+        }
+
+        void delete() {
+            inBase.delete();
+            notInBase.delete();
+        }
+    }
+
+    // ---------------- HELPERS ----------------
+    // Returns "First Last" for a user row (fields 3 and 4), or the fallback when the row is missing.
+    public static String fullName(String[] user, String fallback) {
+        if (user == null || user.length < 5) return fallback;
+        return user[3] + " " + user[4];
+    }
+
+    private static Path changeLog(String fileName) {
+        return Paths.get(fileName + CHANGELOG_SUFFIX);
+    }
+
+    private static long size(Path p) {
+        try { return Files.size(p); } catch (IOException e) { return -1; }
+    }
+
+    private static long lastModified(Path p) {
+        try { return Files.getLastModifiedTime(p).toMillis(); } catch (IOException e) { return -1; }
+    }
+
+    // Reads the base file and replays the change log over it.
+    private static List<String[]> readMerged(Path base, Path log, String fileName) {
+        List<String[]> rows = new ArrayList<>();
+        // ID -> positions of rows with that ID, so replaying a record does not scan the list
+        Map<String, List<Integer>> positions = new HashMap<>();
+
+        try {
+            PipeRecordReader.scan(base, r -> {
+                String[] parts = r.toArray();
+                positions.computeIfAbsent(parts[0], k -> new ArrayList<>(1)).add(rows.size());
+                rows.add(parts);
+            });
+            PipeRecordReader.scan(log, r -> {
+                if (r.fieldEquals(0, "U") && r.fieldCount() > 1) {
+                    String[] parts = r.toArray(1);
+                    List<Integer> at = positions.get(parts[0]);
+                    if (at != null) {
+                        rows.set(at.get(0), parts);
+                    } else {
+                        positions.put(parts[0], new ArrayList<>(List.of(rows.size())));
+                        rows.add(parts);
+                    }
+                } else if (r.fieldEquals(0, "D")) {
+                    List<Integer> at = positions.remove(r.field(1));
+                    if (at != null) for (int i : at) rows.set(i, null);
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + fileName);
+        }
+
+        rows.removeIf(Objects::isNull);
+        return rows;
+    }
+
+    // ---------------- TABLE ----------------
+    // One loaded file. Rows are shared between all callers and must be treated as read-only.
+    // A reload swaps in new lists; a single-row edit touches only that row (found through an ID -> position
+    // map) and patches byId and the field indexes, copying the row list first only when a caller has taken
+    // it since the last edit, so a caller iterating an older snapshot is never disturbed.
+    public static final class Table {
+        private final String fileName;
+        private List<String[]> rows = new ArrayList<>();
+        private List<String[]> rowsView = Collections.unmodifiableList(rows);
+        private boolean rowsShared;   // rowsView was handed out: copy before editing rows
+        private Map<String, String[]> byId = new ConcurrentHashMap<>();
+        // ID -> index in rows of byId's row. Removing a row moves the rows after it down one place without
+        // touching this map, so an entry may be up to 'drift' too high until the map is rebuilt.
+        private final Map<String, Integer> positions = new HashMap<>();
+        private int drift;
+        private final Set<String> duplicateIds = new HashSet<>();   // IDs with more than one row
+        private final Map<Integer, Map<String, List<String[]>>> fieldIndexes = new HashMap<>();
+        private boolean exists;
+        private boolean stale = true;
+        private long baseSize = -1, baseModified = -1;
+        private long logSize = -1, logModified = -1;
+        private final List<Listener> listeners = new ArrayList<>();
+        private long lastChecked;
+
+        private Table(String fileName) {
+            this.fileName = fileName;
+        }
+
+        public String fileName() { return fileName; }
+
+        // True when the backing file was present at the last load.
+        public boolean exists() { return exists; }
+
+        public int size() { return rows.size(); }
+
+        // All rows in file order (blank lines skipped). Synchronized with apply(), so a list handed out here is
+        // always copied before the next edit. Callers must not hold a lock that a listener takes.
+        public synchronized List<String[]> rows() {
+            rowsShared = true;
+            return rowsView;
+        }
+
+        // Row with the given primary ID (first occurrence in the file), or null.
+        public String[] byId(String id) {
+            return id == null ? null : byId.get(id);
+        }
+
+        public boolean contains(String id) {
+            return id != null && byId.containsKey(id);
+        }
+
+        // Rows whose given field equals the value exactly. The index for a field is built on first use,
+        // patched by single-row edits and dropped on reload, so e.g. "appointments by doctor" is a hash
+        // lookup after the first call.
+        public synchronized List<String[]> lookup(int field, String value) {
+            Map<String, List<String[]>> idx = fieldIndexes.get(field);
+            if (idx == null) {
+                idx = new HashMap<>();
+                for (String[] r : rows) {
+                    if (r.length > field) idx.computeIfAbsent(r[field], k -> new ArrayList<>()).add(r);
+                }
+                fieldIndexes.put(field, idx);
+            }
+            List<String[]> hit = idx.get(value);
+            return hit == null ? Collections.emptyList() : Collections.unmodifiableList(hit);
+        }
+
+        private synchronized void refreshIfStale() {
+            long nowMs = System.currentTimeMillis();
+            if (!stale && nowMs - lastChecked < STAT_INTERVAL_MS) return;
+            lastChecked = nowMs;
+
+            Path p = Paths.get(fileName);
+            Path log = changeLog(fileName);
+            // Stamps are taken before reading, so a write that lands mid-load is picked up next time.
+            long size = -1, modified = -1;
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(p, BasicFileAttributes.class);
+                size = attrs.size();
+                modified = attrs.lastModifiedTime().toMillis();
+            } catch (IOException e) {
+                // missing file: treated as empty below
+            }
+            long lSize = DataStore.size(log), lModified = lastModified(log);
+            if (!stale && size == baseSize && modified == baseModified
+                    && lSize == logSize && lModified == logModified) return;
+
+            load(p, log, size >= 0 || lSize > 0);
+            baseSize = size;
+            baseModified = modified;
+            logSize = lSize;
+            logModified = lModified;
+            stale = false;
+        }
+
+        private boolean baseUnchanged() {
+            Path p = Paths.get(fileName);
+            return DataStore.size(p) == baseSize && lastModified(p) == baseModified;
+        }
+
+        private void load(Path p, Path log, boolean present) {
+            List<String[]> newRows = present ? readMerged(p, log, fileName) : new ArrayList<>();
+            Map<String, String[]> newById = new ConcurrentHashMap<>();
+            duplicateIds.clear();
+            for (String[] r : newRows) {
+                if (newById.putIfAbsent(r[0], r) != null) duplicateIds.add(r[0]);
+            }
+            rows = newRows;
+            rowsView = Collections.unmodifiableList(newRows);
+            rowsShared = false;
+            byId = newById;
+            indexPositions();
+            fieldIndexes.clear();
+            exists = present;
+            for (Listener l : listeners) l.reloaded(this);
+        }
+
+        // Applies one change-log record to the loaded rows, touching only the rows with its ID.
+        private synchronized void apply(String record) {
+            exists = true;
+            if (record.startsWith("U|")) {
+                String[] parts = record.substring(2).split("\\|", -1);
+                String[] old = byId.get(parts[0]);
+                int i = old == null ? -1 : position(old);
+                editableRows();
+                if (i >= 0) {
+                    rows.set(i, parts);
+                } else {
+                    old = null;
+                    i = rows.size();
+                    positions.put(parts[0], i);
+                    rows.add(parts);
+                }
+                byId.put(parts[0], parts);
+                reindex(old, parts, i);
+                for (Listener l : listeners) l.changed(this, old, parts);
+            } else if (record.startsWith("D|")) {
+                String id = record.substring(2);
+                String[] first = byId.remove(id);
+                if (first == null) return;
+                editableRows();
+                List<String[]> removed = new ArrayList<>(1);
+                int i = duplicateIds.remove(id) ? -1 : position(first);
+                if (i >= 0) {
+                    removed.add(rows.remove(i));
+                    positions.remove(id);
+                    if (++drift > MAX_POSITION_DRIFT) indexPositions();
+                } else {
+                    // several rows with the ID (or the map lost track): sweep the list once
+                    rows.removeIf(r -> {
+                        if (!r[0].equals(id)) return false;
+                        removed.add(r);
+                        return true;
+                    });
+                    indexPositions();
+                }
+                for (String[] r : removed) reindex(r, null, -1);
+                for (String[] r : removed) {
+                    for (Listener l : listeners) l.changed(this, r, null);
+                }
+            }
+        }
+
+        // Copies the row list before an edit if a caller may still be reading it.
+        private void editableRows() {
+            if (!rowsShared) return;
+            rows = new ArrayList<>(rows);
+            rowsView = Collections.unmodifiableList(rows);
+            rowsShared = false;
+        }
+
+        // Index of the row in rows, for a row that is byId's row for its ID; -1 for any other row.
+        private int position(String[] row) {
+            Integer at = positions.get(row[0]);
+            if (at != null) {
+                for (int i = Math.min(at, rows.size() - 1); i >= 0 && i >= at - drift; i--) {
+                    if (rows.get(i) != row) continue;
+                    if (i != at) positions.put(row[0], i);
+                    return i;
+                }
+            }
+            if (byId.get(row[0]) != row) return -1;
+            indexPositions();
+            at = positions.get(row[0]);
+            return at == null ? -1 : at;
+        }
+
+        private void indexPositions() {
+            positions.clear();
+            for (int i = 0; i < rows.size(); i++) {
+                String[] r = rows.get(i);
+                if (byId.get(r[0]) == r) positions.put(r[0], i);
+            }
+            drift = 0;
+        }
+
+        // Moves one row within the field indexes built so far: oldRow (null for an insert) is replaced by
+        // row (null for a delete), which sits at index 'at' of rows. Lists handed out by lookup() are
+        // replaced, never edited, and a row keeps its file-order place in its value's list. An index that
+        // cannot place a row (duplicate IDs) is dropped and rebuilt by the next lookup.
+        private void reindex(String[] oldRow, String[] row, int at) {
+            Iterator<Map.Entry<Integer, Map<String, List<String[]>>>> it = fieldIndexes.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Integer, Map<String, List<String[]>>> e = it.next();
+                int field = e.getKey();
+                Map<String, List<String[]>> idx = e.getValue();
+                String from = oldRow != null && oldRow.length > field ? oldRow[field] : null;
+                String to = row != null && row.length > field ? row[field] : null;
+
+                if (from != null && from.equals(to)) {
+                    List<String[]> l = new ArrayList<>(idx.get(from));
+                    l.set(l.indexOf(oldRow), row);
+                    idx.put(from, l);
+                    continue;
+                }
+                if (from != null) {
+                    List<String[]> l = new ArrayList<>(idx.get(from));
+                    l.remove(oldRow);
+                    if (l.isEmpty()) idx.remove(from);
+                    else idx.put(from, l);
+                }
+                if (to != null) {
+                    List<String[]> l = new ArrayList<>(idx.getOrDefault(to, Collections.emptyList()));
+                    // first entry that comes after the row in the file
+                    int lo = 0, hi = l.size();
+                    boolean placed = true;
+                    while (lo < hi && placed) {
+                        int mid = (lo + hi) >>> 1, p = position(l.get(mid));
+                        if (p < 0) placed = false;
+                        else if (p < at) lo = mid + 1;
+                        else hi = mid;
+                    }
+                    if (!placed) {
+                        it.remove();
+                        continue;
+                    }
+                    l.add(lo, row);
+                    idx.put(to, l);
+                }
+            }
+        }
+    }
+}
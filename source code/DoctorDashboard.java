@@ -3,15 +3,12 @@ package assignment;
 import javax.swing.*;
 import javax.swing.table.*;
 import java.awt.*;
-import java.io.*;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.*;
+import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.*;
 import java.util.*;
 import java.util.List;
-import java.util.regex.Pattern;
 import javax.swing.border.*;
 
 // DoctorDashboard extends BaseDashboard and provides a GUI for doctor-specific operations
@@ -29,6 +26,7 @@ public class DoctorDashboard extends BaseDashboard {
     private DefaultTableModel appointmentTableModel;
     private DefaultTableModel closedAppointmentTableModel;
     private final Map<String, String[]> appointmentCache = new HashMap<>();
+    private NameIndex appointmentNames; // patient names in appointmentCache; null until needed
     
     private JLabel patientsValueLabel;
     private JLabel ratingValueLabel;
@@ -144,11 +142,7 @@ public class DoctorDashboard extends BaseDashboard {
         JPopupMenu upNamePopup = new JPopupMenu();
         upNameField.addKeyListener(new java.awt.event.KeyAdapter() {
             @Override public void keyReleased(java.awt.event.KeyEvent e) {
-                Set<String> names = new HashSet<>();
-                for (String[] appt : appointmentCache.values()) {
-                    names.add(nz(appt,2) + " " + nz(appt,3));
-                }
-                showSuggestions(upNameField, upNamePopup, names);
+                showSuggestions(upNameField, upNamePopup, appointmentNames());
             }
         });
 
@@ -209,11 +203,7 @@ public class DoctorDashboard extends BaseDashboard {
         JPopupMenu clNamePopup = new JPopupMenu();
         clNameField.addKeyListener(new java.awt.event.KeyAdapter() {
             @Override public void keyReleased(java.awt.event.KeyEvent e) {
-                Set<String> names = new HashSet<>();
-                for (String[] appt : appointmentCache.values()) {
-                    names.add(nz(appt,2) + " " + nz(appt,3));
-                }
-                showSuggestions(clNameField, clNamePopup, names);
+                showSuggestions(clNameField, clNamePopup, appointmentNames());
             }
         });
     }
@@ -473,15 +463,9 @@ public class DoctorDashboard extends BaseDashboard {
 
     // Searches the doctors file for a doctor by username and returns the profile data array.
     private String[] findDoctorByUsername(String username) {
-        Path p = Paths.get(DOCTORS_FILE);
-        if (!Files.exists(p)) return null;
-        try (BufferedReader br = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(Pattern.quote("|"), -1);
-                if (parts.length >= 15 && parts[1].equalsIgnoreCase(username)) return parts;
-            }
-        } catch (IOException e) {}
+        for (String[] parts : DataStore.get().table(DOCTORS_FILE).rows()) {
+            if (parts.length >= 15 && parts[1].equalsIgnoreCase(username)) return parts;
+        }
         return null;
     }
 
@@ -516,41 +500,43 @@ public class DoctorDashboard extends BaseDashboard {
 
         model.setRowCount(0);
         appointmentCache.clear();
-
-        Path p = Paths.get(APPOINTMENTS_FILE);
-        if (!Files.exists(p)) return;
-
-        try (BufferedReader br = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] a = line.split(Pattern.quote("|"), -1);
-                if (a.length >= 13 && safeEq(a, 6, nz(doctorData,0))) {
-                    String status = a[12];
-
-                    if ("Upcoming".equalsIgnoreCase(statusFilter)) {
-                        if ("Upcoming".equalsIgnoreCase(status) || "Rescheduled".equalsIgnoreCase(status)) {
-                            appointmentCache.put(a[0], a);
-                            model.addRow(new Object[]{
-                                a[0], a[1], nz(a,2), nz(a,3),
-                                nz(a,4), nz(a,5), nz(a,11), "View"
-                            });
-                        }
+        appointmentNames = null;
+
+        for (String[] a : DataStore.get().table(APPOINTMENTS_FILE).lookup(6, nz(doctorData,0))) {
+            if (a.length >= 13) {
+                String status = a[12];
+
+                if ("Upcoming".equalsIgnoreCase(statusFilter)) {
+                    if ("Upcoming".equalsIgnoreCase(status) || "Rescheduled".equalsIgnoreCase(status)) {
+                        appointmentCache.put(a[0], a);
+                        model.addRow(new Object[]{
+                            a[0], a[1], nz(a,2), nz(a,3),
+                            nz(a,4), nz(a,5), nz(a,11), "View"
+                        });
                     }
+                }
 
-                    else if ("Completed".equalsIgnoreCase(statusFilter)) {
-                        if ("Completed".equalsIgnoreCase(status)) {
-                            appointmentCache.put(a[0], a);
-                            model.addRow(new Object[]{
-                                a[0], a[1], nz(a,2), nz(a,3),
-                                nz(a,4), nz(a,5), nz(a,11), "View"
-                            });
-                        }
+                else if ("Completed".equalsIgnoreCase(statusFilter)) {
+                    if ("Completed".equalsIgnoreCase(status)) {
+                        appointmentCache.put(a[0], a);
+                        model.addRow(new Object[]{
+                            a[0], a[1], nz(a,2), nz(a,3),
+                            nz(a,4), nz(a,5), nz(a,11), "View"
+                        });
                     }
                 }
             }
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Failed to load appointments: " + e.getMessage());
+    }
+    }
+
+    // Index of the patient names in appointmentCache, built on first use after the cache is refilled.
+    private NameIndex appointmentNames() {
+        if (appointmentNames == null) {
+            List<String> names = new ArrayList<>();
+            for (String[] appt : appointmentCache.values()) names.add(nz(appt,2) + " " + nz(appt,3));
+            appointmentNames = NameIndex.of(names);
         }
+        return appointmentNames;
     }
 
     // Opens the detailed view for a selected appointment from the given table row.
@@ -559,23 +545,13 @@ public class DoctorDashboard extends BaseDashboard {
         String[] a = appointmentCache.get(apptId);
 
         if (a == null) {
-            Path p = Paths.get(APPOINTMENTS_FILE);
-            if (!Files.exists(p)) return;
-            try (BufferedReader br = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
-                String line;
-                while ((line = br.readLine()) != null) {
-                    String[] q = line.split(Pattern.quote("|"), -1);
-                    if (q.length >= 1 && apptId.equals(q[0])) {
-                        a = q;
-                        break;
-                    }
-                }
-            } catch (IOException ex) {}
+            a = DataStore.get().table(APPOINTMENTS_FILE).byId(apptId);
         }
 
         if (a != null) {
+            // The details panel edits its copy in place, so never hand it the shared store row
             AppointmentDetailsPanel detailsPanel = new AppointmentDetailsPanel(
-                a, nz(doctorData,0), nz(doctorData,1),
+                a.clone(), nz(doctorData,0), nz(doctorData,1),
                 () -> cardLayout.show(contentPanel, returnPanel),
                 () -> cardLayout.show(contentPanel, returnPanel)
             );
@@ -620,20 +596,9 @@ public class DoctorDashboard extends BaseDashboard {
 
         // load appointments and fill cache
         appointmentCache.clear();
-        List<String[]> allAppts = new ArrayList<>();
-        Path ap = Paths.get(APPOINTMENTS_FILE);
-        if (Files.exists(ap)) {
-            try (BufferedReader br = Files.newBufferedReader(ap, StandardCharsets.UTF_8)) {
-                String line;
-                while ((line = br.readLine()) != null) {
-                    String[] a = line.split(Pattern.quote("|"), -1);
-                    if (a.length >= 7 && safeEq(a,6,nz(doctorData,0))) {
-                        allAppts.add(a);
-                        appointmentCache.put(nz(a,0), a);
-                    }
-                }
-            } catch (IOException ignored) {}
-        }
+        appointmentNames = null;
+        List<String[]> allAppts = new ArrayList<>(DataStore.get().table(APPOINTMENTS_FILE).lookup(6, nz(doctorData,0)));
+        for (String[] a : allAppts) appointmentCache.put(nz(a,0), a);
 
         // metrics: unique patients
         Set<String> uniquePatients = new HashSet<>();
@@ -642,31 +607,26 @@ public class DoctorDashboard extends BaseDashboard {
             patientsValueLabel.setText(String.valueOf(uniquePatients.size()));
 
         // rating from feedback (now using doctorId + numeric rating)
-        int sum = 0, count = 0;
-        Path fp = Paths.get(FEEDBACK_FILE);
-        if (Files.exists(fp)) {
-            try (BufferedReader br = Files.newBufferedReader(fp, StandardCharsets.UTF_8)) {
-                String line;
-                while ((line = br.readLine()) != null) {
-                    String[] f = line.split(Pattern.quote("|"), -1);
-                    // format: appointmentId|doctorId|patientId|rating|comments
-                    if (f.length >= 4) {
-                        if (f[1].trim().equalsIgnoreCase(nz(doctorData,0))) {
-                            try {
-                                int rating = Integer.parseInt(f[3].trim());
-                                if (rating < 1) rating = 1;
-                                if (rating > 5) rating = 5;
-                                sum += rating;
-                                count++;
-                            } catch (NumberFormatException ignored) {}
-                        }
-                    }
-                }
-            } catch (IOException ignored) {}
+        // format: appointmentId|doctorId|patientId|rating|comments; only this doctor's ratings are read
+        int[] sum = {0}, count = {0};
+        PipeRecordReader.Query mine = new PipeRecordReader.Query().select(3).whereEquals(1, nz(doctorData,0).trim());
+        try {
+            DataStore.get().scan(FEEDBACK_FILE, mine, f -> {
+                if (f[0] == null) return;
+                try {
+                    int rating = Integer.parseInt(f[0].trim());
+                    if (rating < 1) rating = 1;
+                    if (rating > 5) rating = 5;
+                    sum[0] += rating;
+                    count[0]++;
+                } catch (NumberFormatException ignored) {}
+            });
+        } catch (IOException ex) {
+            System.err.println("Error reading feedback: " + ex.getMessage());
         }
         if (ratingValueLabel != null) {
-            if (count > 0) {
-                double avg = (double) sum / count;
+            if (count[0] > 0) {
+                double avg = (double) sum[0] / count[0];
                 ratingValueLabel.setText(String.format("%.1f", avg));
             } else {
                 ratingValueLabel.setText("N/A");
@@ -803,25 +763,13 @@ public class DoctorDashboard extends BaseDashboard {
     // Loads feedback from the file for the given doctor and populates the feedback table model.
     private void loadDoctorFeedback(String doctorId, DefaultTableModel model) {
         model.setRowCount(0);
-        File feedbackFile = new File("feedback.txt");
-        if (!feedbackFile.exists()) {
-            model.addRow(new Object[]{"No feedback yet", ""});
-            return;
-        }
-
         boolean found = false;
-        try (BufferedReader br = new BufferedReader(new FileReader(feedbackFile))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] f = line.split("\\|", -1);
-                // format: appointmentId|doctorId|patientId|rating|comments
-                if (f.length >= 5 && f[1].equals(doctorId)) {
-                    model.addRow(new Object[]{f[3], f[4]});
-                    found = true;
-                }
+        for (String[] f : DataStore.get().table(FEEDBACK_FILE).lookup(1, doctorId)) {
+            // format: appointmentId|doctorId|patientId|rating|comments
+            if (f.length >= 5) {
+                model.addRow(new Object[]{f[3], f[4]});
+                found = true;
             }
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Error loading feedback: " + e.getMessage());
         }
 
         if (!found) {
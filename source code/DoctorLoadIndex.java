@@ -0,0 +1,104 @@
+package assignment;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+// Running appointment counts per doctor, used by auto-assign to pick the least busy doctor.
+// Doctors are grouped into "specialization|shift" buckets, each kept sorted by (count, doctor ID),
+// so finding the least loaded doctor is a walk from the front of one small sorted set instead of
+// recounting appointments.txt. Counts follow the store through listeners on appointments and doctors.
+public final class DoctorLoadIndex implements DataStore.Listener {
+
+    private static final DoctorLoadIndex INSTANCE = new DoctorLoadIndex();
+
+    private final Map<String, Integer> counts = new HashMap<>();
+    private final Map<String, String> bucketOf = new HashMap<>();   // doctor ID -> bucket key
+    private final Map<String, TreeSet<String>> buckets = new HashMap<>();
+    private final Comparator<String> byLoad = Comparator
+            .<String>comparingInt(id -> counts.getOrDefault(id, 0))
+            .thenComparing(Comparator.naturalOrder());
+
+    private DoctorLoadIndex() {
+        DataStore.get().addListener(DataStore.DOCTORS_FILE, this);
+        DataStore.get().addListener(DataStore.APPOINTMENTS_FILE, this);
+    }
+
+    // Returns the shared index, brought up to date with doctors.txt and appointments.txt.
+    public static DoctorLoadIndex get() {
+        DataStore.get().table(DataStore.DOCTORS_FILE);
+        DataStore.get().appointments();
+        return INSTANCE;
+    }
+
+    // ---------------- QUERIES ----------------
+    // Number of appointments currently held by the doctor.
+    public synchronized int load(String doctorId) {
+        return counts.getOrDefault(doctorId, 0);
+    }
+
+    // Least loaded doctor of the specialization and shift that passes the filter (e.g. "slot is free"),
+    // or null. Ties go to the lower doctor ID.
+    public synchronized String leastLoaded(String specialization, String shift, Predicate<String> eligible) {
+        TreeSet<String> bucket = buckets.get(bucketKey(specialization, shift));
+        if (bucket == null) return null;
+        for (String id : bucket) {
+            if (eligible.test(id)) return id;
+        }
+        return null;
+    }
+
+    private static String bucketKey(String specialization, String shift) {
+        return (specialization == null ? "" : specialization.trim().toLowerCase()) + "|"
+                + (shift == null ? "" : shift.trim().toLowerCase());
+    }
+
+    // ---------------- STORE LISTENER ----------------
+    @Override
+    public synchronized void reloaded(DataStore.Table table) {
+        if (DataStore.DOCTORS_FILE.equals(table.fileName())) {
+            bucketOf.clear();
+            for (String[] d : table.rows()) {
+                if (d.length >= 15) bucketOf.put(d[0], bucketKey(d[13], d[14]));
+            }
+        } else {
+            counts.clear();
+            for (String[] p : table.rows()) {
+                if (p.length >= 7) counts.merge(p[6].trim(), 1, Integer::sum);
+            }
+        }
+        rebuildBuckets();
+    }
+
+    @Override
+    public synchronized void changed(DataStore.Table table, String[] oldRow, String[] newRow) {
+        if (DataStore.DOCTORS_FILE.equals(table.fileName())) {
+            // Doctor edits are rare; regroup from scratch.
+            if (oldRow != null) bucketOf.remove(oldRow[0]);
+            if (newRow != null && newRow.length >= 15) bucketOf.put(newRow[0], bucketKey(newRow[13], newRow[14]));
+            rebuildBuckets();
+            return;
+        }
+        String oldDoc = oldRow != null && oldRow.length >= 7 ? oldRow[6].trim() : null;
+        String newDoc = newRow != null && newRow.length >= 7 ? newRow[6].trim() : null;
+        if (Objects.equals(oldDoc, newDoc)) return;   // e.g. a reschedule with the same doctor
+        if (oldDoc != null) adjust(oldDoc, -1);
+        if (newDoc != null) adjust(newDoc, +1);
+    }
+
+    // Changes one doctor's count, re-positioning it in its bucket (remove before the key changes, then re-add).
+    private void adjust(String doctorId, int delta) {
+        TreeSet<String> bucket = buckets.get(bucketOf.get(doctorId));
+        if (bucket != null) bucket.remove(doctorId);
+        int n = counts.getOrDefault(doctorId, 0) + delta;
+        if (n > 0) counts.put(doctorId, n);
+        else counts.remove(doctorId);
+        if (bucket != null) bucket.add(doctorId);
+    }
+
+    private void rebuildBuckets() {
+        buckets.clear();
+        for (Map.Entry<String, String> e : bucketOf.entrySet()) {
+            buckets.computeIfAbsent(e.getValue(), k -> new TreeSet<>(byLoad)).add(e.getKey());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package assignment;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Hands out new IDs (A = appointment, I = invoice, P/D/S/M = patient/doctor/staff/manager).
+// The highest number reserved so far for each prefix is kept in "id_sequences.txt" ("A|00042" per line).
+// A process reserves a block of numbers at a time under a file lock and then hands them out from memory,
+// so a new ID needs no data-file scan and two running copies of the app never hand out the same number.
+// Unused numbers of a block are simply skipped when the process exits.
+public final class IdAllocator {
+
+    private static final String SEQUENCES_FILE = "id_sequences.txt";
+    private static final int BLOCK_SIZE = 20;
+
+    // Where each prefix's IDs live (field 0), used only once to seed a prefix that has no stored mark yet.
+    private static final Map<Character, String> SEED_FILES = Map.of(
+            'A', DataStore.APPOINTMENTS_FILE,
+            'I', DataStore.PAYMENTS_FILE,
+            'P', DataStore.PATIENTS_FILE,
+            'D', DataStore.DOCTORS_FILE,
+            'S', "staffs.txt",
+            'M', "managers.txt"
+    );
+
+    private static final Map<Character, long[]> blocks = new HashMap<>();   // prefix -> {next, last}
+
+    private IdAllocator() {}
+
+    // Next free ID for the prefix, e.g. "A00043". Numbers are zero-padded to five digits like the
+    // existing data and simply grow wider past 99999.
+    public static synchronized String next(char prefix) throws IOException {
+        long[] block = blocks.get(prefix);
+        if (block == null || block[0] > block[1]) {
+            block = reserveBlock(prefix);
+            blocks.put(prefix, block);
+        }
+        long n = block[0]++;
+        return prefix + String.format(Locale.ROOT, "%05d", n);
+    }
+
+    // Advances the stored mark by one block and returns the reserved range {first, last}.
+    private static long[] reserveBlock(char prefix) throws IOException {
+        Path p = Paths.get(SEQUENCES_FILE);
+        try (FileChannel ch = FileChannel.open(p, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FileLock lock = ch.lock();
+            try {
+                Map<Character, Long> marks = readMarks(ch);
+                Long mark = marks.get(prefix);
+                if (mark == null) mark = seed(prefix);
+
+                long first = mark + 1, last = mark + BLOCK_SIZE;
+                marks.put(prefix, last);
+                writeMarks(ch, marks);
+                return new long[]{first, last};
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    private static Map<Character, Long> readMarks(FileChannel ch) throws IOException {
+        Map<Character, Long> marks = new TreeMap<>();
+        ByteBuffer buf = ByteBuffer.allocate((int) ch.size());
+        ch.position(0);
+        while (buf.hasRemaining() && ch.read(buf) >= 0) { }
+        String text = new String(buf.array(), 0, buf.position(), StandardCharsets.UTF_8);
+        for (String line : text.split("\\R")) {
+            String[] parts = line.trim().split("\\|");
+            if (parts.length < 2 || parts[0].length() != 1) continue;
+            try {
+                marks.put(parts[0].charAt(0), Long.parseLong(parts[1].trim()));
+            } catch (NumberFormatException ignored) {}
+        }
+        return marks;
+    }
+
+    private static void writeMarks(FileChannel ch, Map<Character, Long> marks) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Character, Long> e : marks.entrySet()) {
+            sb.append(e.getKey()).append('|').append(String.format(Locale.ROOT, "%05d", e.getValue())).append(System.lineSeparator());
+        }
+        ByteBuffer out = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        ch.truncate(0);
+        ch.position(0);
+        while (out.hasRemaining()) ch.write(out);
+        ch.force(false);
+    }
+
+    // First use of a prefix: start above the largest number already present in its data file.
+    // Only the IDs starting with the prefix are read (a range over field 0 whose bounds are the prefix itself).
+    private static long seed(char prefix) throws IOException {
+        String file = SEED_FILES.get(prefix);
+        long[] max = {0};
+        if (file == null) return 0;
+        String p = String.valueOf(prefix);
+        DataStore.get().scan(file, new PipeRecordReader.Query().select(0).whereBetween(0, p, p), row -> {
+            String id = row[0].trim();
+            if (id.length() < 2 || id.charAt(0) != prefix) return;
+            try {
+                max[0] = Math.max(max[0], Long.parseLong(id.substring(1)));
+            } catch (NumberFormatException ignored) {}
+        });
+        return max[0];
+    }
+}
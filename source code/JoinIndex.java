@@ -0,0 +1,173 @@
+package assignment;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Appointments, their medical records and their payments joined on the appointment ID.
+// Built once per load of the three files and kept current through store listeners, so "which doctor
+// treated this appointment", "what was billed" and "is it paid" are hash lookups for the reports,
+// the payment screen and the receipts list instead of maps rebuilt from the files on every use.
+//
+// Lookups take no lock and may run alongside a write (e.g. from the report engine's parallel rebuild):
+// the maps are concurrent and each per-appointment list is replaced, never edited.
+// Listeners registered here see every change twice, just before and just after the join moves,
+// which lets them take a row back under the old join and add it again under the new one.
+public final class JoinIndex implements DataStore.Listener {
+
+    // A DataStore listener that is also told about a change before the join is updated.
+    public interface Listener extends DataStore.Listener {
+        // Called under the same locks as changed(), while lookups still answer as before the change.
+        void changing(DataStore.Table table, String[] oldRow, String[] newRow);
+    }
+
+    private static final String[] FILES = {DataStore.APPOINTMENTS_FILE, DataStore.RECORDS_FILE, DataStore.PAYMENTS_FILE};
+
+    private static final JoinIndex INSTANCE = new JoinIndex(true);
+
+    private final Map<String, String[]> appointments = new ConcurrentHashMap<>();         // appointment ID -> first row
+    private final Map<String, List<String[]>> records = new ConcurrentHashMap<>();       // appointment ID -> records
+    private final Map<String, List<String[]>> payments = new ConcurrentHashMap<>();      // appointment ID -> payments
+    private final Map<String, String> doctorNames = new ConcurrentHashMap<>();           // doctor ID -> name
+    private final Map<String, DataStore.Table> tables = new HashMap<>();
+    private final List<Listener> listeners = new ArrayList<>();
+
+    private JoinIndex(boolean shared) {
+        if (shared) {
+            for (String file : FILES) DataStore.get().addListener(file, this);
+        }
+    }
+
+    // Returns the shared index, brought up to date with the three files.
+    public static JoinIndex get() {
+        DataStore.get().appointments();
+        DataStore.get().records();
+        DataStore.get().payments();
+        return INSTANCE;
+    }
+
+    // A private index over the given rows, not connected to the store (e.g. for a one-off report run).
+    static JoinIndex of(List<String[]> appts, List<String[]> recs, List<String[]> pays) {
+        JoinIndex idx = new JoinIndex(false);
+        idx.index(DataStore.APPOINTMENTS_FILE, appts);
+        idx.index(DataStore.RECORDS_FILE, recs);
+        idx.index(DataStore.PAYMENTS_FILE, pays);
+        return idx;
+    }
+
+    // Registers a listener. Files already loaded are replayed to it as reloads, like DataStore.addListener.
+    public synchronized void addListener(Listener listener) {
+        listeners.add(listener);
+        for (DataStore.Table t : tables.values()) listener.reloaded(t);
+    }
+
+    // ---------------- QUERIES ----------------
+    // First appointment row with the ID, or null.
+    public String[] appointment(String apptId) {
+        return apptId == null ? null : appointments.get(apptId);
+    }
+
+    // Records of the appointment in file order (usually one), or an empty list.
+    public List<String[]> records(String apptId) {
+        List<String[]> l = apptId == null ? null : records.get(apptId);
+        return l == null ? Collections.emptyList() : l;
+    }
+
+    // Payments made against the appointment in file order, or an empty list.
+    public List<String[]> payments(String apptId) {
+        List<String[]> l = apptId == null ? null : payments.get(apptId);
+        return l == null ? Collections.emptyList() : l;
+    }
+
+    public boolean isPaid(String apptId) {
+        return apptId != null && payments.containsKey(apptId);
+    }
+
+    // Doctor name as written on that doctor's latest appointment, or the ID when there is none.
+    public String doctorName(String doctorId) {
+        return doctorId == null ? null : doctorNames.getOrDefault(doctorId, doctorId);
+    }
+
+    // ---------------- STORE LISTENER ----------------
+    @Override
+    public synchronized void reloaded(DataStore.Table table) {
+        tables.put(table.fileName(), table);
+        index(table.fileName(), table.rows());
+        for (Listener l : listeners) l.reloaded(table);
+    }
+
+    @Override
+    public synchronized void changed(DataStore.Table table, String[] oldRow, String[] newRow) {
+        for (Listener l : listeners) l.changing(table, oldRow, newRow);
+        switch (table.fileName()) {
+            case DataStore.APPOINTMENTS_FILE -> {
+                String id = (newRow != null ? newRow : oldRow)[0];
+                String[] current = table.byId(id);
+                if (current == null) appointments.remove(id);
+                else appointments.put(id, current);
+                if (newRow != null) nameDoctor(newRow);
+            }
+            case DataStore.RECORDS_FILE -> move(records, 0, oldRow, newRow);
+            default -> move(payments, 1, oldRow, newRow);
+        }
+        for (Listener l : listeners) l.changed(table, oldRow, newRow);
+    }
+
+    private void index(String file, List<String[]> rows) {
+        switch (file) {
+            case DataStore.APPOINTMENTS_FILE -> {
+                appointments.clear();
+                doctorNames.clear();
+                for (String[] a : rows) {
+                    if (a.length > 0) appointments.putIfAbsent(a[0], a);
+                    nameDoctor(a);
+                }
+            }
+            case DataStore.RECORDS_FILE -> group(records, rows, 0);
+            default -> group(payments, rows, 1);
+        }
+    }
+
+    private void nameDoctor(String[] a) {
+        if (a.length > 6) doctorNames.put(a[6], a.length > 7 && !a[7].trim().isEmpty() ? a[7] : a[6]);
+    }
+
+    private static void group(Map<String, List<String[]>> into, List<String[]> rows, int field) {
+        Map<String, List<String[]>> grouped = new HashMap<>();
+        for (String[] r : rows) {
+            if (r.length > field) grouped.computeIfAbsent(r[field], k -> new ArrayList<>()).add(r);
+        }
+        into.clear();
+        grouped.forEach((k, l) -> into.put(k, Collections.unmodifiableList(l)));
+    }
+
+    // Takes oldRow out of its appointment's list and puts newRow into its own (either may be null).
+    // A row edited in place keeps its position; every touched list is published as a new list.
+    private static void move(Map<String, List<String[]>> map, int field, String[] oldRow, String[] newRow) {
+        String oldKey = oldRow != null && oldRow.length > field ? oldRow[field] : null;
+        String newKey = newRow != null && newRow.length > field ? newRow[field] : null;
+        if (oldKey != null) {
+            List<String[]> l = new ArrayList<>(map.getOrDefault(oldKey, Collections.emptyList()));
+            int i = -1;
+            for (int k = 0; k < l.size(); k++) {
+                if (l.get(k) == oldRow) { i = k; break; }
+            }
+            if (i >= 0 && oldKey.equals(newKey)) {
+                l.set(i, newRow);
+                newKey = null;
+            } else if (i >= 0) {
+                l.remove(i);
+            }
+            publish(map, oldKey, l);
+        }
+        if (newKey != null) {
+            List<String[]> l = new ArrayList<>(map.getOrDefault(newKey, Collections.emptyList()));
+            l.add(newRow);
+            publish(map, newKey, l);
+        }
+    }
+
+    private static void publish(Map<String, List<String[]>> map, String apptId, List<String[]> l) {
+        if (l.isEmpty()) map.remove(apptId);
+        else map.put(apptId, Collections.unmodifiableList(l));
+    }
+}
@@ -0,0 +1,65 @@
+package assignment;
+
+import java.util.Arrays;
+
+// Counts of non-negative whole values (cents, minutes) in log-linear buckets, for percentiles in bounded
+// memory (the idea behind HdrHistogram). Values below 128 get a bucket each; above that every power of two
+// is split into 64 equal buckets, so any value is placed within 1/64 (about 1.6%) of itself. A histogram
+// reaching up to 2^40 needs about 2,300 counters, however many values are added.
+//
+// Counts may be taken back (add with -1), so the report engine can apply edits as deltas.
+public final class LogHistogram {
+
+    private static final int SUB_BITS = 6;
+    private static final int HALF = 1 << SUB_BITS;   // buckets per power of two
+    private static final int LINEAR = HALF * 2;      // values below this are counted exactly
+
+    private long[] counts = new long[LINEAR];
+    private long total;
+
+    public void add(long value, int sign) {
+        int i = index(Math.max(value, 0));
+        if (i >= counts.length) counts = Arrays.copyOf(counts, Math.max(i + 1, counts.length * 2));
+        counts[i] += sign;
+        total += sign;
+    }
+
+    public long count() {
+        return total;
+    }
+
+    public void merge(LogHistogram o) {
+        if (o.counts.length > counts.length) counts = Arrays.copyOf(counts, o.counts.length);
+        for (int i = 0; i < o.counts.length; i++) counts[i] += o.counts[i];
+        total += o.total;
+    }
+
+    // Value at the given percentile (0-100): the middle of the bucket holding that rank, or 0 when empty.
+    public long percentile(double p) {
+        if (total <= 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return (lowest(i) + highest(i)) / 2;
+        }
+        return highest(counts.length - 1);
+    }
+
+    // ---------------- BUCKETS ----------------
+    private static int index(long v) {
+        if (v < LINEAR) return (int) v;
+        int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;   // keeps the top SUB_BITS + 1 bits
+        return LINEAR + (shift - 1) * HALF + (int) ((v >>> shift) - HALF);
+    }
+
+    private static long lowest(int i) {
+        if (i < LINEAR) return i;
+        int shift = (i - LINEAR) / HALF + 1;
+        return (long) (HALF + (i - LINEAR) % HALF) << shift;
+    }
+
+    private static long highest(int i) {
+        return i < LINEAR ? i : lowest(i + 1) - 1;
+    }
+}
@@ -233,30 +233,25 @@ class LoginFrame extends JFrame {
         boolean loginSuccess = false;
 
         for (String role : roles) {
-            String fileName = role + "s.txt";
-            try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    String[] parts = line.split("\\|");
-                    if (parts.length > 2 && parts[1].equals(username)) {
-                        userFound = true;
-                        if (parts[2].equals(password)) {
-                            loginAttempts = 0; // reset
-                            loginSuccess = true;
-
-                            JOptionPane.showMessageDialog(this, "Login Successful as " + role);
-                            dispose();
-                            switch (role) {
-                                case "manager" -> new ManagerDashboard(username);
-                                case "staff" -> new StaffDashboard(username);
-                                case "doctor" -> new DoctorDashboard(username);
-                                case "patient" -> new PatientDashboard(username);
-                            }
-                            return;
+            for (String[] parts : DataStore.get().users(role).rows()) {
+                if (parts.length > 2 && parts[1].equals(username)) {
+                    userFound = true;
+                    if (parts[2].equals(password)) {
+                        loginAttempts = 0; // reset
+                        loginSuccess = true;
+
+                        JOptionPane.showMessageDialog(this, "Login Successful as " + role);
+                        dispose();
+                        switch (role) {
+                            case "manager" -> new ManagerDashboard(username);
+                            case "staff" -> new StaffDashboard(username);
+                            case "doctor" -> new DoctorDashboard(username);
+                            case "patient" -> new PatientDashboard(username);
                         }
+                        return;
                     }
                 }
-            } catch (IOException e){}
+            }
         }
 
         if (!userFound) {
@@ -415,20 +410,10 @@ class RegistrationFrame extends JFrame {
         // Check if username exists in any role file
         String[] rolesToCheck = {"manager", "staff", "doctor", "patient"};
         for (String r : rolesToCheck) {
-            File file = new File(r + "s.txt");
-            if (file.exists()) {
-                try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        String[] parts = line.split("\\|");
-                        if (parts.length > 2 && parts[1].equalsIgnoreCase(usernameInput)) {
-                            JOptionPane.showMessageDialog(this,
-                                    "Username already exists. Please choose a different username.");
-                            return;
-                        }
-                    }
-                } catch (IOException e) {
-                    JOptionPane.showMessageDialog(this, "Error reading " + r + "s.txt");
+            for (String[] parts : DataStore.get().users(r).rows()) {
+                if (parts.length > 2 && parts[1].equalsIgnoreCase(usernameInput)) {
+                    JOptionPane.showMessageDialog(this,
+                            "Username already exists. Please choose a different username.");
                     return;
                 }
             }
@@ -509,8 +494,13 @@ class RegistrationFrame extends JFrame {
         if (choice != JOptionPane.YES_OPTION) return;
 
         // Generate ID
-        String idPrefix = role.substring(0, 1).toUpperCase();
-        String id = idPrefix + (new Random().nextInt(90000) + 10000);
+        String id;
+        try {
+            id = IdAllocator.next(role.toUpperCase().charAt(0));
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Error allocating a new ID.");
+            return;
+        }
 
         // Build output line
         StringBuilder sb = new StringBuilder();
@@ -536,6 +526,8 @@ class RegistrationFrame extends JFrame {
         // Write to file
         try (FileWriter writer = new FileWriter(role + "s.txt", true)) {
             writer.write(sb.toString() + "\n");
+            writer.flush();
+            DataStore.get().invalidate(role + "s.txt");
             JOptionPane.showMessageDialog(this, capitalize(role)
                     + " Registered Successfully. ID: " + id);
             dispose();
@@ -3,21 +3,19 @@ package assignment;
 import javax.swing.*;
 import javax.swing.table.*;
 import java.awt.*;
-import java.nio.file.*;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.List;
 import java.util.regex.Pattern;
-import java.io.*;
 
 public class ManagerDashboard extends BaseDashboard {
 
     private JTable allAppointmentsTable;
-    private DefaultTableModel allAppointmentsModel;
-    private final Map<String, String[]> appointmentCache = new HashMap<>();
+    private PagedTableModel allAppointmentsModel;
+    private final List<String[]> appointments = new ArrayList<>();
+    private NameIndex appointmentNames = NameIndex.of(Collections.emptyList());
 
     private JTable feedbackTable;
-    private DefaultTableModel feedbackModel;
+    private PagedTableModel feedbackModel;
 
     // Constructor for ManagerDashboard; initializes the dashboard with sidebar and panels.
     public ManagerDashboard(String username) {
@@ -125,10 +123,7 @@ public class ManagerDashboard extends BaseDashboard {
         String[] cols = {"ApptID", "PatientID", "First Name", "Last Name", "Date", "Time",
                 "DoctorID", "Doctor Name", "Specialization", "Shift", "Created On", "Created By", "Status"};
 
-        allAppointmentsModel = new DefaultTableModel(null, cols) {
-            @Override
-            public boolean isCellEditable(int r, int c) { return false; }
-        };
+        allAppointmentsModel = new PagedTableModel(cols);
         allAppointmentsTable = new JTable(allAppointmentsModel);
         allAppointmentsTable.setRowHeight(28);
         allAppointmentsTable.setFillsViewportHeight(true);
@@ -143,13 +138,13 @@ public class ManagerDashboard extends BaseDashboard {
         contentPanel.add(apptPanel, "allAppointments");
 
         applyBtn.addActionListener(e -> applyAppointmentFilter(
-                allAppointmentsModel, appointmentCache,
+                allAppointmentsModel, appointments,
                 nameField.getText().trim(), dateField.getText().trim(), timeField.getText().trim()
         ));
 
         clearBtn.addActionListener(e -> {
             nameField.setText(""); dateField.setText(""); timeField.setText("");
-            applyAppointmentFilter(allAppointmentsModel, appointmentCache, "", "", "");
+            applyAppointmentFilter(allAppointmentsModel, appointments, "", "", "");
         });
 
         // Predictive writing
@@ -157,64 +152,42 @@ public class ManagerDashboard extends BaseDashboard {
         nameField.addKeyListener(new java.awt.event.KeyAdapter() {
             @Override
             public void keyReleased(java.awt.event.KeyEvent e) {
-                Set<String> names = new HashSet<>();
-                for (String[] appt : appointmentCache.values()) {
-                    names.add(nz(appt, 2) + " " + nz(appt, 3)); // patient
-                    names.add(nz(appt, 7)); // doctor
-                }
-                showSuggestions(nameField, namePopup, names);
+                showSuggestions(nameField, namePopup, appointmentNames);
             }
         });
     }
 
     // Loads all appointments from "appointments.txt" into the table and cache.
+    // The table shows the store's rows as they are (columns are fields 0-12), a page at a time.
     private void loadAllAppointments() {
-        allAppointmentsModel.setRowCount(0);
-        appointmentCache.clear();
-
-        Path p = Paths.get("appointments.txt");
-        if (!Files.exists(p)) return;
-
-        try (var br = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] a = line.split(Pattern.quote("|"), -1);
-                if (a.length >= 13) {
-                    appointmentCache.put(a[0], a);
-                    allAppointmentsModel.addRow(new Object[]{
-                            a[0], a[1], nz(a,2), nz(a,3), nz(a,4), nz(a,5),
-                            nz(a,6), nz(a,7), nz(a,8), nz(a,9), nz(a,10), nz(a,11), nz(a,12)
-                    });
-                }
-            }
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Failed to load appointments: " + e.getMessage());
+        appointments.clear();
+        for (String[] a : DataStore.get().table(DataStore.APPOINTMENTS_FILE).rows()) {
+            if (a.length >= 13) appointments.add(a);
+        }
+        allAppointmentsModel.setRows(appointments);
+
+        // Patient and doctor names for the name filter's suggestions
+        List<String> names = new ArrayList<>();
+        for (String[] appt : appointments) {
+            names.add(nz(appt, 2) + " " + nz(appt, 3)); // patient
+            names.add(nz(appt, 7)); // doctor
         }
+        appointmentNames = NameIndex.of(names);
     }
 
     // Filters the appointments table based on patient/doctor name, date, and time.
-    private void applyAppointmentFilter(DefaultTableModel model, Map<String, String[]> cache,
+    private void applyAppointmentFilter(PagedTableModel model, List<String[]> source,
                                         String nameFilter, String dateFilter, String timeFilter) {
-        model.setRowCount(0);
-        for (String[] a : cache.values()) {
-            boolean matches = true;
-
-            if (!nameFilter.isEmpty()) {
+        String name = nameFilter.toLowerCase();
+        model.setRows(source, a -> {
+            if (!name.isEmpty()) {
                 String patientName = (nz(a,2) + " " + nz(a,3)).toLowerCase();
                 String doctorName = nz(a,7).toLowerCase();
-                if (!patientName.contains(nameFilter.toLowerCase()) && !doctorName.contains(nameFilter.toLowerCase()))
-                    matches = false;
-            }
-            if (!dateFilter.isEmpty() && !nz(a,4).equals(dateFilter)) matches = false;
-            if (!timeFilter.isEmpty() && !nz(a,5).equals(timeFilter)) matches = false;
-
-            if (matches) {
-                model.addRow(new Object[]{
-                        a[0], a[1], nz(a,2), nz(a,3), nz(a,4), nz(a,5),
-                        nz(a,6), nz(a,7), nz(a,8), nz(a,9), nz(a,10), nz(a,11), nz(a,12)
-                });
+                if (!patientName.contains(name) && !doctorName.contains(name)) return false;
             }
-        }
+            if (!dateFilter.isEmpty() && !nz(a,4).equals(dateFilter)) return false;
+            return timeFilter.isEmpty() || nz(a,5).equals(timeFilter);
+        });
     }
 
     // ------------------- Feedback Panel -------------------
@@ -241,10 +214,7 @@ public class ManagerDashboard extends BaseDashboard {
         filterPanel.add(clearBtn);
 
         String[] cols = {"Appointment ID", "Doctor ID", "Patient ID", "Rating", "Comments"};
-        feedbackModel = new DefaultTableModel(null, cols) {
-            @Override
-            public boolean isCellEditable(int row, int col) { return false; }
-        };
+        feedbackModel = new PagedTableModel(cols);
         feedbackTable = new JTable(feedbackModel);
         feedbackTable.setRowHeight(28);
         feedbackTable.setFillsViewportHeight(true);
@@ -259,10 +229,10 @@ public class ManagerDashboard extends BaseDashboard {
         loadAllFeedback();
 
         applyBtn.addActionListener(e -> {
-            TableRowSorter<DefaultTableModel> sorter = new TableRowSorter<>(feedbackModel);
+            TableRowSorter<PagedTableModel> sorter = new TableRowSorter<>(feedbackModel);
             feedbackTable.setRowSorter(sorter);
 
-            List<RowFilter<DefaultTableModel, Integer>> filters = new ArrayList<>();
+            List<RowFilter<PagedTableModel, Integer>> filters = new ArrayList<>();
 
             String idText = idField.getText().trim();
             if (!idText.isEmpty()) {
@@ -274,7 +244,7 @@ public class ManagerDashboard extends BaseDashboard {
                 filters.add(RowFilter.regexFilter("^" + selectedRating + "$", 3));
             }
 
-            RowFilter<DefaultTableModel, Integer> compound = RowFilter.andFilter(filters);
+            RowFilter<PagedTableModel, Integer> compound = RowFilter.andFilter(filters);
             sorter.setRowFilter(compound);
         });
 
@@ -293,28 +263,9 @@ public class ManagerDashboard extends BaseDashboard {
     }
 
     // Loads all feedback from "feedback.txt" into the feedback table.
+    // Columns are the first five fields: appointmentId, doctorId, patientId, rating, comments.
     private void loadAllFeedback() {
-        feedbackModel.setRowCount(0);
-        File feedbackFile = new File("feedback.txt");
-        if (!feedbackFile.exists()) return;
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(feedbackFile))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] f = line.split(Pattern.quote("|"), -1);
-                if (f.length >= 5) {
-                    feedbackModel.addRow(new Object[]{
-                            nz(f,0), // appointmentId
-                            nz(f,1), // doctorId
-                            nz(f,2), // patientId
-                            nz(f,3), // rating
-                            nz(f,4)  // comments
-                    });
-                }
-            }
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Error reading feedback: " + e.getMessage());
-        }
+        feedbackModel.setRows(DataStore.get().table(DataStore.FEEDBACK_FILE).rows(), f -> f.length >= 5);
     }
 
     // ------------------- Status Renderer -------------------
@@ -346,17 +297,19 @@ public class ManagerDashboard extends BaseDashboard {
 
     class ReceiptPanel extends JPanel {
         private final JTable table;
-        private final DefaultTableModel model;
+        private final PagedTableModel model;
         private static final String PAYMENTS_FILE = "payments.txt";
+        private NameDirectory names;
+        private JoinIndex joins;
 
         // Constructor: sets up receipts table, buttons, and loads receipt data.
         public ReceiptPanel() {
             setLayout(new BorderLayout());
 
             // Table setup
-            model = new DefaultTableModel(new String[]{
+            model = new PagedTableModel(new String[]{
                     "InvoiceNo", "AppointmentID", "Patient", "Doctor", "Amount", "Method", "Date", "Staff"
-            }, 0);
+            }, this::toReceiptRow);
 
             table = new JTable(model);
             add(new JScrollPane(table), BorderLayout.CENTER);
@@ -374,69 +327,38 @@ public class ManagerDashboard extends BaseDashboard {
             viewBtn.addActionListener(e -> viewReceipt());
         }
 
-        // Loads payment/receipt records from "payments.txt" into the table.
+        // Loads payment/receipt records from "payments.txt" into the table. Names are filled in as rows come
+        // into view, from the shared name dictionaries and the appointment -> record join.
         private void loadReceipts() {
-            model.setRowCount(0);
-            try {
-                List<String> lines = Files.readAllLines(Paths.get(PAYMENTS_FILE));
-                for (String line : lines) {
-                    String[] parts = line.split("\\|");
-                    if (parts.length >= 7) {
-                        String invoiceNo = parts[0];
-                        String apptId = parts[1];
-                        String patientId = parts[2];
-                        String amount = parts[3];
-                        String method = parts[4];
-                        String date = parts[5];
-                        String staff = parts[6];
-
-                        String patientName = getPatientName(patientId);
-                        String doctorName = getDoctorNameByAppt(apptId);
-
-                        model.addRow(new Object[]{invoiceNo, apptId, patientName, doctorName, "RM " + amount, method, date, staff});
-                    }
-                }
-            } catch (IOException e) {
+            DataStore.Table payments = DataStore.get().table(PAYMENTS_FILE);
+            if (!payments.exists()) {
+                model.setRows(Collections.emptyList());
                 JOptionPane.showMessageDialog(this, "Error loading receipts.");
+                return;
             }
+            names = NameDirectory.get();
+            joins = JoinIndex.get();
+            model.setRows(payments.rows(), parts -> parts.length >= 7);
         }
 
-        // Retrieves patient name by ID from "patients.txt"; returns ID if not found.
-        private String getPatientName(String patientId) {
-            try {
-                for (String line : Files.readAllLines(Paths.get("patients.txt"))) {
-                    String[] p = line.split("\\|");
-                    if (p[0].equals(patientId)) return p[3] + " " + p[4];
-                }
-            } catch (IOException e) {}
-            return patientId;
+        // One payment as a receipt row: invoice, appointment, patient name, doctor name, amount, method, date, staff.
+        private Object[] toReceiptRow(String[] parts) {
+            String patientName = names.patientName(parts[2], parts[2]);
+            String doctorName = doctorNameByAppt(parts[1]);
+            return new Object[]{parts[0], parts[1], patientName, doctorName, "RM " + parts[3], parts[4], parts[5], parts[6]};
         }
 
-        // Retrieves doctor name by appointment ID from "appointments_records.txt".
-        private String getDoctorNameByAppt(String apptId) {
-            try {
-                for (String line : Files.readAllLines(Paths.get("appointments_records.txt"))) {
-                    String[] parts = line.split("\\|");
-                    if (parts[0].equals(apptId)) {
-                        String doctorId = parts[2];
-                        return getDoctorName(doctorId);
-                    }
-                }
-            } catch (IOException e) {}
+        // Doctor name for an appointment through its medical record; the doctor ID if the doctor is unknown.
+        private String doctorNameByAppt(String apptId) {
+            List<String[]> records = joins.records(apptId);
+            String[] parts = records.isEmpty() ? null : records.get(0);
+            if (parts != null && parts.length >= 3) {
+                String doctorId = parts[2];
+                return names.doctorName(doctorId, doctorId);
+            }
             return "Unknown Doctor";
         }
 
-        // Retrieves doctor name by ID from "doctors.txt"; returns ID if not found.
-        private String getDoctorName(String doctorId) {
-            try {
-                for (String line : Files.readAllLines(Paths.get("doctors.txt"))) {
-                    String[] d = line.split("\\|");
-                    if (d[0].equals(doctorId)) return d[3] + " " + d[4];
-                }
-            } catch (IOException e) {}
-            return doctorId;
-        }
-
         // Displays a selected receipt in a formatted popup dialog.
         private void viewReceipt() {
             int row = table.getSelectedRow();
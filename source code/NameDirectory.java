@@ -0,0 +1,70 @@
+package assignment;
+
+import java.util.*;
+
+// Shared ID -> "first last" dictionaries for patients and doctors, for screens that label many rows
+// (e.g. the manager's receipts). Each dictionary is built once from its file when the store loads it
+// and is then patched per upsert/delete through the store listener, so a lookup is one map probe
+// instead of a table fetch (and file stat) per row.
+public final class NameDirectory implements DataStore.Listener {
+
+    private static final NameDirectory INSTANCE = new NameDirectory();
+
+    private final Map<String, String> patients = new HashMap<>();
+    private final Map<String, String> doctors = new HashMap<>();
+
+    private NameDirectory() {
+        DataStore.get().addListener(DataStore.PATIENTS_FILE, this);
+        DataStore.get().addListener(DataStore.DOCTORS_FILE, this);
+    }
+
+    // Returns the shared directory, brought up to date with patients.txt and doctors.txt.
+    public static NameDirectory get() {
+        DataStore.get().table(DataStore.PATIENTS_FILE);
+        DataStore.get().table(DataStore.DOCTORS_FILE);
+        return INSTANCE;
+    }
+
+    // ---------------- QUERIES ----------------
+    // Patient's full name, or the fallback when the ID is unknown.
+    public synchronized String patientName(String patientId, String fallback) {
+        String name = patientId == null ? null : patients.get(patientId);
+        return name == null ? fallback : name;
+    }
+
+    // Doctor's full name, or the fallback when the ID is unknown.
+    public synchronized String doctorName(String doctorId, String fallback) {
+        String name = doctorId == null ? null : doctors.get(doctorId);
+        return name == null ? fallback : name;
+    }
+
+    // ---------------- STORE LISTENER ----------------
+    @Override
+    public synchronized void reloaded(DataStore.Table table) {
+        Map<String, String> names = names(table);
+        if (names == null) return;
+        names.clear();
+        for (String[] u : table.rows()) {
+            // first occurrence wins, as with Table.byId
+            if (u.length >= 5) names.putIfAbsent(u[0], DataStore.fullName(u, null));
+        }
+    }
+
+    @Override
+    public synchronized void changed(DataStore.Table table, String[] oldRow, String[] newRow) {
+        Map<String, String> names = names(table);
+        if (names == null) return;
+        String id = (newRow != null ? newRow : oldRow)[0];
+        String name = DataStore.fullName(table.byId(id), null);
+        if (name == null) names.remove(id);
+        else names.put(id, name);
+    }
+
+    private Map<String, String> names(DataStore.Table table) {
+        return switch (table.fileName()) {
+            case DataStore.PATIENTS_FILE -> patients;
+            case DataStore.DOCTORS_FILE -> doctors;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,179 @@
+package assignment;
+
+import java.util.*;
+import java.util.function.Function;
+
+// Search index over a set of names for the autocomplete fields. Names are kept in one array sorted by
+// their lower-case form, so names starting with the typed text are a binary search plus a walk; names
+// containing it elsewhere come from trigram postings (each three-letter run of a name -> the names that
+// have it, in sorted order). A query walks the rarest trigram of the text and checks those names only,
+// stopping once it has enough, so suggestions cost about the same with ten names or half a million.
+// The shared indices over patients, doctors, treatments and medicines are built on first use and dropped
+// whenever their file is reloaded or changed, to be rebuilt by the next query.
+public final class NameIndex {
+
+    private static final Shared PATIENTS = new Shared(DataStore.PATIENTS_FILE, p -> DataStore.fullName(p, null));
+    private static final Shared DOCTORS = new Shared(DataStore.DOCTORS_FILE, d -> DataStore.fullName(d, null));
+    private static final Shared TREATMENTS = new Shared(DataStore.TREATMENTS_FILE, t -> t.length >= 3 ? t[1] : null);
+    private static final Shared MEDICINES = new Shared(DataStore.MEDICINES_FILE, m -> m.length >= 2 ? m[1] : null);
+
+    private static final int[] NONE = new int[0];
+
+    private final String[] names;   // distinct names, sorted by key
+    private final String[] keys;    // lower-case names, same order
+    private final Map<Long, int[]> trigrams = new HashMap<>();
+
+    private NameIndex(Collection<String> source) {
+        TreeMap<String, String> sorted = new TreeMap<>();
+        for (String s : source) {
+            if (s == null || s.trim().isEmpty()) continue;
+            String name = s.trim();
+            // sorted by lower-case form; exact duplicates are kept once
+            sorted.putIfAbsent(name.toLowerCase() + '\0' + name, name);
+        }
+        names = new String[sorted.size()];
+        keys = new String[sorted.size()];
+        // growing postings, with the number of IDs used kept in slot 0
+        Map<Long, int[]> postings = new HashMap<>();
+        int i = 0;
+        for (String name : sorted.values()) {
+            names[i] = name;
+            keys[i] = name.toLowerCase();
+            for (int j = 0; j + 3 <= keys[i].length(); j++) {
+                long t = trigram(keys[i], j);
+                int[] ids = postings.get(t);
+                if (ids == null) postings.put(t, ids = new int[4]);
+                else if (ids[0] > 0 && ids[ids[0]] == i) continue;   // trigram repeats within the name
+                if (ids[0] + 1 == ids.length) postings.put(t, ids = Arrays.copyOf(ids, ids.length * 2));
+                ids[++ids[0]] = i;
+            }
+            i++;
+        }
+        for (Map.Entry<Long, int[]> e : postings.entrySet()) {
+            int[] ids = e.getValue();
+            trigrams.put(e.getKey(), Arrays.copyOfRange(ids, 1, ids[0] + 1));
+        }
+    }
+
+    // Index over the given names (blanks are skipped, duplicates kept once).
+    public static NameIndex of(Collection<String> names) {
+        return new NameIndex(names);
+    }
+
+    // Shared index of patient full names from patients.txt.
+    public static NameIndex patients() {
+        return PATIENTS.get();
+    }
+
+    // Shared index of doctor full names from doctors.txt.
+    public static NameIndex doctors() {
+        return DOCTORS.get();
+    }
+
+    // Shared index of treatment names from treatments.txt.
+    public static NameIndex treatments() {
+        return TREATMENTS.get();
+    }
+
+    // Shared index of medicine names from medicines.txt.
+    public static NameIndex medicines() {
+        return MEDICINES.get();
+    }
+
+    // ---------------- QUERIES ----------------
+    // Up to limit names for the typed text (any case): names starting with it first, then, for three or
+    // more letters, names containing it further in; each group in alphabetical order. Empty for blank text.
+    public List<String> suggest(String text, int limit) {
+        List<String> out = new ArrayList<>();
+        String q = text == null ? "" : text.trim().toLowerCase();
+        if (q.isEmpty() || limit <= 0) return out;
+
+        for (int i = lowerBound(q); i < keys.length && keys[i].startsWith(q) && out.size() < limit; i++) {
+            out.add(names[i]);
+        }
+        if (q.length() < 3 || out.size() >= limit) return out;
+
+        for (int id : rarest(q)) {
+            if (!keys[id].startsWith(q) && keys[id].contains(q)) {
+                out.add(names[id]);
+                if (out.size() >= limit) break;
+            }
+        }
+        return out;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    // Postings of the least common trigram of the text; every name containing the text is among them.
+    private int[] rarest(String q) {
+        int[] best = null;
+        for (int j = 0; j + 3 <= q.length(); j++) {
+            int[] ids = trigrams.getOrDefault(trigram(q, j), NONE);
+            if (best == null || ids.length < best.length) best = ids;
+            if (best.length == 0) break;
+        }
+        return best;
+    }
+
+    // First position whose key is >= q.
+    private int lowerBound(String q) {
+        int lo = 0, hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].compareTo(q) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static long trigram(String s, int at) {
+        return ((long) s.charAt(at) << 32) | ((long) s.charAt(at + 1) << 16) | s.charAt(at + 2);
+    }
+
+    // ---------------- SHARED INDICES ----------------
+    // Index over one name per row of a store file, rebuilt lazily after the file changes.
+    private static final class Shared implements DataStore.Listener {
+        private final String fileName;
+        private final Function<String[], String> name;
+        private NameIndex index;
+        private long generation;   // moves with every change, so an index built from older rows is not kept
+
+        Shared(String fileName, Function<String[], String> name) {
+            this.fileName = fileName;
+            this.name = name;
+            DataStore.get().addListener(fileName, this);
+        }
+
+        NameIndex get() {
+            // Refresh through the store first (store lock before ours), which may drop the index.
+            DataStore.Table table = DataStore.get().table(fileName);
+            long seen;
+            synchronized (this) {
+                if (index != null) return index;
+                seen = generation;
+            }
+            // Built outside our lock: rows() takes the table lock, which a write holds while calling changed().
+            List<String> names = new ArrayList<>();
+            for (String[] row : table.rows()) names.add(name.apply(row));
+            NameIndex built = new NameIndex(names);
+            synchronized (this) {
+                if (generation == seen) index = built;
+                return built;
+            }
+        }
+
+        @Override
+        public synchronized void reloaded(DataStore.Table table) {
+            index = null;
+            generation++;
+        }
+
+        @Override
+        public synchronized void changed(DataStore.Table table, String[] oldRow, String[] newRow) {
+            index = null;
+            generation++;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package assignment;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.*;
+import java.util.function.Predicate;
+
+// Read-only table model over rows taken straight from the data store, used by the large grids in place
+// of DefaultTableModel + addRow. Loading keeps only a reference per source row (no per-cell copy, one
+// event for the whole load); the cells shown are worked out from the source row when the table asks for
+// them, a page of rows at a time, and only the last few pages used are kept. Opening a grid over a
+// million appointments is then one array copy, and memory for cells follows what has been scrolled into view.
+public class PagedTableModel extends AbstractTableModel {
+
+    // Turns one source row into the cells of a table row. Missing trailing cells show as "".
+    public interface Cells {
+        Object[] of(String[] source);
+    }
+
+    private static final int PAGE_SIZE = 256;
+    private static final int PAGES_KEPT = 8;
+
+    private String[] columns;
+    private final Cells cells;
+    private final List<String[]> rows = new ArrayList<>();
+    private final Map<Integer, Object[][]> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Object[][]> eldest) {
+            return size() > PAGES_KEPT;
+        }
+    };
+
+    public PagedTableModel(String[] columns, Cells cells) {
+        this.columns = columns.clone();
+        this.cells = cells;
+    }
+
+    // Model whose cells are the source row's own fields, in order.
+    public PagedTableModel(String[] columns) {
+        this(columns, source -> source);
+    }
+
+    // ---------------- LOADING ----------------
+    // Shows the given rows, in order.
+    public void setRows(Collection<String[]> source) {
+        setRows(source, null);
+    }
+
+    // Shows the rows that pass the filter (all when the filter is null), in order.
+    public void setRows(Collection<String[]> source, Predicate<String[]> keep) {
+        rows.clear();
+        if (keep == null) rows.addAll(source);
+        else for (String[] r : source) if (keep.test(r)) rows.add(r);
+        pages.clear();
+        fireTableDataChanged();
+    }
+
+    // Replaces the column headers (and empties the table), e.g. when switching between user roles.
+    public void setColumns(String[] columns) {
+        this.columns = columns.clone();
+        rows.clear();
+        pages.clear();
+        fireTableStructureChanged();
+    }
+
+    // Replaces the source row shown at the given index.
+    public void setRow(int row, String[] source) {
+        rows.set(row, source);
+        pages.remove(row / PAGE_SIZE);
+        fireTableRowsUpdated(row, row);
+    }
+
+    public void removeRow(int row) {
+        rows.remove(row);
+        pages.clear();
+        fireTableRowsDeleted(row, row);
+    }
+
+    // Source row behind a table row.
+    public String[] source(int row) {
+        return rows.get(row);
+    }
+
+    // ---------------- TABLE MODEL ----------------
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Object[] r = page(row / PAGE_SIZE)[row % PAGE_SIZE];
+        return column < r.length && r[column] != null ? r[column] : "";
+    }
+
+    // Cells of one page, computed on first use and kept while the page is among the most recently used.
+    private Object[][] page(int index) {
+        Object[][] page = pages.get(index);
+        if (page == null) {
+            int from = index * PAGE_SIZE, to = Math.min(rows.size(), from + PAGE_SIZE);
+            page = new Object[to - from][];
+            for (int i = from; i < to; i++) page[i - from] = cells.of(rows.get(i));
+            pages.put(index, page);
+        }
+        return page;
+    }
+}
@@ -5,16 +5,12 @@ import javax.swing.border.EmptyBorder;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.*;
-import java.io.*;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.*;
 import java.time.*;
 import java.time.format.*;
 import java.util.*;
 import java.util.List;
-import java.util.regex.Pattern;
 
 // Patient dashboard GUI for displaying patient info, appointments, payments, and feedback
 public class PatientDashboard extends BaseDashboard {
@@ -164,37 +160,28 @@ public class PatientDashboard extends BaseDashboard {
         String patientId = getField(patientData, 0); 
         model.setRowCount(0); // clear old data
 
-        Path path = Paths.get("appointments_records.txt");
-        if (!Files.exists(path)) return;
-
-        try (BufferedReader br = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] fields = line.split("\\|", -1);
-                if (fields.length >= 11 && fields[1].equals(patientId)) {
-
-                    // Split medicine info (index 9)
-                    String[] medParts = fields[9].split("~", -1);
-                    String medName = medParts.length > 0 ? medParts[0] : "-";
-                    String medFreq = medParts.length > 1 ? medParts[1] : "-";
-                    String medMeal = medParts.length > 2 ? medParts[2] : "-";
-
-                    // Add row to table
-                    model.addRow(new Object[]{
-                            fields[0],  // Appointment ID
-                            fields[3],  // Doctor Name
-                            fields[4],  // Date
-                            fields[5],  // Time
-                            fields[7],  // Status
-                            medName,    // Medicine
-                            medFreq,    // Frequency
-                            medMeal,    // Meal
-                            fields[8]   // Treatments
-                    });
-                }
+        for (String[] fields : DataStore.get().table(APPT_RECORDS_FILE).lookup(1, patientId)) {
+            if (fields.length >= 11) {
+
+                // Split medicine info (index 9)
+                String[] medParts = fields[9].split("~", -1);
+                String medName = medParts.length > 0 ? medParts[0] : "-";
+                String medFreq = medParts.length > 1 ? medParts[1] : "-";
+                String medMeal = medParts.length > 2 ? medParts[2] : "-";
+
+                // Add row to table
+                model.addRow(new Object[]{
+                        fields[0],  // Appointment ID
+                        fields[3],  // Doctor Name
+                        fields[4],  // Date
+                        fields[5],  // Time
+                        fields[7],  // Status
+                        medName,    // Medicine
+                        medFreq,    // Frequency
+                        medMeal,    // Meal
+                        fields[8]   // Treatments
+                });
             }
-        } catch (IOException ex) {
-            JOptionPane.showMessageDialog(this, "Failed to load appointments: " + ex.getMessage());
         }
     }
         
@@ -381,33 +368,17 @@ public class PatientDashboard extends BaseDashboard {
     
     // Finds a patient record by username
     private String[] findPatientByUsername(String username) {
-        Path p = Paths.get(PATIENTS_FILE);
-        if (!Files.exists(p)) return null;
-        try (BufferedReader br = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
-            String ln;
-            while ((ln = br.readLine()) != null) {
-                String[] parts = ln.split(Pattern.quote("|"), -1);
-                if (parts.length >= 13 && parts[1].equalsIgnoreCase(username)) return parts;
-            }
-        } catch (IOException ex) {}
+        for (String[] parts : DataStore.get().table(PATIENTS_FILE).rows()) {
+            if (parts.length >= 13 && parts[1].equalsIgnoreCase(username)) return parts;
+        }
         return null;
     }
 
     // Counts the number of appointments for the patient
     private int countAppointments() {
         if (patientData == null) return 0;
-        Path p = Paths.get(APPOINTMENTS_FILE);
-        if (!Files.exists(p)) return 0;
-        int cnt = 0;
         String patientId = getField(patientData,0);
-        try (BufferedReader br = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
-            String ln;
-            while ((ln = br.readLine()) != null) {
-                String[] a = ln.split(Pattern.quote("|"), -1);
-                if (a.length >= 2 && getField(a,1).equals(patientId)) cnt++;
-            }
-        } catch (IOException ex) {}
-        return cnt;
+        return DataStore.get().table(APPOINTMENTS_FILE).lookup(1, patientId).size();
     }
 
     // Parses date and time strings into a LocalDateTime object
@@ -460,16 +431,10 @@ public class PatientDashboard extends BaseDashboard {
     private List<String[]> fetchUpcomingAppointments(int limit) {
         List<String[]> out = new ArrayList<>();
         if (patientData == null) return out;
-        Path p = Paths.get(APPOINTMENTS_FILE);
-        if (!Files.exists(p)) return out;
         String patientId = getField(patientData,0);
-        try (BufferedReader br = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
-            String ln;
-            while ((ln = br.readLine()) != null) {
-                String[] a = ln.split(Pattern.quote("|"), -1);
-                if (a.length >= 2 && getField(a,1).equals(patientId) && !isAppointmentPastByDatetime(a)) out.add(a);
-            }
-        } catch (IOException ex) {}
+        for (String[] a : DataStore.get().table(APPOINTMENTS_FILE).lookup(1, patientId)) {
+            if (!isAppointmentPastByDatetime(a)) out.add(a);
+        }
         out.sort(Comparator.comparing(a -> {
             LocalDateTime dt = parseAppointmentDateTime(getField(a,4), getField(a,5));
             return dt == null ? LocalDateTime.MAX : dt;
@@ -482,15 +447,8 @@ public class PatientDashboard extends BaseDashboard {
     private List<String[]> fetchRecentAppointments(int limit) {
         List<String[]> out = new ArrayList<>();
         if (patientData == null) return out;
-        Path p = Paths.get(APPOINTMENTS_FILE);
-        if (!Files.exists(p)) return out;
         String patientId = getField(patientData,0);
-        try (BufferedReader br = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
-            String ln; while ((ln = br.readLine()) != null) {
-                String[] a = ln.split(Pattern.quote("|"), -1);
-                if (a.length >= 2 && getField(a,1).equals(patientId)) out.add(a);
-            }
-        } catch (IOException ex) {}
+        out.addAll(DataStore.get().table(APPOINTMENTS_FILE).lookup(1, patientId));
         out.sort((x,y) -> {
             LocalDateTime dx = parseAppointmentDateTime(getField(x,4), getField(x,5));
             LocalDateTime dy = parseAppointmentDateTime(getField(y,4), getField(y,5));
@@ -513,20 +471,15 @@ public class PatientDashboard extends BaseDashboard {
     private List<Payment> loadPaymentsForPatient() {
         List<Payment> out = new ArrayList<>();
         if (patientData == null) return out;
-        Path p = Paths.get(PAYMENTS_FILE);
-        if (!Files.exists(p)) return out;
         String patientId = getField(patientData,0);
-        try (BufferedReader br = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
-            String ln; while ((ln = br.readLine()) != null) {
-                String[] a = ln.split(Pattern.quote("|"), -1);
-                if (a.length >= 4 && getField(a,2).equals(patientId)) {
-                    Payment pay = new Payment(); pay.id = getField(a,0); pay.appointmentId = getField(a,1); getField(a,2);
-                    try { pay.amount = Double.parseDouble(getField(a,3)); } catch (NumberFormatException ex) { pay.amount = 0d; }
-                    pay.method = getField(a,4); pay.timestamp = getField(a,5);
-                    out.add(pay);
-                }
+        for (String[] a : DataStore.get().table(PAYMENTS_FILE).lookup(2, patientId)) {
+            if (a.length >= 4) {
+                Payment pay = new Payment(); pay.id = getField(a,0); pay.appointmentId = getField(a,1); getField(a,2);
+                try { pay.amount = Double.parseDouble(getField(a,3)); } catch (NumberFormatException ex) { pay.amount = 0d; }
+                pay.method = getField(a,4); pay.timestamp = getField(a,5);
+                out.add(pay);
             }
-        } catch (IOException ex) {}
+        }
         return out;
     }
 
@@ -541,25 +494,18 @@ public class PatientDashboard extends BaseDashboard {
     private List<ApptRecord> loadAppointmentRecordsForPatient() {
         List<ApptRecord> out = new ArrayList<>();
         if (patientData == null) return out;
-        Path p = Paths.get(APPT_RECORDS_FILE);
-        if (!Files.exists(p)) return out;
         String patientId = getField(patientData,0);
-        try (BufferedReader br = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
-            String ln; while ((ln = br.readLine()) != null) {
-                String[] a = ln.split(Pattern.quote("|"), -1);
-                if (a.length >= 2 && getField(a,1).equals(patientId)) {
-                    ApptRecord r = new ApptRecord();
-                    r.appointmentId = getField(a,0); getField(a,1); getField(a,2);
-                    r.date = getField(a,4); r.time = getField(a,5);
-                    try { r.amount = Double.parseDouble(getField(a,6)); } catch (NumberFormatException ex) { r.amount = 0d; }
-                    r.treatments = a.length >= 8 ? getField(a,7) : "";
-                    r.feedback = a.length >= 9 ? getField(a,8) : "";
-                    r.medicines = a.length >= 10 ? getField(a,9) : "";
-                    r.closedAt = a.length >= 11 ? getField(a,10) : "";
-                    out.add(r);
-                }
-            }
-        } catch (IOException ex) {}
+        for (String[] a : DataStore.get().table(APPT_RECORDS_FILE).lookup(1, patientId)) {
+            ApptRecord r = new ApptRecord();
+            r.appointmentId = getField(a,0); getField(a,1); getField(a,2);
+            r.date = getField(a,4); r.time = getField(a,5);
+            try { r.amount = Double.parseDouble(getField(a,6)); } catch (NumberFormatException ex) { r.amount = 0d; }
+            r.treatments = a.length >= 8 ? getField(a,7) : "";
+            r.feedback = a.length >= 9 ? getField(a,8) : "";
+            r.medicines = a.length >= 10 ? getField(a,9) : "";
+            r.closedAt = a.length >= 11 ? getField(a,10) : "";
+            out.add(r);
+        }
         return out;
     }
 
@@ -6,7 +6,6 @@ import java.awt.*;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
-import java.util.regex.Pattern;
 
 public class PatientFeedback extends JPanel {
     private static final String FEEDBACK_FILE = "feedback.txt";
@@ -86,61 +85,37 @@ public class PatientFeedback extends JPanel {
     // Loads appointments that are awaiting feedback for this patient
     private void loadAwaitingAppointments() {
         awaitingModel.setRowCount(0);
-        Path p = Paths.get("appointments.txt");
-        if (!Files.exists(p)) {
-            addPlaceholderRow(awaitingModel, "No appointments awaiting feedback");
-            return;
-        }
         boolean found = false;
-        try (BufferedReader br = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
-            String ln;
-            while ((ln = br.readLine()) != null) {
-                String[] a = ln.split(Pattern.quote("|"), -1);
-                if (a.length >= 8 && a[1].equals(patientId)) {
-                    String apptId = a[0];
-                    if (!feedbackExists(apptId)) {
-                        awaitingModel.addRow(new Object[]{apptId, a[4], a[7], "Give"});
-                        found = true;
-                    }
+        for (String[] a : DataStore.get().table(DataStore.APPOINTMENTS_FILE).lookup(1, patientId)) {
+            if (a.length >= 8) {
+                String apptId = a[0];
+                if (!feedbackExists(apptId)) {
+                    awaitingModel.addRow(new Object[]{apptId, a[4], a[7], "Give"});
+                    found = true;
                 }
             }
-        } catch (IOException ignored) {}
+        }
         if (!found) addPlaceholderRow(awaitingModel, "No appointments awaiting feedback");
     }
 
     // Checks if feedback already exists for a given appointment
     private boolean feedbackExists(String apptId) {
-        Path p = Paths.get(FEEDBACK_FILE);
-        if (!Files.exists(p)) return false;
-        try (BufferedReader br = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
-            String ln;
-            while ((ln = br.readLine()) != null) {
-                String[] f = ln.split(Pattern.quote("|"), -1);
-                if (f.length >= 5 && f[0].equals(apptId)) return true; // format updated
-            }
-        } catch (IOException ignored) {}
+        for (String[] f : DataStore.get().table(FEEDBACK_FILE).lookup(0, apptId)) {
+            if (f.length >= 5) return true; // format updated
+        }
         return false;
     }
 
     // Loads past feedback submitted by this patient
     private void loadPastFeedback() {
         pastModel.setRowCount(0);
-        Path p = Paths.get(FEEDBACK_FILE);
-        if (!Files.exists(p)) {
-            pastModel.addRow(new Object[]{"No feedback given", "", ""});
-            return;
-        }
         boolean found = false;
-        try (BufferedReader br = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
-            String ln;
-            while ((ln = br.readLine()) != null) {
-                String[] f = ln.split(Pattern.quote("|"), -1);
-                if (f.length >= 5 && f[2].equals(patientId)) {
-                    pastModel.addRow(new Object[]{f[0], f[3], f[4]});
-                    found = true;
-                }
+        for (String[] f : DataStore.get().table(FEEDBACK_FILE).lookup(2, patientId)) {
+            if (f.length >= 5) {
+                pastModel.addRow(new Object[]{f[0], f[3], f[4]});
+                found = true;
             }
-        } catch (IOException ignored) {}
+        }
         if (!found) pastModel.addRow(new Object[]{"No feedback given", "", ""});
     }
 
@@ -151,19 +126,8 @@ public class PatientFeedback extends JPanel {
         if (rating == 0) rating = 5;
 
         String doctorId = "";
-        Path apptFile = Paths.get("appointments.txt");
-        if (Files.exists(apptFile)) {
-            try (BufferedReader br = Files.newBufferedReader(apptFile, StandardCharsets.UTF_8)) {
-                String ln;
-                while ((ln = br.readLine()) != null) {
-                    String[] a = ln.split(Pattern.quote("|"), -1);
-                    if (a.length >= 7 && a[0].equals(apptId)) {
-                        doctorId = a[6];
-                        break;
-                    }
-                }
-            } catch (IOException ignored) {}
-        }
+        String[] appt = DataStore.get().table(DataStore.APPOINTMENTS_FILE).byId(apptId);
+        if (appt != null && appt.length >= 7) doctorId = appt[6];
 
         try (BufferedWriter bw = Files.newBufferedWriter(Paths.get(FEEDBACK_FILE),
                 StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
@@ -172,6 +136,7 @@ public class PatientFeedback extends JPanel {
         } catch (IOException ex) {
             JOptionPane.showMessageDialog(this, "Failed to save feedback: " + ex.getMessage());
         }
+        DataStore.get().invalidate(FEEDBACK_FILE);
     }
 
     // Adds a placeholder row to a table model when there is no data
@@ -0,0 +1,292 @@
+package assignment;
+
+import java.util.*;
+
+// Typo-tolerant patient lookup for the front desk: matches the typed text against each patient's name,
+// ID and phone number, so "Jhon Smtih" still finds John Smith. Every term is cut into three-character
+// runs (each word padded as "  word ", so word starts and ends count too), and postings kept in one
+// array, grouped by run, list the patients that have each run. A query counts, per patient, how many
+// of its runs they share and scores everyone sharing all of them, or all runs inside the typed words (as
+// any term containing the text does), then the next best-sharing up to a few thousand in all: a term
+// equal to, starting with or containing the text scores highest; otherwise each typed word is paired
+// with the patient's closest word by edit distance (adjacent swaps count as one edit) and the
+// similarities are averaged. Near misses are only listed when no patient has a term containing the text
+// as typed. The index is built from patients.txt on first use and dropped whenever the file changes,
+// to be rebuilt by the next query.
+public final class PatientSearch implements DataStore.Listener {
+
+    private static final double MIN_SIMILARITY = 0.6;   // weaker near misses are left out
+    private static final int CANDIDATES = 2000;         // patients scored per query, by shared runs
+    private static final int RUNS = 1 << 18;            // three six-bit character codes
+
+    private static final PatientSearch INSTANCE = new PatientSearch();
+
+    private Index index;
+    private long generation;   // moves with every change, so an index built from older rows is not kept
+
+    private PatientSearch() {
+        DataStore.get().addListener(DataStore.PATIENTS_FILE, this);
+    }
+
+    public static PatientSearch get() {
+        return INSTANCE;
+    }
+
+    // ---------------- QUERIES ----------------
+    // Patient rows (fields as in patients.txt) best matching the text, best first, at most limit of them.
+    public List<String[]> find(String text, int limit) {
+        String q = normalize(text);
+        // a phone number is looked up by its digits, however it was typed
+        if (!q.isEmpty() && q.chars().noneMatch(Character::isLetter)) q = digits(q);
+        if (q.isEmpty() || limit <= 0) return new ArrayList<>();
+        return index().find(q, limit);
+    }
+
+    // ---------------- STORE LISTENER ----------------
+    @Override
+    public synchronized void reloaded(DataStore.Table table) {
+        index = null;
+        generation++;
+    }
+
+    @Override
+    public synchronized void changed(DataStore.Table table, String[] oldRow, String[] newRow) {
+        index = null;
+        generation++;
+    }
+
+    private Index index() {
+        // Refresh through the store first (store lock before ours), which may drop the index.
+        DataStore.Table table = DataStore.get().table(DataStore.PATIENTS_FILE);
+        long seen;
+        synchronized (this) {
+            if (index != null) return index;
+            seen = generation;
+        }
+        // Built outside our lock: rows() takes the table lock, which a write holds while calling changed().
+        Index built = new Index(table.rows());
+        synchronized (this) {
+            if (generation == seen) index = built;
+            return built;
+        }
+    }
+
+    // ---------------- INDEX ----------------
+    private static final class Index {
+        private final List<String[]> rows = new ArrayList<>();
+        private final List<String[]> terms = new ArrayList<>();   // per patient: name words, full name, ID, phone
+        private final int[] starts = new int[RUNS + 1];   // postings of run g are ids[starts[g] .. starts[g + 1])
+        private final int[] ids;
+
+        Index(List<String[]> patients) {
+            // First pass: each patient's distinct runs, kept in one flat array and counted per run.
+            int[] flat = new int[1024], ends = new int[1024];
+            int n = 0;
+            for (String[] p : patients) {
+                if (p.length < 5) continue;
+                int id = rows.size();
+                String[] t = termsOf(p);
+                rows.add(p);
+                terms.add(t);
+                for (int g : patientGrams(t)) {
+                    starts[g + 1]++;
+                    if (n == flat.length) flat = Arrays.copyOf(flat, n * 2);
+                    flat[n++] = g;
+                }
+                if (id == ends.length) ends = Arrays.copyOf(ends, id * 2);
+                ends[id] = n;
+            }
+
+            // Second pass: lay the postings out in run order, each filled in patient order.
+            for (int g = 0; g < RUNS; g++) starts[g + 1] += starts[g];
+            int[] cursor = Arrays.copyOf(starts, RUNS);
+            ids = new int[n];
+            for (int id = 0, i = 0; id < rows.size(); id++) {
+                for (; i < ends[id]; i++) ids[cursor[flat[i]]++] = id;
+            }
+        }
+
+        List<String[]> find(String q, int limit) {
+            int[] qGrams = grams(q);
+            int[] inner = innerGrams(q);
+            int[] shared = new int[rows.size()];
+            int[] sharedInner = new int[rows.size()];
+            int[] touched = new int[rows.size()];
+            int n = 0;
+            for (int g : qGrams) {
+                boolean in = Arrays.binarySearch(inner, g) >= 0;
+                for (int i = starts[g]; i < starts[g + 1]; i++) {
+                    if (shared[ids[i]]++ == 0) touched[n++] = ids[i];
+                    if (in) sharedInner[ids[i]]++;
+                }
+            }
+            // Touched patients ordered by shared count, highest first (a counting sort; ties stay in row order).
+            int all = qGrams.length;
+            int[] byCount = new int[all + 1];
+            for (int i = 0; i < n; i++) byCount[shared[touched[i]]]++;
+            int[] next = new int[all + 1];   // next free slot in 'order' for each count
+            for (int c = all, pos = 0; c >= 1; c--) {
+                next[c] = pos;
+                pos += byCount[c];
+            }
+            int[] order = new int[n];
+            for (int i = 0; i < n; i++) order[next[shared[touched[i]]]++] = touched[i];
+
+            // Everyone sharing every run is scored, and so is everyone sharing every run inside the typed
+            // words, so a term containing the text ("goldsmith" for "smith") is never cut off. Text with no
+            // word of three or more characters has no inner runs, and a term containing it mid-word may be.
+            // Besides those, the best-sharing ones while fewer than CANDIDATES are scored and at least a
+            // quarter of the text's runs are shared.
+            int minShared = Math.max(1, all / 4);
+            String[] words = q.split(" ");
+            List<Integer> hits = new ArrayList<>();
+            Map<Integer, Double> scores = new HashMap<>();
+            double top = 0;
+            for (int i = 0; i < n; i++) {
+                int id = order[i];
+                boolean holdsText = shared[id] == all || (inner.length > 0 && sharedInner[id] == inner.length);
+                if (!holdsText && (i >= CANDIDATES || shared[id] < minShared)) continue;
+                double score = score(q, words, terms.get(id));
+                if (score >= MIN_SIMILARITY) {
+                    scores.put(id, score);
+                    hits.add(id);
+                    top = Math.max(top, score);
+                }
+            }
+            // when some term holds the text as typed, near misses are only noise
+            if (top >= 1) hits.removeIf(id -> scores.get(id) < 1);
+            hits.sort((a, b) -> {
+                int c = Double.compare(scores.get(b), scores.get(a));
+                return c != 0 ? c : DataStore.fullName(rows.get(a), "").compareToIgnoreCase(DataStore.fullName(rows.get(b), ""));
+            });
+            List<String[]> out = new ArrayList<>();
+            for (int id : hits.subList(0, Math.min(limit, hits.size()))) out.add(rows.get(id));
+            return out;
+        }
+
+        // 2 for a term equal to the text, 1.5 for one starting with it, 1 for one containing it; otherwise
+        // the mean, over the typed words, of each word's similarity to its closest term (0 - 1).
+        private static double score(String q, String[] words, String[] terms) {
+            double best = 0;
+            for (String t : terms) {
+                if (t.isEmpty()) continue;
+                if (t.equals(q)) return 2;
+                if (t.startsWith(q)) best = Math.max(best, 1.5);
+                else if (t.contains(q)) best = Math.max(best, 1);
+            }
+            if (best > 0) return best;
+
+            double sum = 0;
+            for (String w : words) {
+                double closest = 0;
+                for (String t : terms) {
+                    if (t.isEmpty() || t.indexOf(' ') >= 0) continue;   // full name: its words are terms too
+                    closest = Math.max(closest, similarity(w, t));
+                }
+                sum += closest;
+            }
+            return sum / words.length;
+        }
+
+        // Distinct runs over a patient's terms (the full name adds none beyond its words).
+        private static int[] patientGrams(String[] terms) {
+            StringBuilder b = new StringBuilder();
+            for (String t : terms) {
+                if (t.indexOf(' ') < 0) b.append(t).append(' ');
+            }
+            return grams(b.toString());
+        }
+
+        private static String[] termsOf(String[] p) {
+            List<String> t = new ArrayList<>();
+            String name = normalize(p[3] + " " + p[4]);
+            for (String w : name.split(" ")) if (!w.isEmpty()) t.add(w);
+            t.add(name);
+            t.add(normalize(p[0]));
+            if (p.length > 9) t.add(digits(p[9]));   // contact number
+            return t.toArray(new String[0]);
+        }
+    }
+
+    // ---------------- HELPERS ----------------
+    // Lower case, letters, digits and single spaces only.
+    private static String normalize(String s) {
+        if (s == null) return "";
+        StringBuilder b = new StringBuilder(s.length());
+        for (char c : s.toLowerCase().toCharArray()) {
+            if (Character.isLetterOrDigit(c)) b.append(c);
+            else if (Character.isWhitespace(c) && b.length() > 0 && b.charAt(b.length() - 1) != ' ') b.append(' ');
+        }
+        return b.toString().trim();
+    }
+
+    private static String digits(String s) {
+        StringBuilder b = new StringBuilder();
+        for (char c : s.toCharArray()) if (Character.isDigit(c)) b.append(c);
+        return b.toString();
+    }
+
+    // Distinct three-character runs of each word padded as "  word ", packed into 18-bit ints.
+    private static int[] grams(String s) {
+        int[] out = new int[s.length() * 3 + 3];
+        int n = 0;
+        for (String w : s.split(" ")) {
+            if (w.isEmpty()) continue;
+            String p = "  " + w + " ";
+            for (int i = 0; i + 3 <= p.length(); i++) {
+                out[n++] = (code(p.charAt(i)) << 12) | (code(p.charAt(i + 1)) << 6) | code(p.charAt(i + 2));
+            }
+        }
+        int[] sorted = Arrays.copyOf(out, n);
+        Arrays.sort(sorted);
+        int d = 0;
+        for (int i = 0; i < n; i++) if (d == 0 || sorted[d - 1] != sorted[i]) sorted[d++] = sorted[i];
+        return Arrays.copyOf(sorted, d);
+    }
+
+    // Distinct runs lying wholly inside the words (no padding), sorted; every term containing the text has them.
+    private static int[] innerGrams(String s) {
+        int[] out = new int[s.length()];
+        int n = 0;
+        for (String w : s.split(" ")) {
+            for (int i = 0; i + 3 <= w.length(); i++) {
+                out[n++] = (code(w.charAt(i)) << 12) | (code(w.charAt(i + 1)) << 6) | code(w.charAt(i + 2));
+            }
+        }
+        int[] sorted = Arrays.copyOf(out, n);
+        Arrays.sort(sorted);
+        int d = 0;
+        for (int i = 0; i < n; i++) if (d == 0 || sorted[d - 1] != sorted[i]) sorted[d++] = sorted[i];
+        return Arrays.copyOf(sorted, d);
+    }
+
+    // Six-bit code of a character: space, a-z and 0-9 each have their own; anything else shares one of
+    // the rest, which at worst adds candidates that scoring then turns away.
+    private static int code(char c) {
+        if (c == ' ') return 0;
+        if (c >= 'a' && c <= 'z') return 1 + c - 'a';
+        if (c >= '0' && c <= '9') return 27 + c - '0';
+        return 37 + c % 27;
+    }
+
+    // 1 - edit distance / longer length, where an edit is an insert, delete, change or adjacent swap.
+    private static double similarity(String a, String b) {
+        int n = a.length(), m = b.length();
+        if (n == 0 || m == 0) return 0;
+        // rows i - 2, i - 1 and i of the distance table
+        int[] before = new int[m + 1], prev = new int[m + 1], cur = new int[m + 1];
+        for (int j = 0; j <= m; j++) prev[j] = j;
+        for (int i = 1; i <= n; i++) {
+            cur[0] = i;
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                cur[j] = Math.min(Math.min(prev[j] + 1, cur[j - 1] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    cur[j] = Math.min(cur[j], before[j - 2] + 1);
+                }
+            }
+            int[] t = before; before = prev; prev = cur; cur = t;
+        }
+        return 1 - (double) prev[m] / Math.max(n, m);
+    }
+}
@@ -4,7 +4,6 @@ import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.io.*;
-import java.nio.file.*;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.List;
@@ -16,11 +15,7 @@ public class PaymentPanel extends JPanel {
     private final DefaultTableModel unpaidModel;
     private final String currentStaffUsername;
 
-    private static final String APPOINTMENTS_FILE = "appointments_records.txt";
-    private static final String PAYMENTS_FILE = "payments.txt";
-
     private final JPopupMenu suggestionsPopup = new JPopupMenu();
-    private final Set<String> patientNames = new HashSet<>();
     private DefaultTableModel model;
 
     // Constructor: Initializes the PaymentPanel UI, including search, table, buttons, predictive suggestions, and event listeners
@@ -62,9 +57,6 @@ public class PaymentPanel extends JPanel {
         generateInvoiceBtn.addActionListener(e -> generateInvoice());
         viewAllBtn.addActionListener(e -> searchUnpaidAppointments(true));
 
-        // ===== Load patient names for predictive suggestions =====
-        loadPatientNames();
-
         // ===== Show all unpaid appointments initially =====
         searchUnpaidAppointments(true);
 
@@ -72,33 +64,19 @@ public class PaymentPanel extends JPanel {
         searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
             @Override
             public void insertUpdate(javax.swing.event.DocumentEvent e) {
-                showSuggestions(searchField, suggestionsPopup, patientNames);
+                showSuggestions(searchField, suggestionsPopup, NameIndex.patients());
             }
             @Override
             public void removeUpdate(javax.swing.event.DocumentEvent e) {
-                showSuggestions(searchField, suggestionsPopup, patientNames);
+                showSuggestions(searchField, suggestionsPopup, NameIndex.patients());
             }
             @Override
             public void changedUpdate(javax.swing.event.DocumentEvent e) {
-                showSuggestions(searchField, suggestionsPopup, patientNames);
+                showSuggestions(searchField, suggestionsPopup, NameIndex.patients());
             }
         });
     }
     
-    // Loads all patient names from the file for predictive search suggestions
-    private void loadPatientNames() {
-        try {
-            List<String> lines = Files.readAllLines(Paths.get("patients.txt"));
-            for (String line : lines) {
-                String[] p = line.split("\\|");
-                if (p.length >= 5) {
-                    String fullName = p[3] + " " + p[4]; // FirstName + LastName
-                    patientNames.add(fullName);
-                }
-            }
-        } catch (IOException e) {}
-    }
-
     // Triggers search for unpaid appointments based on the search field
     private void searchUnpaidAppointments() {
         searchUnpaidAppointments(false);
@@ -107,69 +85,16 @@ public class PaymentPanel extends JPanel {
     // Core logic to search unpaid appointments; can view all or filter by keyword
     private void searchUnpaidAppointments(boolean viewAll) {
         unpaidModel.setRowCount(0);
-        String keyword = searchField.getText().trim().toLowerCase();
-
-        Set<String> paidAppointments = loadPaidAppointments();
-
-        try {
-            List<String> lines = Files.readAllLines(Paths.get(APPOINTMENTS_FILE));
-            for (String line : lines) {
-                String[] parts = line.split("\\|");
-                if (parts.length < 8) continue;
-
-                String apptId = parts[0];
-                String patientId = parts[1];
-                String doctorId = parts[2];
-                String date = parts[4];
-                String time = parts[5];
-                String amount = parts[6];
-                String treatment = parts[7];
-
-                String patientName = getPatientName(patientId).toLowerCase();
-
-                boolean matches = viewAll || patientName.contains(keyword);
-
-                if (matches && !paidAppointments.contains(apptId)) {
-                    unpaidModel.addRow(new Object[]{apptId, patientId, doctorId, date, time, treatment, amount});
-                }
-            }
-        } catch (IOException ex) {
+        if (!DataStore.get().records().exists()) {
             JOptionPane.showMessageDialog(this, "Error reading appointments file.");
+            return;
+        }
+        // {apptId, patientId, doctorId, date, time, treatment, amount}, already matched on patient name
+        for (String[] row : UnpaidIndex.get().search(viewAll ? "" : searchField.getText())) {
+            unpaidModel.addRow(row);
         }
     }
 
-    // Retrieves a patient's full name using their patient ID
-    private String getPatientName(String patientId) {
-        try {
-            List<String> lines = Files.readAllLines(Paths.get("patients.txt"));
-            for (String line : lines) {
-                String[] p = line.split("\\|");
-                if (p[0].equals(patientId)) {
-                    return p[3] + " " + p[4]; // FirstName + LastName
-                }
-            }
-        } catch (IOException e) {}
-        return "";
-    }
-
-    // Loads the set of appointment IDs that have already been paid
-    private Set<String> loadPaidAppointments() {
-        Set<String> paid = new HashSet<>();
-        File file = new File(PAYMENTS_FILE);
-        if (!file.exists()) return paid;
-
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
-            while((line = br.readLine()) != null) {
-                String[] parts = line.split("\\|");
-                if (parts.length >= 2) {
-                    paid.add(parts[1]); // AppointmentID
-                }
-            }
-        } catch (IOException e) {}
-        return paid;
-    }
-    
     // Generates and displays the invoice panel for the selected appointment
     private void generateInvoice() {
         int row = unpaidTable.getSelectedRow();
@@ -196,25 +121,21 @@ public class PaymentPanel extends JPanel {
         cardLayout.show(contentPanel, "invoice");
     }
 
-    // Displays predictive search suggestions in a popup based on typed text
-    private void showSuggestions(JTextField field, JPopupMenu popup, Collection<String> data) {
+    // Displays predictive search suggestions in a popup based on typed text, from the shared patient name index
+    private void showSuggestions(JTextField field, JPopupMenu popup, NameIndex data) {
         popup.removeAll();
-        String txt = field.getText().trim().toLowerCase();
+        String txt = field.getText().trim();
         if (txt.isEmpty()) {
             popup.setVisible(false);
             return;
         }
-        int count = 0;
-        for (String s : data) {
-            if (s.toLowerCase().startsWith(txt)) {
-                JMenuItem item = new JMenuItem(s);
-                item.addActionListener(e -> {
-                    field.setText(s);
-                    popup.setVisible(false);
-                });
-                popup.add(item);
-                if (++count >= 10) break;
-            }
+        for (String s : data.suggest(txt, 10)) {
+            JMenuItem item = new JMenuItem(s);
+            item.addActionListener(e -> {
+                field.setText(s);
+                popup.setVisible(false);
+            });
+            popup.add(item);
         }
         if (popup.getComponentCount() > 0)
             popup.show(field, 0, field.getHeight());
@@ -268,9 +189,12 @@ public class PaymentPanel extends JPanel {
             JPanel headerPanel = new JPanel(new GridLayout(1, 3, 20, 5));
             headerPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 30));
 
-            Random rand = new Random();
-            int randomNumber = 10000 + rand.nextInt(90000);
-            this.invoiceNo = "I" + randomNumber;
+            try {
+                this.invoiceNo = IdAllocator.next('I');
+            } catch (IOException e) {
+                this.invoiceNo = "";
+                JOptionPane.showMessageDialog(this, "Could not allocate an invoice number.");
+            }
 
             JLabel lblInvoice = new JLabel("Invoice No: " + invoiceNo, SwingConstants.LEFT);
             JLabel lblDate = new JLabel("Date: " + date, SwingConstants.CENTER);
@@ -430,53 +354,43 @@ public class PaymentPanel extends JPanel {
 
         // Retrieves detailed patient information from file using patient ID
         private String getPatientInfo(String patientId) {
-            try {
-                List<String> lines = Files.readAllLines(Paths.get(PATIENTS_FILE));
-                for (String line : lines) {
-                    String[] p = line.split("\\|");
-                    if (p[0].equals(patientId)) {
-                        return p[3] + " " + p[4] + "\n" +
-                               "Phone: " + p[9] + "\n" +
-                               "Email: " + p[8] + "\n" +
-                               "Address: " + p[10] + ", " + p[11] + ", " + p[12];
-                    }
-                }
-            } catch (IOException e) {}
+            String[] p = DataStore.get().table(PATIENTS_FILE).byId(patientId);
+            if (p != null && p.length >= 13) {
+                return p[3] + " " + p[4] + "\n" +
+                       "Phone: " + p[9] + "\n" +
+                       "Email: " + p[8] + "\n" +
+                       "Address: " + p[10] + ", " + p[11] + ", " + p[12];
+            }
             return "Patient not found.";
         }
         
         // Retrieves detailed doctor information from file using doctor ID
         private String getDoctorInfo(String doctorId) {
-            try {
-                List<String> lines = Files.readAllLines(Paths.get(DOCTORS_FILE));
-                for (String line : lines) {
-                    String[] d = line.split("\\|");
-                    if (d[0].equals(doctorId)) {
-                        return d[3] + " " + d[4] + "\n" +
-                               "Specialization: " + d[13] + "\n" +
-                               "Phone: " + d[9] + "\n" +
-                               "Email: " + d[8];
-                    }
-                }
-            } catch (IOException e) {}
+            String[] d = DataStore.get().table(DOCTORS_FILE).byId(doctorId);
+            if (d != null && d.length >= 14) {
+                return d[3] + " " + d[4] + "\n" +
+                       "Specialization: " + d[13] + "\n" +
+                       "Phone: " + d[9] + "\n" +
+                       "Email: " + d[8];
+            }
             return "Doctor not found.";
         }
 
         // Loads all treatment records from file into a map
         private Map<String, String[]> loadTreatments() {
             Map<String, String[]> map = new HashMap<>();
-            try {
-                List<String> lines = Files.readAllLines(Paths.get(TREATMENTS_FILE));
-                for (String line : lines) {
-                    String[] t = line.split("\\|");
-                    if (t.length >= 3) map.put(t[0].trim(), new String[]{t[1].trim(), t[2].trim()});
-                }
-            } catch (IOException e) {}
+            for (String[] t : DataStore.get().table(TREATMENTS_FILE).rows()) {
+                if (t.length >= 3) map.put(t[0].trim(), new String[]{t[1].trim(), t[2].trim()});
+            }
             return map;
         }
 
         // Processes the payment, saves it to file, updates table, and shows receipt
         private void processPayment(double total) {
+            if (invoiceNo.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "No invoice number; reopen the invoice and try again.");
+                return;
+            }
             String[] methods = {"Cash", "Card", "Online"};
             String method = (String) JOptionPane.showInputDialog(
                     this, "Select Payment Method:", "Payment",
@@ -486,14 +400,14 @@ public class PaymentPanel extends JPanel {
 
             String dateTime = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
 
-            String record = String.join("|",
+            String[] record = {
                     invoiceNo, apptId, patientId,
                     String.format("%.2f", total), method, dateTime, staffUsername
-            );
+            };
 
-            try (BufferedWriter bw = new BufferedWriter(new FileWriter(PAYMENTS_FILE, true))) {
-                bw.write(record);
-                bw.newLine();
+            try {
+                // Goes through the store's change log so report totals and unpaid lists update in place
+                DataStore.get().upsert(PAYMENTS_FILE, record);
                 JOptionPane.showMessageDialog(this, "Payment successful!");
                 unpaidModel.removeRow(rowIndex);
                 showReceipt(invoiceNo, total, method, dateTime);
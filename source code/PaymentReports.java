@@ -0,0 +1,124 @@
+package assignment;
+
+import java.text.DecimalFormat;
+import java.util.*;
+
+// Reports that only need payments.txt (amount, method and patient of each payment), run as ReportPlugins
+// so opening them loads neither appointments nor records.
+final class PaymentReports {
+
+    private static final int TOP_PATIENTS = 10;
+
+    private PaymentReports() {}
+
+    // "Finance - Total Income (collected)": sum of payment amounts and number of payments.
+    static final class TotalIncome implements ReportPlugin {
+        @Override
+        public String name() { return "Finance - Total Income (collected)"; }
+
+        @Override
+        public Map<String, int[]> columns() { return Map.of(DataStore.PAYMENTS_FILE, new int[]{3}); }
+
+        @Override
+        public Run start() {
+            return new Run() {
+                double collected;
+                int count;
+
+                @Override
+                public void row(String file, String[] f) {
+                    count++;
+                    collected += amount(f[0]);
+                }
+
+                @Override
+                public ReportEngine.ReportTable table() {
+                    DecimalFormat money = new DecimalFormat("#0.00");
+                    List<Object[]> rows = new ArrayList<>();
+                    rows.add(new Object[]{"Total Collected Income", money.format(collected)});
+                    rows.add(new Object[]{"Payments Count", count});
+                    return new ReportEngine.ReportTable(new String[]{"Metric", "Value"}, rows);
+                }
+            };
+        }
+    }
+
+    // "Finance - By Payment Method": amount and count per method.
+    static final class ByMethod implements ReportPlugin {
+        @Override
+        public String name() { return "Finance - By Payment Method"; }
+
+        @Override
+        public Map<String, int[]> columns() { return Map.of(DataStore.PAYMENTS_FILE, new int[]{3, 4}); }
+
+        @Override
+        public Run start() {
+            return new Run() {
+                final Map<String, Sum> byMethod = new HashMap<>();
+
+                @Override
+                public void row(String file, String[] f) {
+                    if (f[1] == null) return;
+                    Sum s = byMethod.computeIfAbsent(f[1].trim().isEmpty() ? "Unknown" : f[1], k -> new Sum());
+                    s.total += amount(f[0]);
+                    s.n++;
+                }
+
+                @Override
+                public ReportEngine.ReportTable table() {
+                    DecimalFormat money = new DecimalFormat("#0.00");
+                    List<Object[]> rows = new ArrayList<>();
+                    byMethod.forEach((method, s) -> rows.add(new Object[]{method, money.format(s.total), s.n}));
+                    return new ReportEngine.ReportTable(new String[]{"Payment Method", "Collected Amount", "Count"}, rows);
+                }
+            };
+        }
+    }
+
+    // "Cross - Top Paying Patients": the ten patients with the largest total paid.
+    static final class TopPatients implements ReportPlugin {
+        @Override
+        public String name() { return "Cross - Top Paying Patients"; }
+
+        @Override
+        public Map<String, int[]> columns() { return Map.of(DataStore.PAYMENTS_FILE, new int[]{2, 3}); }
+
+        @Override
+        public Run start() {
+            return new Run() {
+                final Map<String, Sum> byPatient = new HashMap<>();
+
+                @Override
+                public void row(String file, String[] f) {
+                    Sum s = byPatient.computeIfAbsent(f[0] == null ? "Unknown" : f[0], k -> new Sum());
+                    s.total += amount(f[1]);
+                    s.n++;
+                }
+
+                @Override
+                public ReportEngine.ReportTable table() {
+                    DecimalFormat money = new DecimalFormat("#0.00");
+                    List<Map.Entry<String, Sum>> top = new ArrayList<>(byPatient.entrySet());
+                    top.sort((a, b) -> Double.compare(b.getValue().total, a.getValue().total));
+                    List<Object[]> rows = new ArrayList<>();
+                    for (Map.Entry<String, Sum> e : top.subList(0, Math.min(TOP_PATIENTS, top.size()))) {
+                        rows.add(new Object[]{e.getKey(), money.format(e.getValue().total)});
+                    }
+                    return new ReportEngine.ReportTable(new String[]{"Patient ID", "Total Paid"}, rows);
+                }
+            };
+        }
+    }
+
+    // ---------------- HELPERS ----------------
+    private static final class Sum {
+        double total;
+        int n;
+    }
+
+    // Amount field as a number; 0.0 when blank or unreadable.
+    private static double amount(String s) {
+        if (s == null || s.trim().isEmpty()) return 0.0;
+        try { return Double.parseDouble(s); } catch (NumberFormatException e) { return 0.0; }
+    }
+}
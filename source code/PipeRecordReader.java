@@ -0,0 +1,389 @@
+package assignment;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Consumer;
+
+// Byte-level reader for the pipe-delimited data files.
+// The file is memory-mapped (or read into one heap buffer when small) and scanned for '|' and '\n'
+// directly; each line is handed to the visitor as a Record holding only field offsets into the buffer.
+// Strings are created only for the fields a caller actually asks for.
+// A Query narrows a scan further: its conditions are checked as each field is tokenized, and a line that
+// fails one is skipped up to its '\n' without looking at the remaining fields.
+public final class PipeRecordReader {
+
+    // Files below this size are read into the heap instead of mapped; mapping tiny files costs more
+    // than it saves, and on Windows a live mapping blocks the store from replacing the file.
+    private static final long MAP_THRESHOLD = 16L * 1024 * 1024;
+    // Mapped windows are cut at line boundaries, so files larger than 2 GB are handled piecewise.
+    private static final long MAP_WINDOW = 256L * 1024 * 1024;
+
+    private static final byte PIPE = '|';
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    public interface Visitor {
+        void visit(Record r);
+    }
+
+    private PipeRecordReader() {}
+
+    // Calls the visitor once per non-blank line. The Record is reused between calls, so a visitor
+    // that wants to keep data must copy it out (field(), toArray()).
+    public static void scan(Path p, Visitor visitor) throws IOException {
+        scanMatching(p, null, visitor);
+    }
+
+    // Calls the visitor with the selected fields of each line that meets the query's conditions.
+    public static void scan(Path p, Query query, Consumer<String[]> visitor) throws IOException {
+        scanMatching(p, query, r -> visitor.accept(r.project(query.fields)));
+    }
+
+    // Same as scan(p, visitor) for the lines that meet the query (and any it passes by ID, see Query.passing).
+    static void scanMatching(Path p, Query query, Visitor visitor) throws IOException {
+        if (!Files.exists(p)) return;
+        try (FileChannel ch = FileChannel.open(p, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size == 0) return;
+            Record rec = new Record();
+
+            if (size < MAP_THRESHOLD) {
+                ByteBuffer buf = ByteBuffer.allocate((int) size);
+                while (buf.hasRemaining() && ch.read(buf) >= 0) { }
+                buf.flip();
+                scanBuffer(buf, rec, query, visitor, true);
+                return;
+            }
+
+            long pos = 0;
+            while (pos < size) {
+                long len = Math.min(MAP_WINDOW, size - pos);
+                boolean last = pos + len >= size;
+                MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, pos, len);
+                int consumed = scanBuffer(buf, rec, query, visitor, last);
+                if (consumed == 0 && !last) throw new IOException("Line longer than " + MAP_WINDOW + " bytes in " + p);
+                pos += consumed;
+            }
+        }
+    }
+
+    // Scans complete lines in the buffer and returns the number of bytes consumed. When this is not the
+    // last window, a trailing line without '\n' is left for the next window.
+    private static int scanBuffer(ByteBuffer buf, Record rec, Query q, Visitor visitor, boolean last) {
+        int limit = buf.limit();
+        int lineStart = 0;
+        boolean skipping = false;   // the line failed the query: only its end is looked for
+        rec.buf = buf;
+        rec.fieldCount = 0;
+        rec.starts[0] = 0;
+        rec.matched = true;
+
+        for (int i = 0; i < limit; i++) {
+            byte b = buf.get(i);
+            if (b == PIPE) {
+                if (skipping) continue;
+                rec.endField(i);
+                if (q != null && !q.accepts(rec, rec.fieldCount - 1, false)) {
+                    while (i + 1 < limit && buf.get(i + 1) != LF) i++;
+                    skipping = true;
+                    continue;
+                }
+                rec.startField(i + 1);
+            } else if (b == LF) {
+                if (!skipping) {
+                    int end = (i > lineStart && buf.get(i - 1) == CR) ? i - 1 : i;
+                    rec.endField(end);
+                    rec.lineStart = lineStart;
+                    rec.lineEnd = end;
+                    if (!rec.isBlank() && (q == null || q.accepts(rec, rec.fieldCount - 1, true))) visitor.visit(rec);
+                }
+                skipping = false;
+                lineStart = i + 1;
+                rec.fieldCount = 0;
+                rec.matched = true;
+                rec.startField(lineStart);
+            }
+        }
+
+        if (lineStart < limit && last) {
+            if (skipping) return limit;
+            int end = buf.get(limit - 1) == CR ? limit - 1 : limit;
+            rec.endField(end);
+            rec.lineStart = lineStart;
+            rec.lineEnd = end;
+            if (!rec.isBlank() && (q == null || q.accepts(rec, rec.fieldCount - 1, true))) visitor.visit(rec);
+            return limit;
+        }
+        return last ? limit : lineStart;
+    }
+
+    // ---------------- QUERY ----------------
+    // Which fields of which lines a scan wants: a projection (select) plus conditions on single fields, all of
+    // which must hold. Values are compared with surrounding whitespace ignored, byte by byte (UTF-8 order,
+    // which is date and time order for "yyyy-MM-dd HH:mm:ss"). A line without the field fails its condition.
+    // matches() and project() apply the same query to rows already split, so a loaded table answers alike.
+    public static final class Query {
+        private int[] fields;                                    // null: every field
+        private Condition[] byField = new Condition[0];          // conditions of field i, chained
+        private int maxField = -1;
+        private int[] passHashes;                                // see passing()
+        private Set<String> passIds;
+
+        public Query() {}
+
+        private Query(Query q) {
+            fields = q.fields;
+            byField = q.byField;
+            maxField = q.maxField;
+        }
+
+        int[] fields() { return fields; }
+
+        // Keeps only these fields, in this order.
+        public Query select(int... fields) {
+            this.fields = fields.clone();
+            return this;
+        }
+
+        // Field equals the value.
+        public Query whereEquals(int field, String value) {
+            return where(new Condition(field, value.getBytes(StandardCharsets.UTF_8), null, null));
+        }
+
+        // Field is not blank and lies between the bounds (inclusive; null for an open end). The upper bound is
+        // compared over its own length only, so a day "yyyy-MM-dd" takes in every timestamp of that day.
+        public Query whereBetween(int field, String from, String to) {
+            return where(new Condition(field, null, from == null ? null : from.getBytes(StandardCharsets.UTF_8),
+                    to == null ? null : to.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        private Query where(Condition c) {
+            if (c.field >= byField.length) byField = Arrays.copyOf(byField, c.field + 1);
+            c.next = byField[c.field];
+            byField[c.field] = c;
+            maxField = Math.max(maxField, c.field);
+            return this;
+        }
+
+        // A copy that also passes lines whose ID (field 0) is one of the given ones, whether or not they meet
+        // the conditions; Record.matched() tells which. The store uses it for IDs with pending changes.
+        Query passing(Set<String> ids) {
+            Query q = new Query(this);
+            q.passIds = ids;
+            q.passHashes = new int[ids.size()];
+            int n = 0;
+            for (String id : ids) {
+                byte[] b = id.getBytes(StandardCharsets.UTF_8);
+                q.passHashes[n++] = hash(b, null, 0, b.length);
+            }
+            Arrays.sort(q.passHashes);
+            return q;
+        }
+
+        // Checks field i of the record as it is tokenized ('end': it was the last field of the line, so fields
+        // beyond it are missing). False when the line is to be dropped.
+        private boolean accepts(Record r, int i, boolean end) {
+            if (r.matched) {
+                boolean ok = i >= byField.length || holds(byField[i], r, i);
+                if (ok && end && maxField > i) ok = false;
+                if (!ok) {
+                    r.matched = false;
+                    return passed(r);
+                }
+            }
+            return true;
+        }
+
+        private boolean holds(Condition c, Record r, int i) {
+            for (; c != null; c = c.next) {
+                int s = r.starts[i], e = r.ends[i];
+                while (s < e && (r.buf.get(s) & 0xFF) <= ' ') s++;
+                while (e > s && (r.buf.get(e - 1) & 0xFF) <= ' ') e--;
+                if (c.equals != null) {
+                    if (e - s != c.equals.length || compare(r.buf, s, e, c.equals) != 0) return false;
+                } else {
+                    if (s == e) return false;
+                    if (c.from != null && compare(r.buf, s, e, c.from) < 0) return false;
+                    if (c.to != null && compare(r.buf, s, Math.min(e, s + c.to.length), c.to) > 0) return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean passed(Record r) {
+            if (passIds == null || r.fieldCount == 0) return false;
+            if (Arrays.binarySearch(passHashes, hash(null, r, r.starts[0], r.ends[0])) < 0) return false;
+            return passIds.contains(r.field(0));
+        }
+
+        // Whether an already split row meets the conditions.
+        public boolean matches(String[] row) {
+            for (int i = 0; i <= maxField; i++) {
+                for (Condition c = byField[i]; c != null; c = c.next) {
+                    if (row.length <= i) return false;
+                    String v = row[i].trim();
+                    if (c.equals != null) {
+                        if (!v.equals(c.text(c.equals))) return false;
+                    } else {
+                        if (v.isEmpty()) return false;
+                        if (c.from != null && v.compareTo(c.text(c.from)) < 0) return false;
+                        String to = c.to == null ? null : c.text(c.to);
+                        if (to != null && v.substring(0, Math.min(v.length(), to.length())).compareTo(to) > 0) return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        // The selected fields of an already split row, null where the row is shorter.
+        public String[] project(String[] row) {
+            if (fields == null) return row;
+            String[] out = new String[fields.length];
+            for (int i = 0; i < fields.length; i++) out[i] = row.length > fields[i] ? row[fields[i]] : null;
+            return out;
+        }
+    }
+
+    private static final class Condition {
+        final int field;
+        final byte[] equals, from, to;
+        Condition next;
+
+        Condition(int field, byte[] equals, byte[] from, byte[] to) {
+            if (field < 0) throw new IllegalArgumentException("Field index must not be negative: " + field);
+            this.field = field;
+            this.equals = equals;
+            this.from = from;
+            this.to = to;
+        }
+
+        String text(byte[] b) {
+            return new String(b, StandardCharsets.UTF_8);
+        }
+    }
+
+    // Unsigned byte order of buf[s, e) against v.
+    private static int compare(ByteBuffer buf, int s, int e, byte[] v) {
+        int n = Math.min(e - s, v.length);
+        for (int k = 0; k < n; k++) {
+            int d = (buf.get(s + k) & 0xFF) - (v[k] & 0xFF);
+            if (d != 0) return d;
+        }
+        return (e - s) - v.length;
+    }
+
+    // Hash of a byte range, from an array or (when bytes is null) the record's buffer.
+    private static int hash(byte[] bytes, Record r, int s, int e) {
+        int h = 1;
+        for (int k = s; k < e; k++) h = 31 * h + ((bytes != null ? bytes[k] : r.buf.get(k)) & 0xFF);
+        return h;
+    }
+
+    // ---------------- RECORD ----------------
+    // One line of the file as a set of byte ranges. Valid only inside the visit() call.
+    public static final class Record {
+        private ByteBuffer buf;
+        private int lineStart, lineEnd;
+        private int fieldCount;
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private byte[] scratch = new byte[256];
+
+        // Last value passed to fieldEquals, kept encoded so repeated comparisons don't allocate.
+        private String cmpValue;
+        private byte[] cmpBytes;
+
+        private boolean matched;
+
+        private Record() {}
+
+        private void startField(int at) {
+            if (fieldCount == starts.length) {
+                starts = java.util.Arrays.copyOf(starts, fieldCount * 2);
+                ends = java.util.Arrays.copyOf(ends, fieldCount * 2);
+            }
+            starts[fieldCount] = at;
+        }
+
+        private void endField(int at) {
+            ends[fieldCount++] = at;
+        }
+
+        public int fieldCount() { return fieldCount; }
+
+        // False for a line a query passed only by its ID (Query.passing), without meeting its conditions.
+        boolean matched() { return matched; }
+
+        // Field i decoded as UTF-8, or "" when the line has fewer fields.
+        public String field(int i) {
+            if (i < 0 || i >= fieldCount) return "";
+            return decode(starts[i], ends[i]);
+        }
+
+        // Compares field i with the value byte-for-byte without creating a String.
+        public boolean fieldEquals(int i, String value) {
+            if (i < 0 || i >= fieldCount || value == null) return false;
+            if (!value.equals(cmpValue)) {
+                cmpValue = value;
+                cmpBytes = value.getBytes(StandardCharsets.UTF_8);
+            }
+            int s = starts[i], len = ends[i] - s;
+            if (len != cmpBytes.length) return false;
+            for (int k = 0; k < len; k++) {
+                if (buf.get(s + k) != cmpBytes[k]) return false;
+            }
+            return true;
+        }
+
+        // All fields, the same as line.split("\\|", -1).
+        public String[] toArray() {
+            return toArray(0);
+        }
+
+        // The given fields (all when null), null where the line is shorter.
+        public String[] project(int[] which) {
+            if (which == null) return toArray();
+            String[] out = new String[which.length];
+            for (int i = 0; i < which.length; i++) {
+                out[i] = which[i] >= 0 && which[i] < fieldCount ? decode(starts[which[i]], ends[which[i]]) : null;
+            }
+            return out;
+        }
+
+        // Fields from index 'from' onwards (used to strip the op code from change-log records).
+        public String[] toArray(int from) {
+            String[] out = new String[Math.max(fieldCount - from, 0)];
+            for (int i = from; i < fieldCount; i++) out[i - from] = decode(starts[i], ends[i]);
+            return out;
+        }
+
+        // The whole line without its line terminator.
+        public String line() {
+            return decode(lineStart, lineEnd);
+        }
+
+        // True for lines holding only whitespace (skipped by the scanner, like line.trim().isEmpty()).
+        boolean isBlank() {
+            for (int i = lineStart; i < lineEnd; i++) {
+                if ((buf.get(i) & 0xFF) > ' ') return false;
+            }
+            return true;
+        }
+
+        private String decode(int from, int to) {
+            int len = to - from;
+            if (len <= 0) return "";
+            if (buf.hasArray()) {
+                return new String(buf.array(), buf.arrayOffset() + from, len, StandardCharsets.UTF_8);
+            }
+            if (scratch.length < len) scratch = new byte[Math.max(len, scratch.length * 2)];
+            buf.get(from, scratch, 0, len);
+            return new String(scratch, 0, len, StandardCharsets.UTF_8);
+        }
+    }
+}
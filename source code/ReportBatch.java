@@ -0,0 +1,110 @@
+package assignment;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+// Command-line report runner for scheduled jobs: computes reports without opening any window and saves
+// them as a ReportSnapshot, which the Reports screen shows as soon as it opens.
+// Run it from the data directory (the one holding appointments.txt), like the application itself:
+//
+//   java -cp <classes> assignment.ReportBatch [--period "<name>"] [--month yyyy-MM] [--range from..to] [report ...]
+//
+// Periods may be repeated; without any, reports cover all time. "--period" takes the Reports screen's names
+// ("This month", "Last 30 days", ...), evaluated for today, so a nightly run matches what users pick next day.
+// Reports are given by name or any unique part of it (case-insensitive); without any, every report is run.
+public final class ReportBatch {
+
+    private ReportBatch() {}
+
+    public static void main(String[] args) {
+        List<LocalDate[]> periods = new ArrayList<>();
+        List<String> types = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--period" -> {
+                        LocalDate[] range = ReportEngine.periodRange(value(args, ++i), LocalDate.now());
+                        if (range == null) throw new IllegalArgumentException("Unknown period: " + args[i]);
+                        periods.add(range);
+                    }
+                    case "--month" -> {
+                        YearMonth m = YearMonth.parse(value(args, ++i));
+                        periods.add(new LocalDate[]{m.atDay(1), m.atEndOfMonth()});
+                    }
+                    case "--range" -> {
+                        String[] fromTo = value(args, ++i).split("\\.\\.", -1);
+                        if (fromTo.length != 2) throw new IllegalArgumentException("Range must be from..to: " + args[i]);
+                        LocalDate from = fromTo[0].isEmpty() ? null : LocalDate.parse(fromTo[0]);
+                        LocalDate to = fromTo[1].isEmpty() ? null : LocalDate.parse(fromTo[1]);
+                        if (from != null && to != null && from.isAfter(to)) {
+                            throw new IllegalArgumentException("Range starts after it ends: " + args[i]);
+                        }
+                        periods.add(new LocalDate[]{from, to});
+                    }
+                    case "--help", "-h" -> {
+                        usage();
+                        return;
+                    }
+                    default -> types.add(reportType(args[i]));
+                }
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            System.err.println(e.getMessage());
+            usage();
+            System.exit(2);
+        }
+        if (periods.isEmpty()) periods.add(new LocalDate[]{null, null});
+        if (types.isEmpty()) types.addAll(Arrays.asList(ReportEngine.reportTypes()));
+
+        long start = System.currentTimeMillis();
+        ReportEngine engine = ReportEngine.get();
+        List<ReportSnapshot.Entry> entries = new ArrayList<>();
+        for (LocalDate[] p : periods) {
+            for (String type : types) {
+                String key = ReportEngine.cacheKey(type, p[0], p[1]);   // taken first: the table is at least this new
+                ReportEngine.ReportTable t = engine.table(type, p[0], p[1], progress -> { });
+                entries.add(new ReportSnapshot.Entry(type, p[0], p[1], key, t));
+                System.out.println(type + " [" + label(p) + "]: " + t.rows.length + " rows");
+            }
+        }
+        try {
+            Path out = ReportSnapshot.save(entries);
+            System.out.println("Saved " + entries.size() + " reports to " + out + " in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } catch (IOException e) {
+            System.err.println("Error saving report snapshot: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // The report type named by the argument: an exact name, or the only one containing it.
+    private static String reportType(String arg) {
+        List<String> hits = new ArrayList<>();
+        for (String t : ReportEngine.reportTypes()) {
+            if (t.equals(arg)) return t;
+            if (t.toLowerCase().contains(arg.toLowerCase())) hits.add(t);
+        }
+        if (hits.size() == 1) return hits.get(0);
+        throw new IllegalArgumentException(hits.isEmpty() ? "Unknown report: " + arg : "Ambiguous report: " + arg + " " + hits);
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length) throw new IllegalArgumentException("Missing value after " + args[i - 1]);
+        return args[i];
+    }
+
+    private static String label(LocalDate[] p) {
+        return p[0] == null && p[1] == null ? "All time" : (p[0] == null ? "" : p[0]) + ".." + (p[1] == null ? "" : p[1]);
+    }
+
+    private static void usage() {
+        System.err.println("Usage: java assignment.ReportBatch [--period \"<name>\"] [--month yyyy-MM] [--range from..to] [report ...]");
+        System.err.println("Periods: " + String.join(", ", Arrays.asList(ReportEngine.PERIODS).subList(0, ReportEngine.PERIODS.length - 1)));
+        System.err.println("Reports:");
+        for (String t : ReportEngine.reportTypes()) System.err.println("  " + t);
+    }
+}
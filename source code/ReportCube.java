@@ -0,0 +1,123 @@
+package assignment;
+
+import java.text.DecimalFormat;
+import java.util.*;
+
+// Pre-aggregated finance and appointment totals over five dimensions: doctor, specialization, shift,
+// month and payment method. Each cell holds the appointment count, the expected amount (records, field 6)
+// and the collected amount (payments, field 3) of one combination, so any slice, roll-up or drill-down is
+// a walk over the cells (a few thousand at most) instead of a scan of the data files.
+//
+// Appointments count in the month of their date, records in the month of the record date and payments in
+// the month they were made. Payment method only applies to payments; the other facts carry NONE there.
+// Filled by ReportEngine alongside its other aggregates; the engine hands out copies, which are only read.
+public final class ReportCube {
+
+    public static final int DOCTOR = 0, SPECIALIZATION = 1, SHIFT = 2, MONTH = 3, METHOD = 4;
+    public static final String[] DIMENSIONS = {"Doctor", "Specialization", "Shift", "Month", "Payment Method"};
+
+    public static final int APPOINTMENTS = 0, EXPECTED = 1, COLLECTED = 2;
+    public static final String[] MEASURES = {"Appointments", "Expected", "Collected"};
+
+    // Member of a dimension that does not apply to the fact (e.g. the payment method of an appointment).
+    public static final String NONE = "-";
+
+    private static final class Cell {
+        final double[] measures = new double[MEASURES.length];
+        final int[] rows = new int[MEASURES.length];   // contributing rows per measure
+        int total;                                      // all of them, so a cell disappears with its last row
+    }
+
+    private final Map<List<String>, Cell> cells = new HashMap<>();
+
+    // Adds (sign +1) or takes back (-1) one row's amount for a measure at the given coordinates
+    // (one member per dimension, in DIMENSIONS order).
+    void add(List<String> coords, int measure, double amount, int sign) {
+        Cell c = cells.computeIfAbsent(coords, k -> new Cell());
+        c.measures[measure] += sign * amount;
+        c.rows[measure] += sign;
+        c.total += sign;
+        if (c.total <= 0) cells.remove(coords);
+    }
+
+    void merge(ReportCube o) {
+        o.cells.forEach((k, v) -> {
+            Cell c = cells.computeIfAbsent(k, x -> new Cell());
+            for (int m = 0; m < c.measures.length; m++) {
+                c.measures[m] += v.measures[m];
+                c.rows[m] += v.rows[m];
+            }
+            c.total += v.total;
+        });
+    }
+
+    void clear() {
+        cells.clear();
+    }
+
+    ReportCube copy() {
+        ReportCube c = new ReportCube();
+        c.merge(this);
+        return c;
+    }
+
+    // ---------------- QUERIES ----------------
+    // Members of a dimension that have rows for the measure among the matching cells, sorted.
+    public SortedSet<String> members(int dim, int measure, Map<Integer, String> filter) {
+        SortedSet<String> out = new TreeSet<>();
+        for (Map.Entry<List<String>, Cell> e : cells.entrySet()) {
+            if (e.getValue().rows[measure] > 0 && matches(e.getKey(), filter)) out.add(e.getKey().get(dim));
+        }
+        return out;
+    }
+
+    // Pivot table: one row per member of rowDim, one column per member of colDim (or none when colDim < 0),
+    // each with row and column totals. Only members with rows for the measure are shown, so e.g. collected
+    // amounts by payment method get no column for appointments and records (NONE).
+    // Amounts are formatted like the other finance reports.
+    public ReportEngine.ReportTable pivot(int rowDim, int colDim, int measure, Map<Integer, String> filter) {
+        DecimalFormat money = new DecimalFormat("#0.00");
+        List<String> colMembers = colDim < 0 ? List.of() : new ArrayList<>(members(colDim, measure, filter));
+        Map<String, Integer> colIndex = new HashMap<>();
+        for (int i = 0; i < colMembers.size(); i++) colIndex.put(colMembers.get(i), i);
+
+        Map<String, double[]> byRow = new TreeMap<>();   // row member -> values per column, total last
+        double[] columnTotals = new double[colMembers.size() + 1];
+        for (Map.Entry<List<String>, Cell> e : cells.entrySet()) {
+            Cell c = e.getValue();
+            if (c.rows[measure] <= 0 || !matches(e.getKey(), filter)) continue;
+            double[] row = byRow.computeIfAbsent(e.getKey().get(rowDim), x -> new double[colMembers.size() + 1]);
+            if (colDim >= 0) row[colIndex.get(e.getKey().get(colDim))] += c.measures[measure];
+            row[colMembers.size()] += c.measures[measure];
+        }
+
+        String[] columns = new String[colMembers.size() + 2];
+        columns[0] = DIMENSIONS[rowDim];
+        for (int i = 0; i < colMembers.size(); i++) columns[i + 1] = colMembers.get(i);
+        columns[columns.length - 1] = "Total";
+
+        List<Object[]> rows = new ArrayList<>(byRow.size() + 1);
+        byRow.forEach((member, values) -> {
+            rows.add(row(member, values, measure, money));
+            for (int i = 0; i < values.length; i++) columnTotals[i] += values[i];
+        });
+        rows.add(row("Total", columnTotals, measure, money));
+        return new ReportEngine.ReportTable(columns, rows);
+    }
+
+    private static Object[] row(String label, double[] values, int measure, DecimalFormat money) {
+        Object[] row = new Object[values.length + 1];
+        row[0] = label;
+        for (int i = 0; i < values.length; i++) {
+            row[i + 1] = measure == APPOINTMENTS ? (Object) Math.round(values[i]) : money.format(values[i]);
+        }
+        return row;
+    }
+
+    private static boolean matches(List<String> coords, Map<Integer, String> filter) {
+        for (Map.Entry<Integer, String> f : filter.entrySet()) {
+            if (!coords.get(f.getKey()).equals(f.getValue())) return false;
+        }
+        return true;
+    }
+}
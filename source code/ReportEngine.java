@@ -0,0 +1,1111 @@
+package assignment;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import java.util.function.LongFunction;
+
+// Computes the reports of the Reports screen. Each report is registered with the files it reads: the
+// built-in ones below, plus any ReportPlugin (a report that names its files and fields and is run over just
+// those). Payments-only reports are plugins, so opening one never loads appointments or records.
+//
+// The built-in reports are computed in one go.
+// Appointments, records and payments are each scanned once; records and payments are attributed to
+// doctors and specializations through JoinIndex, the appointment-ID join shared with the payment and
+// receipt screens, so no join map is built here.
+// The result holds a ready-made table per report type, so switching reports needs no further work.
+//
+// The shared instance keeps the aggregates live: it listens to the three tables through JoinIndex and
+// applies each booking, record save or payment as a delta (taken back before the join moves, re-added
+// after), so reading a report costs O(groups) rather than O(rows).
+// A reload of any of the files (edited outside the app) simply triggers one full rebuild.
+// Finished report tables are also kept in a small LRU cache keyed by report type and the stamps
+// (size and modification time) of just the files that report reads, so a report whose inputs did not
+// change is served without touching the aggregates, even after another input was reloaded from disk.
+// The treatment, diagnosis and prescription rankings can each be switched to an approximate mode that
+// keeps a fixed-size TopKSketch instead of a count per distinct value, for histories too large to hold.
+// Bill amounts and booking lead times also go into LogHistograms (overall, per doctor, per specialization),
+// which give p50/p90/p99 from the same pass in bounded memory.
+// Alongside the fixed reports the aggregates fill a ReportCube (doctor x specialization x shift x month x
+// payment method) for the pivot view, so its slices and drill-downs are answered without another scan.
+// Large rebuilds are split into chunks on the common fork/join pool; each chunk fills its own partial
+// aggregates, which are merged in file order so the result is the same as a single-threaded pass.
+// Approximate rankings are the exception: chunks add into one sketch set per thread, merged at the end.
+public final class ReportEngine implements JoinIndex.Listener {
+
+    // Periods offered by the Reports screen and the batch runner; see periodRange.
+    public static final String[] PERIODS = {"All time", "Last 7 days", "Last 30 days", "This month", "This year", "Custom range"};
+
+    // The pivot view: any two cube dimensions against each other, narrowed by drill-down filters.
+    public static final String PIVOT = "Pivot - Doctor / Specialization / Shift / Month / Method";
+
+    private static final int TOP_TREATMENTS = 5;
+    // A rebuild reports its progress every this many rows.
+    private static final int PROGRESS_STEP = 4096;
+    // Rows per fork/join chunk; smaller inputs are scanned on the calling thread.
+    private static final int PARALLEL_CHUNK = 8192;
+
+    private static final int APPOINTMENT_ROWS = 0, RECORD_ROWS = 1, PAYMENT_ROWS = 2;
+
+    private static final int CACHE_SIZE = 64;
+    private static final List<String> APPTS = List.of(DataStore.APPOINTMENTS_FILE);
+    private static final List<String> RECS = List.of(DataStore.RECORDS_FILE);
+    private static final List<String> RECS_PAYS = List.of(DataStore.RECORDS_FILE, DataStore.PAYMENTS_FILE);
+    private static final List<String> APPTS_RECS = List.of(DataStore.APPOINTMENTS_FILE, DataStore.RECORDS_FILE);
+    private static final List<String> ALL = List.of(DataStore.APPOINTMENTS_FILE, DataStore.RECORDS_FILE, DataStore.PAYMENTS_FILE);
+
+    // Rankings that can run approximately: index into the approximate-mode flags.
+    private static final int TREATMENT_RANKING = 0, DIAGNOSIS_RANKING = 1, MEDICATION_RANKING = 2;
+    private static final double[] PERCENTILES = {50, 90, 99};
+    // Sketch size: estimates within 0.1% of the total with 99% probability; ~110 KB per sketch.
+    private static final double SKETCH_EPSILON = 0.001, SKETCH_DELTA = 0.01;
+    private static final int SKETCH_CANDIDATES = 64;
+    private static final int APPROX_ROWS = 20;
+
+    // ---------------- REPORTS ----------------
+    // An entry of the report list: the files it reads and how its table is made. Built-in reports are read
+    // off the live aggregates; plugins are run over just their own files (see run).
+    private static final class Report {
+        final String name;
+        final List<String> inputs;
+        final int ranking;            // approximate-mode flag, or -1
+        final TableBuilder builder;   // built-in reports
+        final ReportPlugin plugin;    // registered reports
+
+        Report(String name, List<String> inputs, int ranking, TableBuilder builder, ReportPlugin plugin) {
+            this.name = name;
+            this.inputs = inputs;
+            this.ranking = ranking;
+            this.builder = builder;
+            this.plugin = plugin;
+        }
+    }
+
+    private interface TableBuilder {
+        ReportTable build(Aggregates a, DecimalFormat money);
+    }
+
+    // Every report by name, in the order the Reports screen and the batch runner list them.
+    private static final Map<String, Report> REPORTS = new LinkedHashMap<>();
+
+    static {
+        // Appointments
+        builtIn("Appointments - Total by Day", APPTS, -1, (a, m) -> counts(new String[]{"Date", "Appointments"}, a.apptByDay));
+        builtIn("Appointments - Status Breakdown", APPTS, -1, (a, m) -> counts(new String[]{"Status", "Count"}, a.apptByStatus));
+        builtIn("Appointments - By Doctor", APPTS, -1, (a, m) -> counts(new String[]{"Doctor", "Appointments"}, a.apptByDoctor));
+        builtIn("Appointments - By Specialization", APPTS, -1, (a, m) -> counts(new String[]{"Specialization", "Appointments"}, a.apptBySpec));
+        builtIn("Appointments - By Shift", APPTS, -1, (a, m) -> counts(new String[]{"Shift", "Appointments"}, a.apptByShift));
+        // Treatments
+        builtIn("Treatment - Average Bill", RECS, -1, Aggregates::averageBill);
+        builtIn("Treatment - Top 5 Treatments (by frequency)", RECS, TREATMENT_RANKING, (a, m) -> a.topTreatments(false, m));
+        builtIn("Treatment - Top 5 Treatments (by revenue)", RECS, TREATMENT_RANKING, (a, m) -> a.topTreatments(true, m));
+        builtIn("Treatment - Common Diagnoses", RECS, DIAGNOSIS_RANKING, (a, m) -> a.diagnosisSketch != null
+                ? approxRanked(new String[]{"Diagnosis", "Count (approx.)", "Max Overcount"}, a.diagnosisSketch)
+                : ranked(new String[]{"Diagnosis", "Count"}, a.diagnoses));
+        builtIn("Treatment - Prescription Trends", RECS, MEDICATION_RANKING, (a, m) -> a.medicationSketch != null
+                ? approxRanked(new String[]{"Medication", "Prescribed Count (approx.)", "Max Overcount"}, a.medicationSketch)
+                : ranked(new String[]{"Medication", "Prescribed Count"}, a.medications));
+        // Finance
+        register(new PaymentReports.TotalIncome());
+        builtIn("Finance - Expected vs Actual", RECS_PAYS, -1, Aggregates::expectedVsActual);
+        builtIn("Finance - By Doctor", ALL, -1, (a, m) -> amounts(new String[]{"Doctor", "Collected Income"}, a.collectedByDoctorName, m));
+        builtIn("Finance - By Specialization", ALL, -1, (a, m) -> amounts(new String[]{"Specialization", "Collected Income"}, a.collectedBySpecName, m));
+        register(new PaymentReports.ByMethod());
+        // Cross
+        builtIn("Cross - Unpaid Appointments (expected > 0, no payment)", ALL, -1, Aggregates::unpaid);
+        builtIn("Cross - Revenue Summary by Doctor (expected & collected)", ALL, -1, Aggregates::revenueByDoctor);
+        builtIn("Cross - Revenue Summary by Specialization (expected & collected)", ALL, -1, Aggregates::revenueBySpec);
+        register(new PaymentReports.TopPatients());
+        // Distributions
+        builtIn("Distribution - Bill Amount Percentiles", APPTS_RECS, -1, (a, m) -> percentiles(
+                new String[]{"Group", "Bills", "p50", "p90", "p99"},
+                a.bills, a.billsByDoctor, a.billsBySpec, v -> m.format(v / 100.0)));
+        builtIn("Distribution - Booking Lead Time Percentiles", APPTS, -1, (a, m) -> percentiles(
+                new String[]{"Group", "Appointments", "p50 (hours)", "p90 (hours)", "p99 (hours)"},
+                a.leadTimes, a.leadByDoctor, a.leadBySpec, v -> String.format("%.1f", v / 60.0)));
+
+        // Reports of other modules on the class path
+        try {
+            for (ReportPlugin plugin : ServiceLoader.load(ReportPlugin.class)) register(plugin);
+        } catch (ServiceConfigurationError e) {
+            System.err.println("Error loading report plugins: " + e.getMessage());
+        }
+    }
+
+    private static void builtIn(String name, List<String> inputs, int ranking, TableBuilder builder) {
+        REPORTS.put(name, new Report(name, inputs, ranking, builder, null));
+    }
+
+    // Adds a report to the list, or replaces the one of the same name. It is computed from its own files only.
+    public static void register(ReportPlugin plugin) {
+        Report r = new Report(plugin.name(), List.copyOf(plugin.columns().keySet()), -1, null, plugin);
+        synchronized (REPORTS) { REPORTS.put(r.name, r); }
+    }
+
+    // Names of all reports, built-in and registered, in list order.
+    public static String[] reportTypes() {
+        synchronized (REPORTS) { return REPORTS.keySet().toArray(new String[0]); }
+    }
+
+    private static Report report(String type) {
+        synchronized (REPORTS) { return REPORTS.get(type); }
+    }
+
+    private static List<Report> builtInReports() {
+        List<Report> out = new ArrayList<>();
+        synchronized (REPORTS) {
+            for (Report r : REPORTS.values()) if (r.builder != null) out.add(r);
+        }
+        return out;
+    }
+
+    // Created on first use, so the Reports screen can open (and show a snapshot) before any data is loaded.
+    private static final class Holder {
+        static final ReportEngine INSTANCE = new ReportEngine();
+    }
+
+    // Replaced (never edited) on change, so it can be read without the lock while a rebuild runs.
+    private static volatile boolean[] approximate = new boolean[3];
+
+    private static final Map<String, ReportTable> tableCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ReportTable> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final Map<String, DataStore.Table> inputs = new HashMap<>();
+    private final Object joinLock = new Object();
+    private final Object rebuildLock = new Object();   // one full rebuild at a time; taken before the engine lock
+    private volatile boolean joined;
+    private Aggregates live;   // created with the join, when a built-in report is first needed
+    private boolean dirty = true;
+    private boolean applying;   // changing() took the old row back, changed() adds the new one
+    private long version;
+    private Result cached;
+    private long cachedVersion = -1;
+
+    private ReportEngine() {}
+
+    // Returns the shared engine. Nothing is loaded until a report needs it: a plugin report loads only its
+    // own files, the built-in reports load the three input files (through JoinIndex) on first use.
+    public static ReportEngine get() {
+        return Holder.INSTANCE;
+    }
+
+    // Attaches the live aggregates to JoinIndex, loading the three files, the first time it is called.
+    // Runs outside the engine lock: loading goes through the store, whose lock is taken first.
+    private void join() {
+        if (joined) return;
+        synchronized (joinLock) {
+            if (joined) return;
+            JoinIndex joins = JoinIndex.get();
+            synchronized (this) { live = new Aggregates(joins, approximate, false); }
+            joins.addListener(this);   // replays reloaded: the first result() rebuilds
+            joined = true;
+        }
+    }
+
+    // Runs all reports over the given rows (e.g. DataStore table rows; they are only read).
+    public static Result compute(List<String[]> appointments, List<String[]> records, List<String[]> payments) {
+        Aggregates agg = new Aggregates(JoinIndex.of(appointments, records, payments), new boolean[3], false);
+        agg.rebuild(appointments, records, payments, p -> { });
+        return agg.toResult();
+    }
+
+    // ---------------- LIVE RESULT ----------------
+    // Current report tables. Built from the running aggregates and reused until the next change.
+    public Result result() {
+        return result(p -> { });
+    }
+
+    // Same, reporting 0-100 to 'progress' while a full rebuild is needed (nothing is reported otherwise).
+    // Holds the built-in reports only; plugin reports are computed by table().
+    // A rebuild fills new aggregates outside the engine lock, so edits are not held up behind it, and swaps
+    // them in only if nothing changed meanwhile. Otherwise the edits went to the old aggregates and were
+    // not replayed: the new ones still answer this call, but the engine stays dirty for the next.
+    public Result result(IntConsumer progress) {
+        join();
+        synchronized (rebuildLock) {
+            Aggregates fresh;
+            DataStore.Table appts, records, payments;
+            long seen;
+            synchronized (this) {
+                if (!dirty) {
+                    if (cached == null || cachedVersion != version) {
+                        cached = live.toResult();
+                        cachedVersion = version;
+                    }
+                    return cached;
+                }
+                fresh = new Aggregates(live.joins, approximate, false);
+                appts = inputs.get(DataStore.APPOINTMENTS_FILE);
+                records = inputs.get(DataStore.RECORDS_FILE);
+                payments = inputs.get(DataStore.PAYMENTS_FILE);
+                seen = version;
+            }
+            fresh.rebuild(rowsOf(appts), rowsOf(records), rowsOf(payments), progress);   // rows() takes the table lock
+            synchronized (this) {
+                if (version != seen) return fresh.toResult();
+                live = fresh;
+                dirty = false;
+                cached = live.toResult();
+                cachedVersion = version;
+                return cached;
+            }
+        }
+    }
+
+    // One report's table, from the cache when none of that report's input files changed.
+    public ReportTable table(String type, IntConsumer progress) {
+        String key = cacheKey(type);
+        synchronized (tableCache) {
+            ReportTable hit = tableCache.get(key);
+            if (hit != null) return hit;
+        }
+        Report r = report(type);
+        ReportTable t = r != null && r.plugin != null ? run(r.plugin, null, null, progress) : result(progress).get(type);
+        if (t != null) {
+            synchronized (tableCache) { tableCache.put(key, t); }
+        }
+        return t;
+    }
+
+    // One report over rows dated from..to (inclusive; null for an open end). Appointments are filtered by
+    // appointment date, records by record date and payments by payment date, using TimeIndex so only those
+    // days are read. Doctor, specialization and paid/unpaid lookups go through JoinIndex and still see all rows.
+    // One computation fills the cache for every report type of that range.
+    public ReportTable table(String type, LocalDate from, LocalDate to, IntConsumer progress) {
+        if (from == null && to == null) return table(type, progress);
+        String key = cacheKey(type, from, to);
+        synchronized (tableCache) {
+            ReportTable hit = tableCache.get(key);
+            if (hit != null) return hit;
+        }
+        Report r = report(type);
+        if (r != null && r.plugin != null) {
+            ReportTable t = run(r.plugin, from, to, progress);
+            synchronized (tableCache) { tableCache.put(key, t); }
+            return t;
+        }
+        return rangeResult(from, to, progress).get(type);
+    }
+
+    // Pivot of one cube measure, rows by rowDim and columns by colDim (-1 for totals only), over the cells
+    // matching the filter (dimension -> member) and rows dated from..to. Cached like the other reports.
+    public ReportTable pivot(int rowDim, int colDim, int measure, Map<Integer, String> filter,
+                             LocalDate from, LocalDate to, IntConsumer progress) {
+        String key = pivotKey(rowDim, colDim, measure, filter, from, to);
+        synchronized (tableCache) {
+            ReportTable hit = tableCache.get(key);
+            if (hit != null) return hit;
+        }
+        Result res = from == null && to == null ? result(progress) : rangeResult(from, to, progress);
+        ReportTable t = res.cube().pivot(rowDim, colDim, measure, filter);
+        synchronized (tableCache) { tableCache.put(key, t); }
+        return t;
+    }
+
+    // Cache key of a pivot: all three input files plus the query.
+    public static String pivotKey(int rowDim, int colDim, int measure, Map<Integer, String> filter, LocalDate from, LocalDate to) {
+        return cacheKey(PIVOT, from, to) + "|" + rowDim + "x" + colDim + "|" + measure + "|" + new TreeMap<>(filter);
+    }
+
+    // Every built-in report over rows dated from..to, computed in one go; each table goes into the cache.
+    private Result rangeResult(LocalDate from, LocalDate to, IntConsumer progress) {
+        List<Report> reports = builtInReports();
+        Map<String, String> keys = new HashMap<>();
+        for (Report r : reports) keys.put(r.name, cacheKey(r.name, from, to));   // outside the engine lock: reads the store
+
+        TimeIndex idx = TimeIndex.get();
+        List<String[]> appts = idx.between(DataStore.APPOINTMENTS_FILE, from, to);
+        List<String[]> records = idx.between(DataStore.RECORDS_FILE, from, to);
+        List<String[]> payments = idx.between(DataStore.PAYMENTS_FILE, from, to);
+
+        // A private set of aggregates, so no lock: JoinIndex takes its own and the engine's is not needed.
+        Aggregates agg = new Aggregates(JoinIndex.get(), approximate, true);
+        agg.rebuild(appts, records, payments, p -> { });
+        Result res = agg.toResult();
+        synchronized (tableCache) {
+            for (Report r : reports) tableCache.put(keys.get(r.name), res.get(r.name));
+        }
+        return res;
+    }
+
+    // Runs a plugin over its own files: rows dated from..to (TimeIndex's date fields; all rows for other files
+    // or without a range), each cut down to the requested fields. DataStore.scan filters a file that is
+    // already loaded in memory and otherwise reads it with the projection and date range pushed into the
+    // scanner, so a plugin report does not even load its own files.
+    private static ReportTable run(ReportPlugin plugin, LocalDate from, LocalDate to, IntConsumer progress) {
+        Map<String, int[]> columns = plugin.columns();
+        ReportPlugin.Run run = plugin.start();
+        int done = 0;
+        progress.accept(0);
+        for (Map.Entry<String, int[]> e : columns.entrySet()) {
+            String file = e.getKey();
+            PipeRecordReader.Query q = new PipeRecordReader.Query().select(e.getValue());
+            int dateField = TimeIndex.dateField(file);
+            if ((from != null || to != null) && dateField >= 0) {
+                q.whereBetween(dateField, from == null ? null : from.toString(), to == null ? null : to.toString());
+            }
+            try {
+                DataStore.get().scan(file, q, row -> run.row(file, row));
+            } catch (IOException ex) {
+                System.err.println("Error reading " + file + " for " + plugin.name() + ": " + ex.getMessage());
+            }
+            progress.accept(++done * 100 / columns.size());
+        }
+        return run.table();
+    }
+
+    // ---------------- APPROXIMATE RANKINGS ----------------
+    // True for the ranking reports (treatments, diagnoses, prescriptions) that offer an approximate mode.
+    public static boolean supportsApproximate(String type) {
+        Report r = report(type);
+        return r != null && r.ranking >= 0;
+    }
+
+    // Current mode of a report; reads the shared engine's flags without loading anything.
+    public static boolean isApproximate(String type) {
+        Report r = report(type);
+        return r != null && r.ranking >= 0 && approximate[r.ranking];
+    }
+
+    // Switches a ranking between exact counts and the bounded-memory sketch. Both treatment reports share
+    // one setting. The aggregates are rebuilt on next use, so the exact maps are not kept alongside.
+    public synchronized void setApproximate(String type, boolean on) {
+        Report r = report(type);
+        if (r == null || r.ranking < 0 || approximate[r.ranking] == on) return;
+        boolean[] flags = approximate.clone();
+        flags[r.ranking] = on;
+        approximate = flags;
+        if (live != null) live.approximate = flags;
+        dirty = true;
+        version++;
+    }
+
+    // Puts tables computed elsewhere (a saved snapshot) into the cache under their cache keys. Loads nothing:
+    // a key whose files have changed since no longer comes up, so a stale entry is simply never served.
+    public static void preload(Map<String, ReportTable> tables) {
+        synchronized (tableCache) { tableCache.putAll(tables); }
+    }
+
+    // {from, to} of a named period (either may be null for an open end), relative to today; null for
+    // "Custom range" and unknown names.
+    public static LocalDate[] periodRange(String period, LocalDate today) {
+        switch (period) {
+            case "All time" -> { return new LocalDate[]{null, null}; }
+            case "Last 7 days" -> { return new LocalDate[]{today.minusDays(6), today}; }
+            case "Last 30 days" -> { return new LocalDate[]{today.minusDays(29), today}; }
+            case "This month" -> { return new LocalDate[]{today.withDayOfMonth(1), today.withDayOfMonth(today.lengthOfMonth())}; }
+            case "This year" -> { return new LocalDate[]{today.withDayOfYear(1), today.withDayOfYear(today.lengthOfYear())}; }
+            default -> { return null; }
+        }
+    }
+
+    // Report type plus the current stamp of each file it reads; changes exactly when one of those files does.
+    public static String cacheKey(String type) {
+        Report r = report(type);
+        StringBuilder key = new StringBuilder(type);
+        for (String file : r == null ? ALL : r.inputs) key.append('|').append(DataStore.get().stamp(file));
+        if (isApproximate(type)) key.append("|approx");
+        return key.toString();
+    }
+
+    // Same, for a date range.
+    public static String cacheKey(String type, LocalDate from, LocalDate to) {
+        return from == null && to == null ? cacheKey(type) : cacheKey(type) + "|" + from + ".." + to;
+    }
+
+    private static List<String[]> rowsOf(DataStore.Table t) {
+        return t == null ? Collections.emptyList() : t.rows();
+    }
+
+    // ---------------- JOIN LISTENER ----------------
+    @Override
+    public synchronized void reloaded(DataStore.Table table) {
+        inputs.put(table.fileName(), table);
+        dirty = true;
+        version++;
+    }
+
+    @Override
+    public synchronized void changing(DataStore.Table table, String[] oldRow, String[] newRow) {
+        if (dirty) return;   // a rebuild is pending anyway
+        applying = true;
+        live.changing(table.fileName(), oldRow, newRow);
+    }
+
+    @Override
+    public synchronized void changed(DataStore.Table table, String[] oldRow, String[] newRow) {
+        version++;
+        boolean apply = applying && !dirty;
+        applying = false;
+        if (apply) live.changed(table.fileName(), oldRow, newRow);
+        else dirty = true;   // the old row was not taken back (e.g. a rebuild ran in between): start over
+    }
+
+    // ---------------- RESULT ----------------
+    // Column names plus rows of one report, ready for DefaultTableModel.setDataVector.
+    public static final class ReportTable {
+        public final String[] columns;
+        public final Object[][] rows;
+
+        public ReportTable(String[] columns, List<Object[]> rows) {
+            this.columns = columns;
+            this.rows = rows.toArray(new Object[0][]);
+        }
+    }
+
+    // All built-in report tables of one computation, by report type.
+    public static final class Result {
+        private final Map<String, ReportTable> tables = new HashMap<>();
+        private ReportCube cube;
+
+        // The table for a report type, or null for an unknown type.
+        public ReportTable get(String type) {
+            return tables.get(type);
+        }
+
+        // The cube of the same rows (a copy; only read).
+        public ReportCube cube() {
+            return cube;
+        }
+    }
+
+    // ---------------- AGGREGATES ----------------
+    // A running total together with how many rows contributed to it, so a group disappears with its last row.
+    private static final class Sum {
+        double total;
+        int n;
+    }
+
+    // Running totals for every report. Every contribution can be added (+1) or taken back (-1),
+    // which is how an edited row is applied: take back the old row, add the new one.
+    // Doctor, specialization and payment lookups go through 'joins'. Aggregates over a subset of the rows
+    // (a date range) also keep their own records per appointment, so unpaid amounts only count those rows.
+    // Partial aggregates of a parallel rebuild are merged into their parent.
+    private static final class Aggregates {
+        final JoinIndex joins;
+        final Map<String, List<String[]>> ownRecords;   // null when every row is covered: joins has them all
+
+        // appointments
+        final Map<String, Integer> apptByDay = new TreeMap<>();
+        final Map<String, Integer> apptByStatus = new HashMap<>();
+        final Map<String, Integer> apptByDoctor = new HashMap<>();
+        final Map<String, Integer> apptBySpec = new HashMap<>();
+        final Map<String, Integer> apptByShift = new HashMap<>();
+        final Map<String, Integer> diagnoses = new HashMap<>();
+        final Map<String, Integer> medications = new HashMap<>();
+
+        // records
+        double billSum;
+        int billCount;
+        final Map<String, Sum> treatments = new HashMap<>();   // n = frequency, total = estimated revenue
+        // approximate-mode replacements for treatments / diagnoses / medications (null in exact mode)
+        boolean[] approximate;
+        TopKSketch treatmentFreqSketch, treatmentRevenueSketch, diagnosisSketch, medicationSketch;
+        // During a rebuild: the thread running it (its chunks add into this instance's sketches) and a
+        // sketch set per pool thread that scans chunks, folded in once the scan is done. Sketches are
+        // then allocated per worker, not per chunk, however large the input grows.
+        private Thread rebuilding;
+        private final Map<Thread, TopKSketch[]> workerSketches = new ConcurrentHashMap<>();
+        final Map<String, Sum> expectedByDoctorId = new HashMap<>();
+        final Map<String, Sum> expectedBySpec = new HashMap<>();
+        final Set<String> unpaidAppts = new LinkedHashSet<>();  // has a record with amount > 0 and no payment
+
+        // payments
+        double collected;
+        final Map<String, Sum> collectedByDoctorName = new HashMap<>();
+        final Map<String, Sum> collectedBySpecName = new HashMap<>();
+        final Map<String, Sum> collectedByDoctorId = new HashMap<>();
+        final Map<String, Sum> collectedBySpec = new HashMap<>();
+
+        // distributions: bill amounts in cents, lead time (booking to appointment) in minutes
+        LogHistogram bills = new LogHistogram(), leadTimes = new LogHistogram();
+        final Map<String, LogHistogram> billsByDoctor = new HashMap<>();
+        final Map<String, LogHistogram> billsBySpec = new HashMap<>();
+        final Map<String, LogHistogram> leadByDoctor = new HashMap<>();
+        final Map<String, LogHistogram> leadBySpec = new HashMap<>();
+
+        // all three, by doctor / specialization / shift / month / payment method
+        final ReportCube cube = new ReportCube();
+
+        Aggregates(JoinIndex joins, boolean[] approximate, boolean subset) {
+            this.joins = joins;
+            this.approximate = approximate;
+            this.ownRecords = subset ? new HashMap<>() : null;
+            newSketches();
+        }
+
+        // Partial aggregates for one chunk of a rebuild; its sketches are those of the scanning thread.
+        private Aggregates(Aggregates parent) {
+            this.joins = parent.joins;
+            this.approximate = parent.approximate;
+            this.ownRecords = parent.ownRecords == null ? null : new HashMap<>();
+            Thread t = Thread.currentThread();
+            useSketches(t == parent.rebuilding ? parent.sketches()
+                    : parent.workerSketches.computeIfAbsent(t, k -> newSketchSet(approximate)));
+        }
+
+        private void newSketches() {
+            useSketches(newSketchSet(approximate));
+        }
+
+        private static TopKSketch[] newSketchSet(boolean[] approximate) {
+            return new TopKSketch[]{
+                    approximate[TREATMENT_RANKING] ? sketch() : null,
+                    approximate[TREATMENT_RANKING] ? sketch() : null,
+                    approximate[DIAGNOSIS_RANKING] ? sketch() : null,
+                    approximate[MEDICATION_RANKING] ? sketch() : null};
+        }
+
+        private TopKSketch[] sketches() {
+            return new TopKSketch[]{treatmentFreqSketch, treatmentRevenueSketch, diagnosisSketch, medicationSketch};
+        }
+
+        private void useSketches(TopKSketch[] s) {
+            treatmentFreqSketch = s[0];
+            treatmentRevenueSketch = s[1];
+            diagnosisSketch = s[2];
+            medicationSketch = s[3];
+        }
+
+        private static TopKSketch sketch() {
+            return new TopKSketch(SKETCH_EPSILON, SKETCH_DELTA, SKETCH_CANDIDATES);
+        }
+
+        // Full recomputation: one pass per table. The joins must already cover the rows.
+        void rebuild(List<String[]> appts, List<String[]> records, List<String[]> payments, IntConsumer progress) {
+            clear();
+            Progress p = new Progress(progress, (long) appts.size() + records.size() + payments.size());
+            progress.accept(0);
+            rebuilding = Thread.currentThread();
+            merge(new Scan(this, APPOINTMENT_ROWS, appts, 0, appts.size(), p).invoke());
+            merge(new Scan(this, RECORD_ROWS, records, 0, records.size(), p).invoke());
+            merge(new Scan(this, PAYMENT_ROWS, payments, 0, payments.size(), p).invoke());
+            rebuilding = null;
+            for (TopKSketch[] s : workerSketches.values()) {
+                if (treatmentFreqSketch != null) treatmentFreqSketch.merge(s[0]);
+                if (treatmentRevenueSketch != null) treatmentRevenueSketch.merge(s[1]);
+                if (diagnosisSketch != null) diagnosisSketch.merge(s[2]);
+                if (medicationSketch != null) medicationSketch.merge(s[3]);
+            }
+            workerSketches.clear();
+            for (String[] r : records) refreshUnpaid(r[0]);   // first record decides the listing order
+            progress.accept(100);
+        }
+
+        // Adds one row of the given kind into these (partial) aggregates.
+        void scanRow(int kind, String[] row) {
+            switch (kind) {
+                case APPOINTMENT_ROWS -> appointment(row, +1);
+                case RECORD_ROWS -> {
+                    if (ownRecords != null) ownRecords.computeIfAbsent(row[0], k -> new ArrayList<>()).add(row);
+                    record(row, +1);
+                }
+                default -> payment(row, +1);
+            }
+        }
+
+        // Folds in the aggregates of rows that come after this instance's rows in the file. Sketches are left
+        // out: a chunk's sketch additions already went into its thread's set (see rebuild).
+        void merge(Aggregates o) {
+            for (Map.Entry<Map<String, Integer>, Map<String, Integer>> e : List.of(
+                    Map.entry(apptByDay, o.apptByDay), Map.entry(apptByStatus, o.apptByStatus),
+                    Map.entry(apptByDoctor, o.apptByDoctor), Map.entry(apptBySpec, o.apptBySpec),
+                    Map.entry(apptByShift, o.apptByShift), Map.entry(diagnoses, o.diagnoses),
+                    Map.entry(medications, o.medications))) {
+                Map<String, Integer> into = e.getKey();
+                e.getValue().forEach((k, v) -> into.merge(k, v, Integer::sum));
+            }
+            for (Map.Entry<Map<String, Sum>, Map<String, Sum>> e : List.of(
+                    Map.entry(treatments, o.treatments), Map.entry(expectedByDoctorId, o.expectedByDoctorId),
+                    Map.entry(expectedBySpec, o.expectedBySpec), Map.entry(collectedByDoctorName, o.collectedByDoctorName),
+                    Map.entry(collectedBySpecName, o.collectedBySpecName),
+                    Map.entry(collectedByDoctorId, o.collectedByDoctorId), Map.entry(collectedBySpec, o.collectedBySpec))) {
+                Map<String, Sum> into = e.getKey();
+                e.getValue().forEach((k, v) -> {
+                    Sum s = into.computeIfAbsent(k, x -> new Sum());
+                    s.total += v.total;
+                    s.n += v.n;
+                });
+            }
+            cube.merge(o.cube);
+            bills.merge(o.bills);
+            leadTimes.merge(o.leadTimes);
+            for (Map.Entry<Map<String, LogHistogram>, Map<String, LogHistogram>> e : List.of(
+                    Map.entry(billsByDoctor, o.billsByDoctor), Map.entry(billsBySpec, o.billsBySpec),
+                    Map.entry(leadByDoctor, o.leadByDoctor), Map.entry(leadBySpec, o.leadBySpec))) {
+                Map<String, LogHistogram> into = e.getKey();
+                e.getValue().forEach((k, h) -> into.computeIfAbsent(k, x -> new LogHistogram()).merge(h));
+            }
+            if (ownRecords != null) o.ownRecords.forEach((k, l) -> ownRecords.computeIfAbsent(k, x -> new ArrayList<>()).addAll(l));
+            billSum += o.billSum;
+            billCount += o.billCount;
+            collected += o.collected;
+        }
+
+        private void clear() {
+            for (Map<?, ?> m : List.of(apptByDay, apptByStatus, apptByDoctor, apptBySpec, apptByShift, diagnoses,
+                    medications, treatments, expectedByDoctorId, expectedBySpec, collectedByDoctorName, collectedBySpecName,
+                    collectedByDoctorId, collectedBySpec,
+                    billsByDoctor, billsBySpec, leadByDoctor, leadBySpec)) {
+                m.clear();
+            }
+            bills = new LogHistogram();
+            leadTimes = new LogHistogram();
+            if (ownRecords != null) ownRecords.clear();
+            cube.clear();
+            unpaidAppts.clear();
+            newSketches();
+            billSum = collected = 0;
+            billCount = 0;
+        }
+
+        // ---------------- DELTAS ----------------
+        // Only for aggregates covering every row. A change is applied in two steps around the join update:
+        // changing() takes back everything attributed through the old join, changed() adds it back through the
+        // new one. Records and payments hang off their appointment, and payments fall back to the record's
+        // doctor when the appointment is gone, so those are re-attributed along with it.
+        void changing(String file, String[] oldRow, String[] newRow) {
+            String[] any = newRow != null ? newRow : oldRow;
+            switch (file) {
+                case DataStore.APPOINTMENTS_FILE -> {
+                    attached(any[0], -1);
+                    if (oldRow != null) appointment(oldRow, -1);
+                }
+                case DataStore.RECORDS_FILE -> attached(any[0], -1);   // sibling records may name the doctor
+                default -> {
+                    if (oldRow != null) payment(oldRow, -1);
+                }
+            }
+        }
+
+        void changed(String file, String[] oldRow, String[] newRow) {
+            String[] any = newRow != null ? newRow : oldRow;
+            switch (file) {
+                case DataStore.APPOINTMENTS_FILE -> {
+                    if (newRow != null) appointment(newRow, +1);
+                    attached(any[0], +1);
+                }
+                case DataStore.RECORDS_FILE -> {
+                    attached(any[0], +1);
+                    refreshUnpaid(any[0]);
+                }
+                default -> {
+                    if (newRow != null) payment(newRow, +1);
+                    if (oldRow != null && oldRow.length > 1) refreshUnpaid(oldRow[1]);
+                    if (newRow != null && newRow.length > 1) refreshUnpaid(newRow[1]);
+                }
+            }
+        }
+
+        private void attached(String apptId, int sign) {
+            for (String[] r : joins.records(apptId)) record(r, sign);
+            paymentsOf(apptId, sign);
+        }
+
+        private void paymentsOf(String apptId, int sign) {
+            for (String[] p : joins.payments(apptId)) payment(p, sign);
+        }
+
+        private List<String[]> recordsOf(String apptId) {
+            return ownRecords == null ? joins.records(apptId) : ownRecords.getOrDefault(apptId, Collections.emptyList());
+        }
+
+        private void refreshUnpaid(String apptId) {
+            boolean owes = false;
+            for (String[] r : recordsOf(apptId)) {
+                if (parseAmountSafe(r, 6) > 0.0) { owes = true; break; }
+            }
+            if (owes && !joins.isPaid(apptId)) unpaidAppts.add(apptId);
+            else unpaidAppts.remove(apptId);
+        }
+
+        // ---------------- CONTRIBUTIONS ----------------
+        private void appointment(String[] a, int sign) {
+            if (a.length > 4 && !empty(a[4])) count(apptByDay, a[4], sign);
+            if (a.length > 12) count(apptByStatus, a[12].isBlank() ? "Unknown" : a[12], sign);
+            if (a.length > 7) count(apptByDoctor, a[7].isBlank() ? a[6] : a[7], sign);
+            if (a.length > 8) count(apptBySpec, a[8].isBlank() ? "Unknown" : a[8], sign);
+            if (a.length > 9) count(apptByShift, a[9].isBlank() ? "Unknown" : a[9], sign);
+            String doctor = a.length > 7 ? (a[7].isBlank() ? a[6] : a[7]) : (a.length > 6 ? a[6] : "Unknown");
+            String spec = a.length > 8 && !empty(a[8]) ? a[8] : "Unknown";
+            cube.add(List.of(doctor, spec, a.length > 9 && !empty(a[9]) ? a[9] : "Unknown",
+                    monthOf(a, 4), ReportCube.NONE), ReportCube.APPOINTMENTS, 1, sign);
+
+            // lead time: booked at (field 10, "yyyy-MM-dd HH:mm[:ss]") to the appointment's date and time
+            long booked = a.length > 10 && a[10].trim().length() >= 16 ? minutesOf(a[10].trim().substring(0, 10), a[10].trim().substring(11)) : -1;
+            long due = a.length > 5 ? minutesOf(a[4], a[5]) : -1;
+            if (booked >= 0 && due >= booked) {
+                leadTimes.add(due - booked, sign);
+                histogram(leadByDoctor, doctor, due - booked, sign);
+                histogram(leadBySpec, spec, due - booked, sign);
+            }
+        }
+
+        private void record(String[] r, int sign) {
+            double amount = parseAmountSafe(r, 6);
+            if (r.length > 6 && !empty(r[6])) {
+                try {
+                    double bill = Double.parseDouble(r[6]);
+                    billSum += sign * bill;
+                    billCount += sign;
+                    long cents = Math.round(bill * 100);
+                    bills.add(cents, sign);
+                    histogram(billsByDoctor, doctorNameOf(r[0]), cents, sign);
+                    histogram(billsBySpec, specOf(r[0], "Unknown"), cents, sign);
+                } catch (NumberFormatException ignored) {
+                }
+            }
+
+            // treatments are semicolon-separated; revenue is split equally between them
+            String treatmentList = r.length > 7 ? r[7] : "";
+            if (!empty(treatmentList)) {
+                String[] parts = treatmentList.split(";");
+                double per = parts.length > 0 ? amount / parts.length : 0.0;
+                for (String t : parts) {
+                    String key = t.trim();
+                    if (key.isEmpty()) continue;
+                    if (treatmentFreqSketch != null) {
+                        treatmentFreqSketch.add(key, sign);
+                        treatmentRevenueSketch.add(key, sign * per);
+                    } else {
+                        add(treatments, key, per, sign);
+                    }
+                }
+            }
+
+            String diag = r.length > 8 ? r[8] : "";
+            if (!empty(diag)) {
+                if (diagnosisSketch != null) diagnosisSketch.add(diag.trim(), sign);
+                else count(diagnoses, diag.trim(), sign);
+            }
+
+            // prescription format example: "Paracetamol~Twice~After Meal"
+            String pres = r.length > 9 ? r[9] : "";
+            if (!empty(pres)) {
+                for (String p : pres.split(";")) {
+                    String med = p.split("~", 2)[0].trim();
+                    if (med.isEmpty()) continue;
+                    if (medicationSketch != null) medicationSketch.add(med, sign);
+                    else count(medications, med, sign);
+                }
+            }
+
+            add(expectedByDoctorId, r.length > 2 ? r[2] : "Unknown", amount, sign);
+            add(expectedBySpec, specOf(r[0], "Unknown"), amount, sign);
+            cube.add(List.of(doctorNameOf(r[0]), specOf(r[0], "Unknown"), shiftOf(r[0]), monthOf(r, 4), ReportCube.NONE),
+                    ReportCube.EXPECTED, amount, sign);
+        }
+
+        private void payment(String[] p, int sign) {
+            double amount = parseAmountSafe(p, 3);
+            String apptId = p.length > 1 ? p[1] : "";
+
+            if (p.length > 3) {
+                if (!empty(p[3])) {
+                    try { collected += sign * Double.parseDouble(p[3]); } catch (NumberFormatException ignored) {}
+                }
+                add(collectedByDoctorName, doctorNameOf(apptId), amount, sign);
+                add(collectedBySpecName, specOf(apptId, "Unknown Specialization"), amount, sign);
+            }
+
+            String[] appt = joins.appointment(apptId);
+            add(collectedByDoctorId, appt != null && appt.length > 6 ? appt[6] : "Unknown", amount, sign);
+            add(collectedBySpec, specOf(apptId, "Unknown"), amount, sign);
+            cube.add(List.of(doctorNameOf(apptId), specOf(apptId, "Unknown"), shiftOf(apptId), monthOf(p, 5),
+                    p.length > 4 && !empty(p[4]) ? p[4] : "Unknown"), ReportCube.COLLECTED, amount, sign);
+        }
+
+        private String specOf(String apptId, String fallback) {
+            String[] a = joins.appointment(apptId);
+            if (a == null || a.length <= 8) return fallback;
+            return empty(a[8]) ? "Unknown" : a[8];
+        }
+
+        private String shiftOf(String apptId) {
+            String[] a = joins.appointment(apptId);
+            return a == null || a.length <= 9 || empty(a[9]) ? "Unknown" : a[9];
+        }
+
+        // Doctor name for an appointment; appointments that only exist in the records fall back to the record's doctor ID.
+        private String doctorNameOf(String apptId) {
+            String[] a = joins.appointment(apptId);
+            if (a != null) return a.length > 7 && !empty(a[7]) ? a[7] : (a.length > 6 ? a[6] : "Unknown");
+            List<String[]> recs = joins.records(apptId);
+            if (!recs.isEmpty()) return recs.get(0).length > 2 ? recs.get(0)[2] : "Unknown";
+            return "Unknown Doctor";
+        }
+
+        // ---------------- TABLES ----------------
+        // Every built-in report's table, plus a copy of the cube.
+        Result toResult() {
+            DecimalFormat money = new DecimalFormat("#0.00");
+            Result res = new Result();
+            for (Report r : builtInReports()) res.tables.put(r.name, r.builder.build(this, money));
+            res.cube = cube.copy();
+            return res;
+        }
+
+        private ReportTable averageBill(DecimalFormat money) {
+            List<Object[]> rows = new ArrayList<>();
+            rows.add(new Object[]{"Records considered", billCount});
+            rows.add(new Object[]{"Average Bill", billCount == 0 ? "0.00" : money.format(billSum / billCount)});
+            rows.add(new Object[]{"Total Expected (sum)", money.format(billSum)});
+            return new ReportTable(new String[]{"Metric", "Value"}, rows);
+        }
+
+        private ReportTable expectedVsActual(DecimalFormat money) {
+            List<Object[]> rows = new ArrayList<>();
+            rows.add(new Object[]{"Total Expected (from records)", money.format(billSum)});
+            rows.add(new Object[]{"Total Collected (payments)", money.format(collected)});
+            rows.add(new Object[]{"Outstanding (expected - collected)", money.format(billSum - collected)});
+            return new ReportTable(new String[]{"Metric", "Value"}, rows);
+        }
+
+        private ReportTable unpaid(DecimalFormat money) {
+            List<Object[]> unpaid = new ArrayList<>();
+            for (String apptId : unpaidAppts) {
+                String[] appt = joins.appointment(apptId);
+                for (String[] r : recordsOf(apptId)) {
+                    double amount = parseAmountSafe(r, 6);
+                    if (amount <= 0.0) continue;
+                    String[] a = appt != null ? appt : new String[]{apptId, "", "", "", "", "", "", "Unknown Doctor", "Unknown Spec"};
+                    String patient = (a.length > 2 ? a[2] : "") + " " + (a.length > 3 ? a[3] : "");
+                    String doctor = a.length > 7 ? a[7] : (r.length > 2 ? r[2] : "Unknown");
+                    unpaid.add(new Object[]{apptId, patient.trim(), doctor, money.format(amount)});
+                }
+            }
+            return new ReportTable(new String[]{"ApptID", "Patient", "Doctor", "Expected Amount"}, unpaid);
+        }
+
+        private ReportTable revenueByDoctor(DecimalFormat money) {
+            List<Object[]> byDoctor = new ArrayList<>();
+            Set<String> doctors = new HashSet<>(expectedByDoctorId.keySet());
+            doctors.addAll(collectedByDoctorId.keySet());
+            for (String dId : doctors) {
+                double exp = total(expectedByDoctorId, dId), col = total(collectedByDoctorId, dId);
+                byDoctor.add(new Object[]{dId, joins.doctorName(dId), money.format(exp), money.format(col), percent(col, exp, money)});
+            }
+            return new ReportTable(new String[]{"Doctor ID", "Doctor Name", "Expected", "Collected", "Collection %"}, byDoctor);
+        }
+
+        private ReportTable revenueBySpec(DecimalFormat money) {
+            List<Object[]> bySpec = new ArrayList<>();
+            Set<String> specs = new HashSet<>(expectedBySpec.keySet());
+            specs.addAll(collectedBySpec.keySet());
+            for (String k : specs) {
+                double exp = total(expectedBySpec, k), col = total(collectedBySpec, k);
+                bySpec.add(new Object[]{k, money.format(exp), money.format(col), percent(col, exp, money)});
+            }
+            return new ReportTable(new String[]{"Specialization", "Expected", "Collected", "Collection %"}, bySpec);
+        }
+
+        // Top treatments ordered by frequency or by revenue, showing both.
+        private ReportTable topTreatments(boolean byRevenue, DecimalFormat money) {
+            if (treatmentFreqSketch != null) {
+                TopKSketch by = byRevenue ? treatmentRevenueSketch : treatmentFreqSketch;
+                String bound = Math.round(Math.ceil(treatmentFreqSketch.errorBound())) + " / " + money.format(treatmentRevenueSketch.errorBound());
+                List<Object[]> rows = new ArrayList<>();
+                for (Map.Entry<String, Double> e : by.top(TOP_TREATMENTS)) {
+                    String t = e.getKey();
+                    rows.add(new Object[]{t, Math.round(treatmentFreqSketch.estimate(t)), money.format(treatmentRevenueSketch.estimate(t)), bound});
+                }
+                return new ReportTable(new String[]{"Treatment", "Frequency (approx.)", "Estimated Revenue (approx.)", "Max Overcount"}, rows);
+            }
+            List<Map.Entry<String, Sum>> ordered = new ArrayList<>(treatments.entrySet());
+            ordered.sort(byRevenue
+                    ? (a, b) -> Double.compare(b.getValue().total, a.getValue().total)
+                    : (a, b) -> Integer.compare(b.getValue().n, a.getValue().n));
+            List<Object[]> rows = new ArrayList<>();
+            for (Map.Entry<String, Sum> e : ordered.subList(0, Math.min(TOP_TREATMENTS, ordered.size()))) {
+                rows.add(new Object[]{e.getKey(), e.getValue().n, money.format(e.getValue().total)});
+            }
+            return new ReportTable(new String[]{"Treatment", "Frequency", "Estimated Revenue"}, rows);
+        }
+    }
+
+    // ---------------- PARALLEL SCAN ----------------
+    // Scans rows [from, to) of one table into fresh partial aggregates, splitting large ranges in two.
+    private static final class Scan extends RecursiveTask<Aggregates> {
+        private final Aggregates parent;
+        private final int kind;
+        private final List<String[]> rows;
+        private final int from, to;
+        private final Progress progress;
+
+        Scan(Aggregates parent, int kind, List<String[]> rows, int from, int to, Progress progress) {
+            this.parent = parent;
+            this.kind = kind;
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+            this.progress = progress;
+        }
+
+        @Override
+        protected Aggregates compute() {
+            if (to - from <= PARALLEL_CHUNK) {
+                Aggregates part = new Aggregates(parent);
+                for (int i = from; i < to; i++) {
+                    part.scanRow(kind, rows.get(i));
+                    if ((i - from + 1) % PROGRESS_STEP == 0) progress.advance(PROGRESS_STEP);
+                }
+                progress.advance((to - from) % PROGRESS_STEP);
+                return part;
+            }
+            int mid = (from + to) >>> 1;
+            Scan left = new Scan(parent, kind, rows, from, mid, progress);
+            left.fork();
+            Aggregates right = new Scan(parent, kind, rows, mid, to, progress).compute();
+            Aggregates merged = left.join();
+            merged.merge(right);   // left holds the earlier rows
+            return merged;
+        }
+    }
+
+    // Rows done across all chunks, reported as a percentage.
+    private static final class Progress {
+        private final IntConsumer out;
+        private final long total;
+        private final AtomicLong done = new AtomicLong();
+
+        Progress(IntConsumer out, long total) {
+            this.out = out;
+            this.total = Math.max(1, total);
+        }
+
+        void advance(long rows) {
+            if (rows > 0) out.accept((int) (done.addAndGet(rows) * 100 / total));
+        }
+    }
+
+    // ---------------- HELPERS ----------------
+    private static void count(Map<String, Integer> map, String key, int sign) {
+        int n = map.getOrDefault(key, 0) + sign;
+        if (n > 0) map.put(key, n);
+        else map.remove(key);
+    }
+
+    private static void add(Map<String, Sum> map, String key, double amount, int sign) {
+        Sum s = map.computeIfAbsent(key, k -> new Sum());
+        s.total += sign * amount;
+        s.n += sign;
+        if (s.n <= 0) map.remove(key);
+    }
+
+    private static double total(Map<String, Sum> map, String key) {
+        Sum s = map.get(key);
+        return s == null ? 0.0 : s.total;
+    }
+
+    private static ReportTable counts(String[] columns, Map<String, Integer> counts) {
+        List<Object[]> rows = new ArrayList<>(counts.size());
+        counts.forEach((k, v) -> rows.add(new Object[]{k, v}));
+        return new ReportTable(columns, rows);
+    }
+
+    private static ReportTable ranked(String[] columns, Map<String, Integer> counts) {
+        List<Map.Entry<String, Integer>> ordered = new ArrayList<>(counts.entrySet());
+        ordered.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+        List<Object[]> rows = new ArrayList<>(ordered.size());
+        for (Map.Entry<String, Integer> e : ordered) rows.add(new Object[]{e.getKey(), e.getValue()});
+        return new ReportTable(columns, rows);
+    }
+
+    // p50/p90/p99 overall, then per doctor and per specialization (alphabetical).
+    private static ReportTable percentiles(String[] columns, LogHistogram all, Map<String, LogHistogram> byDoctor,
+                                           Map<String, LogHistogram> bySpec, LongFunction<String> format) {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(percentileRow("All", all, format));
+        new TreeMap<>(byDoctor).forEach((k, h) -> rows.add(percentileRow("Doctor: " + k, h, format)));
+        new TreeMap<>(bySpec).forEach((k, h) -> rows.add(percentileRow("Specialization: " + k, h, format)));
+        return new ReportTable(columns, rows);
+    }
+
+    private static Object[] percentileRow(String group, LogHistogram h, LongFunction<String> format) {
+        Object[] row = new Object[2 + PERCENTILES.length];
+        row[0] = group;
+        row[1] = h.count();
+        for (int i = 0; i < PERCENTILES.length; i++) row[2 + i] = format.apply(h.percentile(PERCENTILES[i]));
+        return row;
+    }
+
+    private static void histogram(Map<String, LogHistogram> map, String key, long value, int sign) {
+        LogHistogram h = map.computeIfAbsent(key, k -> new LogHistogram());
+        h.add(value, sign);
+        if (h.count() <= 0) map.remove(key);
+    }
+
+    // Minutes since 1970-01-01 00:00 of a "yyyy-MM-dd" date and "HH:mm[:ss]" time, or -1 when either does
+    // not parse. Done by hand: it runs for every appointment of a rebuild.
+    private static long minutesOf(String date, String time) {
+        String d = date == null ? "" : date.trim(), t = time == null ? "" : time.trim();
+        if (d.length() != 10 || t.length() < 5 || d.charAt(4) != '-' || d.charAt(7) != '-' || t.charAt(2) != ':') return -1;
+        int y = digits(d, 0, 4), mo = digits(d, 5, 7), day = digits(d, 8, 10), h = digits(t, 0, 2), mi = digits(t, 3, 5);
+        if (y < 0 || mo < 1 || mo > 12 || day < 1 || day > 31 || h < 0 || h > 23 || mi < 0 || mi > 59) return -1;
+        try {
+            return LocalDate.of(y, mo, day).toEpochDay() * 1440 + h * 60L + mi;
+        } catch (DateTimeException e) {
+            return -1;
+        }
+    }
+
+    private static int digits(String s, int from, int to) {
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            n = n * 10 + (c - '0');
+        }
+        return n;
+    }
+
+    // Sketch ranking: estimated counts plus how far each may be over (holds with 99% probability).
+    private static ReportTable approxRanked(String[] columns, TopKSketch sketch) {
+        long bound = Math.round(Math.ceil(sketch.errorBound()));
+        List<Object[]> rows = new ArrayList<>();
+        for (Map.Entry<String, Double> e : sketch.top(APPROX_ROWS)) rows.add(new Object[]{e.getKey(), Math.round(e.getValue()), bound});
+        return new ReportTable(columns, rows);
+    }
+
+    private static ReportTable amounts(String[] columns, Map<String, Sum> amounts, DecimalFormat money) {
+        List<Object[]> rows = new ArrayList<>(amounts.size());
+        amounts.forEach((k, s) -> rows.add(new Object[]{k, money.format(s.total)}));
+        return new ReportTable(columns, rows);
+    }
+
+    private static String percent(double collected, double expected, DecimalFormat money) {
+        return expected == 0.0 ? "N/A" : money.format((collected / expected) * 100) + "%";
+    }
+
+    // Safely parse double from array at index, return 0.0 if invalid
+    private static double parseAmountSafe(String[] row, int idx) {
+        if (row == null || row.length <= idx) return 0.0;
+        String s = row[idx];
+        if (empty(s)) return 0.0;
+        try { return Double.parseDouble(s); } catch (NumberFormatException ex) { return 0.0; }
+    }
+
+    // "yyyy-MM" of a date or timestamp field, or "Unknown".
+    private static String monthOf(String[] row, int idx) {
+        String v = row.length > idx && row[idx] != null ? row[idx].trim() : "";
+        if (v.length() < 7 || v.charAt(4) != '-') return "Unknown";
+        for (int i : new int[]{0, 1, 2, 3, 5, 6}) {
+            if (!Character.isDigit(v.charAt(i))) return "Unknown";
+        }
+        return v.substring(0, 7);
+    }
+
+    private static boolean empty(String s) {
+        return s == null || s.trim().isEmpty();
+    }
+}
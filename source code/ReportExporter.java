@@ -0,0 +1,176 @@
+package assignment;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.List;
+
+// Writes report tables and raw data files to CSV or JSON (chosen by the ".json" / other extension).
+// Rows go straight from their source to a buffered writer: report tables from the engine's result,
+// raw tables from DataStore.stream, which reads the data file line by line. Nothing is collected first,
+// so exporting a multi-million-row appointment history needs no more memory than exporting ten rows.
+// The file is written under a temporary name and moved into place once complete.
+public final class ReportExporter {
+
+    // A data file offered for raw export, with names for its pipe-separated fields.
+    public static final class RawTable {
+        public final String label;
+        public final String fileName;
+        public final String[] columns;
+
+        RawTable(String label, String fileName, String... columns) {
+            this.label = label;
+            this.fileName = fileName;
+            this.columns = columns;
+        }
+    }
+
+    public static final List<RawTable> RAW_TABLES = List.of(
+            new RawTable("Appointments", DataStore.APPOINTMENTS_FILE,
+                    "AppointmentID", "PatientID", "FirstName", "LastName", "Date", "Time", "DoctorID", "DoctorName",
+                    "Specialization", "Shift", "BookedAt", "BookedBy", "Status", "CompletedAt"),
+            new RawTable("Receipts", DataStore.PAYMENTS_FILE,
+                    "InvoiceNo", "AppointmentID", "PatientID", "Amount", "Method", "PaidAt", "Staff"),
+            new RawTable("Feedback", DataStore.FEEDBACK_FILE,
+                    "AppointmentID", "DoctorID", "PatientID", "Rating", "Comment")
+    );
+
+    private ReportExporter() {}
+
+    // Exports one report table. Returns the number of rows written.
+    public static long export(ReportEngine.ReportTable table, Path out) throws IOException {
+        return write(out, table.columns, sink -> {
+            for (Object[] row : table.rows) sink.row(row);
+        });
+    }
+
+    // Exports a data file as stored (base file plus pending changes). Returns the number of rows written.
+    public static long export(RawTable table, Path out) throws IOException {
+        return write(out, table.columns, sink -> DataStore.get().stream(table.fileName, sink::row));
+    }
+
+    // ---------------- WRITING ----------------
+    private interface Source {
+        void rows(Sink sink) throws IOException;
+    }
+
+    private static long write(Path out, String[] columns, Source source) throws IOException {
+        Path tmp = out.resolveSibling(out.getFileName() + ".tmp");
+        boolean json = out.getFileName().toString().toLowerCase().endsWith(".json");
+        long n;
+        try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            Sink sink = json ? new JsonSink(w, columns) : new CsvSink(w, columns);
+            try {
+                source.rows(sink);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            sink.finish();
+            n = sink.count;
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING);
+        return n;
+    }
+
+    // Receives rows one at a time. Called from inside scans, so write errors are rethrown unchecked.
+    private abstract static class Sink {
+        final Writer w;
+        final String[] columns;
+        long count;
+
+        Sink(Writer w, String[] columns) {
+            this.w = w;
+            this.columns = columns;
+        }
+
+        void row(Object[] values) {
+            try {
+                writeRow(values);
+                count++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        abstract void writeRow(Object[] values) throws IOException;
+
+        void finish() throws IOException { }
+    }
+
+    // RFC 4180: header line, fields quoted when they hold a comma, quote or line break.
+    private static final class CsvSink extends Sink {
+        CsvSink(Writer w, String[] columns) throws IOException {
+            super(w, columns);
+            writeRow(columns);
+        }
+
+        @Override
+        void writeRow(Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) w.write(',');
+                String v = values[i] == null ? "" : values[i].toString();
+                if (v.indexOf(',') >= 0 || v.indexOf('"') >= 0 || v.indexOf('\n') >= 0 || v.indexOf('\r') >= 0) {
+                    w.write('"');
+                    w.write(v.replace("\"", "\"\""));
+                    w.write('"');
+                } else {
+                    w.write(v);
+                }
+            }
+            w.write("\r\n");
+        }
+    }
+
+    // An array of objects keyed by column name; fields beyond the named columns are "Field<n>".
+    private static final class JsonSink extends Sink {
+        JsonSink(Writer w, String[] columns) throws IOException {
+            super(w, columns);
+            w.write('[');
+        }
+
+        @Override
+        void writeRow(Object[] values) throws IOException {
+            w.write(count == 0 ? "\n  {" : ",\n  {");
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) w.write(", ");
+                string(i < columns.length ? columns[i] : "Field" + (i + 1));
+                w.write(": ");
+                Object v = values[i];
+                if (v instanceof Number) w.write(v.toString());
+                else if (v == null) w.write("null");
+                else string(v.toString());
+            }
+            w.write('}');
+        }
+
+        @Override
+        void finish() throws IOException {
+            w.write(count == 0 ? "]\n" : "\n]\n");
+        }
+
+        private void string(String s) throws IOException {
+            w.write('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '"' -> w.write("\\\"");
+                    case '\\' -> w.write("\\\\");
+                    case '\n' -> w.write("\\n");
+                    case '\r' -> w.write("\\r");
+                    case '\t' -> w.write("\\t");
+                    default -> {
+                        if (c < 0x20) w.write(String.format("\\u%04x", (int) c));
+                        else w.write(c);
+                    }
+                }
+            }
+            w.write('"');
+        }
+    }
+}
@@ -3,26 +3,44 @@ package assignment;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.*;
-import java.text.DecimalFormat;
-import java.util.*;
-import java.util.List;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 public class ReportGenerator extends JPanel {
 
-    private static final String APPOINTMENTS_FILE = "appointments.txt";
-    private static final String RECORDS_FILE = "appointments_records.txt";
-    private static final String PAYMENTS_FILE = "payments.txt";
+    // How often an open report checks whether bookings, records or payments changed underneath it
+    private static final int LIVE_REFRESH_MS = 2000;
 
     private final JComboBox<String> reportTypeBox;
     private final DefaultTableModel reportModel;
     private final JTable reportTable;
-    private final DecimalFormat moneyFmt = new DecimalFormat("#0.00");
+    private final JProgressBar progressBar;
+    private final JComboBox<String> periodBox;
+    private final JTextField fromField = new JTextField(8);
+    private final JTextField toField = new JTextField(8);
+    private final JCheckBox approxBox = new JCheckBox("Approximate");
+    // Pivot view: dimensions and measure of the cube, plus the drill-down path (dimension -> member, in order)
+    private final JPanel pivotBar = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 0));
+    private final JComboBox<String> pivotRowsBox = new JComboBox<>(ReportCube.DIMENSIONS);
+    private final JComboBox<String> pivotColsBox = new JComboBox<>();
+    private final JComboBox<String> pivotMeasureBox = new JComboBox<>(ReportCube.MEASURES);
+    private final JLabel drillLabel = new JLabel();
+    private final LinkedHashMap<Integer, String> drillPath = new LinkedHashMap<>();
+    private String shownKey;
+    private ReportEngine.ReportTable shownTable;
+    // Latest precomputed snapshot (see ReportBatch), and a note shown while one of its tables is on screen
+    private final ReportSnapshot snapshot;
+    private final JLabel snapshotLabel = new JLabel();
+    private SwingWorker<ReportEngine.ReportTable, Void> worker;
+    // Runs only while the panel is part of a window (see addNotify/removeNotify)
+    private final Timer liveRefresh;
 
     public ReportGenerator() {
         setLayout(new BorderLayout(12, 12));
@@ -34,40 +52,60 @@ public class ReportGenerator extends JPanel {
 
         // Top: report chooser + generate + optional export buttons
         JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 6));
-        reportTypeBox = new JComboBox<>(new String[]{
-                // Appointments
-                "Appointments - Total by Day",
-                "Appointments - Status Breakdown",
-                "Appointments - By Doctor",
-                "Appointments - By Specialization",
-                "Appointments - By Shift",
-                // Treatments
-                "Treatment - Average Bill",
-                "Treatment - Top 5 Treatments (by frequency)",
-                "Treatment - Top 5 Treatments (by revenue)",
-                "Treatment - Common Diagnoses",
-                "Treatment - Prescription Trends",
-                // Finance
-                "Finance - Total Income (collected)",
-                "Finance - Expected vs Actual",
-                "Finance - By Doctor",
-                "Finance - By Specialization",
-                "Finance - By Payment Method",
-                // Cross
-                "Cross - Unpaid Appointments (expected > 0, no payment)",
-                "Cross - Revenue Summary by Doctor (expected & collected)",
-                "Cross - Revenue Summary by Specialization (expected & collected)",
-                "Cross - Top Paying Patients"
-        });
+        reportTypeBox = new JComboBox<>(ReportEngine.reportTypes());
+        reportTypeBox.addItem(ReportEngine.PIVOT);
         JButton generateBtn = new JButton("Generate");
-        JButton refreshBtn = new JButton("Refresh Data");
+        JButton exportBtn = new JButton("Export...");
+
+        // Period: rows are picked by appointment, record or payment date depending on the file
+        periodBox = new JComboBox<>(ReportEngine.PERIODS);
+        fromField.setToolTipText("From (yyyy-MM-dd, blank = no limit)");
+        toField.setToolTipText("To (yyyy-MM-dd, blank = no limit)");
+        fromField.setEnabled(false);
+        toField.setEnabled(false);
 
         top.add(new JLabel("Report:"));
         top.add(reportTypeBox);
+        top.add(new JLabel("Period:"));
+        top.add(periodBox);
+        top.add(fromField);
+        top.add(new JLabel("to"));
+        top.add(toField);
         top.add(generateBtn);
-        top.add(refreshBtn);
-
-        add(top, BorderLayout.PAGE_START);
+        top.add(exportBtn);
+
+        // Treatment, diagnosis and prescription rankings can trade exactness for bounded memory
+        approxBox.setToolTipText("Rank with a fixed-size sketch; counts may be over by the shown bound");
+        approxBox.setEnabled(ReportEngine.supportsApproximate((String) reportTypeBox.getSelectedItem()));
+        top.add(approxBox);
+
+        // Shown while a report is being loaded; determinate once the engine reports how far it is
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setPreferredSize(new Dimension(160, 18));
+        progressBar.setVisible(false);
+        top.add(progressBar);
+        top.add(snapshotLabel);
+
+        // Pivot controls: double-click a row to drill into it, "Roll up" to step back out
+        pivotColsBox.addItem("(none)");
+        for (String d : ReportCube.DIMENSIONS) pivotColsBox.addItem(d);
+        pivotRowsBox.setSelectedIndex(ReportCube.DOCTOR);
+        pivotColsBox.setSelectedIndex(ReportCube.MONTH + 1);
+        JButton rollUpBtn = new JButton("Roll up");
+        pivotBar.add(new JLabel("Rows:"));
+        pivotBar.add(pivotRowsBox);
+        pivotBar.add(new JLabel("Columns:"));
+        pivotBar.add(pivotColsBox);
+        pivotBar.add(new JLabel("Measure:"));
+        pivotBar.add(pivotMeasureBox);
+        pivotBar.add(rollUpBtn);
+        pivotBar.add(drillLabel);
+        pivotBar.setVisible(false);
+
+        JPanel controls = new JPanel(new BorderLayout());
+        controls.add(top, BorderLayout.NORTH);
+        controls.add(pivotBar, BorderLayout.SOUTH);
+        add(controls, BorderLayout.PAGE_START);
 
         // Table center
         reportModel = new DefaultTableModel();
@@ -76,541 +114,268 @@ public class ReportGenerator extends JPanel {
         add(new JScrollPane(reportTable), BorderLayout.CENTER);
 
         // Button actions
-        generateBtn.addActionListener(e -> generateReport());
-        refreshBtn.addActionListener(e -> {
-            // simply regenerate same report to refresh caches
-            generateReport();
+        generateBtn.addActionListener(e -> generateReport(false));
+
+        // Export: the report on screen, or a whole data file streamed from disk
+        JPopupMenu exportMenu = new JPopupMenu();
+        JMenuItem reportItem = new JMenuItem("Current report");
+        reportItem.addActionListener(e -> exportReport());
+        exportMenu.add(reportItem);
+        exportMenu.addSeparator();
+        for (ReportExporter.RawTable raw : ReportExporter.RAW_TABLES) {
+            JMenuItem item = new JMenuItem(raw.label + " (all rows)");
+            item.addActionListener(e -> exportRaw(raw));
+            exportMenu.add(item);
+        }
+        exportBtn.addActionListener(e -> exportMenu.show(exportBtn, 0, exportBtn.getHeight()));
+        reportTypeBox.addActionListener(e -> {
+            String type = (String) reportTypeBox.getSelectedItem();
+            approxBox.setEnabled(ReportEngine.supportsApproximate(type));
+            approxBox.setSelected(ReportEngine.isApproximate(type));
+            pivotBar.setVisible(ReportEngine.PIVOT.equals(type));
+            generateReport(false);
+        });
+        pivotRowsBox.addActionListener(e -> generateReport(false));
+        pivotColsBox.addActionListener(e -> generateReport(false));
+        pivotMeasureBox.addActionListener(e -> generateReport(false));
+        rollUpBtn.addActionListener(e -> rollUp());
+        reportTable.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2 && pivotBar.isVisible()) drillDown(reportTable.rowAtPoint(e.getPoint()));
+            }
+        });
+        approxBox.addActionListener(e -> generateReport(false));
+        periodBox.addActionListener(e -> {
+            boolean custom = "Custom range".equals(periodBox.getSelectedItem());
+            fromField.setEnabled(custom);
+            toField.setEnabled(custom);
+            if (!custom) generateReport(false);
         });
-    }
-
-    // ---------- Main dispatcher ----------
-    private void generateReport() {
-        String type = (String) reportTypeBox.getSelectedItem();
-        if (type == null) return;
 
-        // Load files once and pass to reporters
-        List<String[]> appointments = loadFile(APPOINTMENTS_FILE);
-        List<String[]> records = loadFile(RECORDS_FILE);
-        List<String[]> payments = loadFile(PAYMENTS_FILE);
-
-        switch (type) {
-            // Appointments
-            case "Appointments - Total by Day" -> appointmentsByDay(appointments);
-            case "Appointments - Status Breakdown" -> appointmentsStatus(appointments);
-            case "Appointments - By Doctor" -> appointmentsByDoctor(appointments);
-            case "Appointments - By Specialization" -> appointmentsBySpecialization(appointments);
-            case "Appointments - By Shift" -> appointmentsByShift(appointments);
-
-            // Treatments
-            case "Treatment - Average Bill" -> treatmentAverageBill(records);
-            case "Treatment - Top 5 Treatments (by frequency)" -> treatmentTopNTreatments(records, 5, false);
-            case "Treatment - Top 5 Treatments (by revenue)" -> treatmentTopNTreatments(records, 5, true);
-            case "Treatment - Common Diagnoses" -> treatmentCommonDiagnoses(records);
-            case "Treatment - Prescription Trends" -> treatmentPrescriptions(records);
-
-            // Finance
-            case "Finance - Total Income (collected)" -> financeTotalIncome(payments);
-            case "Finance - Expected vs Actual" -> financeExpectedVsActual(records, payments);
-            case "Finance - By Doctor" -> financeByDoctor(records, payments, appointments);
-            case "Finance - By Specialization" -> financeBySpecialization(records, payments, appointments);
-            case "Finance - By Payment Method" -> financeByPaymentMethod(payments);
-
-            // Cross
-            case "Cross - Unpaid Appointments (expected > 0, no payment)" -> crossUnpaidAppointments(records, payments, appointments);
-            case "Cross - Revenue Summary by Doctor (expected & collected)" -> crossRevenueByDoctor(records, payments, appointments);
-            case "Cross - Revenue Summary by Specialization (expected & collected)" -> crossRevenueBySpecialization(records, payments, appointments);
-            case "Cross - Top Paying Patients" -> crossTopPatients(payments, 10);
-
-            default -> {
-                reportModel.setRowCount(0);
-                reportModel.setColumnCount(0);
+        // Show the precomputed table at once; the live refresh below then checks it against the files
+        // in the background and replaces it if they have changed since the snapshot was taken.
+        snapshot = ReportSnapshot.latest();
+        if (snapshot != null) {
+            ReportEngine.preload(snapshot.byKey());
+            LocalDate[] range = selectedRange();
+            ReportSnapshot.Entry entry = snapshot.find((String) reportTypeBox.getSelectedItem(), range[0], range[1]);
+            if (entry != null) {
+                shownKey = entry.key;
+                showTable(entry.table);
+                snapshotLabel.setText("Precomputed " + snapshot.created());
             }
         }
-    }
-
-    // ==================== APPOINTMENTS REPORTS ====================
-    // Count total appointments grouped by date
-    private void appointmentsByDay(List<String[]> appointments) {
-        Map<String, Long> counts = appointments.stream()
-                .filter(a -> a.length > 4 && !empty(a[4]))
-                .collect(Collectors.groupingBy(a -> a[4], Collectors.counting()));
-
-        reportModel.setColumnIdentifiers(new String[]{"Date", "Appointments"});
-        reportModel.setRowCount(0);
 
-        counts.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .forEach(e -> reportModel.addRow(new Object[]{e.getKey(), e.getValue()}));
-    }
-    
-    // Count appointments by their status (e.g., Completed, Cancelled)
-    private void appointmentsStatus(List<String[]> appointments) {
-        Map<String, Long> counts = appointments.stream()
-                .filter(a -> a.length > 12)
-                .map(a -> a[12].isBlank() ? "Unknown" : a[12])
-                .collect(Collectors.groupingBy(s -> s, Collectors.counting()));
-
-        reportModel.setColumnIdentifiers(new String[]{"Status", "Count"});
-        reportModel.setRowCount(0);
-        counts.forEach((k, v) -> reportModel.addRow(new Object[]{k, v}));
-    }
-    
-    // Count appointments per doctor
-    private void appointmentsByDoctor(List<String[]> appointments) {
-        Map<String, Long> counts = appointments.stream()
-                .filter(a -> a.length > 7)
-                .map(a -> a[7].isBlank() ? (a.length > 6 ? a[6] : "Unknown") : a[7]) // prefer doctorName else doctorId
-                .collect(Collectors.groupingBy(s -> s, Collectors.counting()));
-
-        reportModel.setColumnIdentifiers(new String[]{"Doctor", "Appointments"});
-        reportModel.setRowCount(0);
-        counts.forEach((k, v) -> reportModel.addRow(new Object[]{k, v}));
+        // Reports follow the data on their own, so there is no "Refresh Data" button
+        liveRefresh = new Timer(LIVE_REFRESH_MS, e -> {
+            if (isShowing() && shownKey != null && (worker == null || worker.isDone())) generateReport(true);
+        });
     }
 
-    // Count appointments per specialization
-    private void appointmentsBySpecialization(List<String[]> appointments) {
-        Map<String, Long> counts = appointments.stream()
-                .filter(a -> a.length > 8)
-                .map(a -> a[8].isBlank() ? "Unknown" : a[8])
-                .collect(Collectors.groupingBy(s -> s, Collectors.counting()));
-
-        reportModel.setColumnIdentifiers(new String[]{"Specialization", "Appointments"});
-        reportModel.setRowCount(0);
-        counts.forEach((k, v) -> reportModel.addRow(new Object[]{k, v}));
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        liveRefresh.start();
     }
 
-    // Count appointments per shift (morning, afternoon, etc.)
-    private void appointmentsByShift(List<String[]> appointments) {
-        Map<String, Long> counts = appointments.stream()
-                .filter(a -> a.length > 9)
-                .map(a -> a[9].isBlank() ? "Unknown" : a[9])
-                .collect(Collectors.groupingBy(s -> s, Collectors.counting()));
-
-        reportModel.setColumnIdentifiers(new String[]{"Shift", "Appointments"});
-        reportModel.setRowCount(0);
-        counts.forEach((k, v) -> reportModel.addRow(new Object[]{k, v}));
+    // Stops polling once the panel leaves its window, e.g. when the dashboard is closed.
+    @Override
+    public void removeNotify() {
+        liveRefresh.stop();
+        super.removeNotify();
     }
 
-    // ==================== TREATMENT REPORTS ====================
-    // Compute average, total, and record count of treatment bills
-    private void treatmentAverageBill(List<String[]> records) {
-        double sum = 0.0;
-        int count = 0;
-        for (String[] r : records) {
-            if (r.length > 6 && !empty(r[6])) {
-                try {
-                    sum += Double.parseDouble(r[6]);
-                    count++;
-                } catch (NumberFormatException ignored) {
-                }
-            }
+    // ---------- Main dispatcher ----------
+    // Loading and aggregating run on a background thread so the window stays responsive.
+    // Picking another report supersedes the one in flight: its result is simply dropped. The engine's
+    // rebuild itself is not interrupted, because the next report needs exactly the same rebuild.
+    private void generateReport(boolean onlyIfChanged) {
+        String type = (String) reportTypeBox.getSelectedItem();
+        if (type == null) return;
+        LocalDate[] range;
+        try {
+            range = selectedRange();
+        } catch (IllegalArgumentException ex) {
+            if (!onlyIfChanged) JOptionPane.showMessageDialog(this, ex.getMessage());
+            return;
         }
-        reportModel.setColumnIdentifiers(new String[]{"Metric", "Value"});
-        reportModel.setRowCount(0);
-        reportModel.addRow(new Object[]{"Records considered", count});
-        reportModel.addRow(new Object[]{"Average Bill", count == 0 ? "0.00" : moneyFmt.format(sum / count)});
-        reportModel.addRow(new Object[]{"Total Expected (sum)", moneyFmt.format(sum)});
-    }
-    
-    // List top N treatments, sorted by frequency or revenue
-    private void treatmentTopNTreatments(List<String[]> records, int n, boolean byRevenue) {
-        // treat 'treatments' column index 7; records may contain semicolon-separated treatments
-        Map<String, Integer> freq = new HashMap<>();
-        Map<String, Double> rev = new HashMap<>();
-
-        for (String[] r : records) {
-            String treatments = r.length > 7 ? r[7] : "";
-            double amount = 0.0;
-            if (r.length > 6) {
-                try { amount = Double.parseDouble(r[6]); } catch (Exception ignored) {}
-            }
-            if (!empty(treatments)) {
-                String[] parts = treatments.split(";");
-                // distribute revenue equally among listed treatments for revenue calculation
-                double per = parts.length > 0 ? amount / parts.length : 0.0;
-                for (String t : parts) {
-                    String key = t.trim();
-                    if (key.isEmpty()) continue;
-                    freq.put(key, freq.getOrDefault(key, 0) + 1);
-                    rev.put(key, rev.getOrDefault(key, 0.0) + per);
+
+        boolean approximate = approxBox.isSelected();
+        boolean pivot = ReportEngine.PIVOT.equals(type);
+        int rowDim = pivotRowsBox.getSelectedIndex(), colDim = pivotColsBox.getSelectedIndex() - 1;
+        int measure = pivotMeasureBox.getSelectedIndex();
+        Map<Integer, String> filter = new HashMap<>(drillPath);
+        if (worker != null && !worker.isDone()) worker.cancel(false);
+
+        SwingWorker<ReportEngine.ReportTable, Void> w = new SwingWorker<>() {
+            private String key;
+
+            @Override
+            protected ReportEngine.ReportTable doInBackground() {
+                if (pivot) {
+                    key = ReportEngine.pivotKey(rowDim, colDim, measure, filter, range[0], range[1]);
+                    if (onlyIfChanged && key.equals(shownKey)) return null;
+                    return ReportEngine.get().pivot(rowDim, colDim, measure, filter, range[0], range[1], this::setProgress);
                 }
+                if (!onlyIfChanged) ReportEngine.get().setApproximate(type, approximate);
+                key = ReportEngine.cacheKey(type, range[0], range[1]);   // re-reads files changed on disk
+                if (onlyIfChanged && key.equals(shownKey)) return null;
+                return ReportEngine.get().table(type, range[0], range[1], this::setProgress);
             }
-        }
-
-        // choose sort by frequency or revenue
-        List<String> ordered;
-        if (byRevenue) {
-            ordered = rev.entrySet().stream()
-                    .sorted((a, b) -> Double.compare(b.getValue(), a.getValue()))
-                    .map(Map.Entry::getKey)
-                    .collect(Collectors.toList());
-        } else {
-            ordered = freq.entrySet().stream()
-                    .sorted((a, b) -> Integer.compare(b.getValue(), a.getValue()))
-                    .map(Map.Entry::getKey)
-                    .collect(Collectors.toList());
-        }
 
-        reportModel.setColumnIdentifiers(new String[]{"Treatment", "Frequency", "Estimated Revenue"});
-        reportModel.setRowCount(0);
-
-        int limit = Math.min(n, ordered.size());
-        for (int i = 0; i < limit; i++) {
-            String t = ordered.get(i);
-            reportModel.addRow(new Object[]{t, freq.getOrDefault(t, 0), moneyFmt.format(rev.getOrDefault(t, 0.0))});
-        }
-    }
-    
-    // Count occurrences of each diagnosis
-    private void treatmentCommonDiagnoses(List<String[]> records) {
-        Map<String, Integer> count = new HashMap<>();
-        for (String[] r : records) {
-            String diag = r.length > 8 ? r[8] : "";
-            if (empty(diag)) continue;
-            String key = diag.trim();
-            count.put(key, count.getOrDefault(key, 0) + 1);
-        }
-        List<Map.Entry<String, Integer>> ordered = count.entrySet().stream()
-                .sorted((a, b) -> Integer.compare(b.getValue(), a.getValue()))
-                .collect(Collectors.toList());
-
-        reportModel.setColumnIdentifiers(new String[]{"Diagnosis", "Count"});
-        reportModel.setRowCount(0);
-        for (Map.Entry<String, Integer> e : ordered) {
-            reportModel.addRow(new Object[]{e.getKey(), e.getValue()});
-        }
-    }
-    
-    // Count how many times each medication is prescribed
-    private void treatmentPrescriptions(List<String[]> records) {
-        // prescription format example: "Paracetamol~Twice~After Meal"
-        Map<String, Integer> meds = new HashMap<>();
-        for (String[] r : records) {
-            String pres = r.length > 9 ? r[9] : "";
-            if (empty(pres)) continue;
-            String[] parts = pres.split(";");
-            for (String p : parts) {
-                String med = p.split("~", 2)[0].trim();
-                if (med.isEmpty()) continue;
-                meds.put(med, meds.getOrDefault(med, 0) + 1);
+            @Override
+            protected void done() {
+                if (isCancelled() || this != worker) return;
+                progressBar.setVisible(false);
+                ReportEngine.ReportTable table;
+                try {
+                    table = get();
+                } catch (InterruptedException | ExecutionException ex) {
+                    // a background refresh fails silently; the table keeps what it showed
+                    if (!onlyIfChanged) JOptionPane.showMessageDialog(ReportGenerator.this, "Error generating report: " + ex.getMessage());
+                    return;
+                }
+                if (onlyIfChanged && key.equals(shownKey)) return;
+                shownKey = key;
+                snapshotLabel.setText("");
+                showTable(table);
             }
-        }
-
-        List<Map.Entry<String, Integer>> ordered = meds.entrySet().stream()
-                .sorted((a, b) -> Integer.compare(b.getValue(), a.getValue()))
-                .collect(Collectors.toList());
+        };
+        w.addPropertyChangeListener(e -> {
+            if (w == worker && "progress".equals(e.getPropertyName())) {
+                progressBar.setIndeterminate(false);
+                progressBar.setValue((Integer) e.getNewValue());
+            }
+        });
 
-        reportModel.setColumnIdentifiers(new String[]{"Medication", "Prescribed Count"});
-        reportModel.setRowCount(0);
-        for (Map.Entry<String, Integer> e : ordered) {
-            reportModel.addRow(new Object[]{e.getKey(), e.getValue()});
+        worker = w;
+        if (!onlyIfChanged) {
+            // background refreshes stay silent; only a user request shows the bar
+            progressBar.setIndeterminate(true);
+            progressBar.setValue(0);
+            progressBar.setVisible(true);
         }
+        w.execute();
     }
 
-    // ==================== FINANCE REPORTS ====================
-    // Sum total payments collected
-    private void financeTotalIncome(List<String[]> payments) {
-        double total = 0.0;
-        for (String[] p : payments) {
-            if (p.length > 3 && !empty(p[3])) {
-                try { total += Double.parseDouble(p[3]); } catch (NumberFormatException ignored) {}
+    // ---------- Pivot drill-down / roll-up ----------
+    // Fixes the row's member of the row dimension and moves the rows one dimension down
+    // (the next one that is neither fixed nor shown as columns).
+    private void drillDown(int viewRow) {
+        if (viewRow < 0) return;
+        int row = reportTable.convertRowIndexToModel(viewRow);
+        String member = String.valueOf(reportModel.getValueAt(row, 0));
+        if ("Total".equals(member) && row == reportModel.getRowCount() - 1) return;
+        int rowDim = pivotRowsBox.getSelectedIndex(), colDim = pivotColsBox.getSelectedIndex() - 1;
+        drillPath.put(rowDim, member);
+        for (int d = 0; d < ReportCube.DIMENSIONS.length; d++) {
+            int next = (rowDim + 1 + d) % ReportCube.DIMENSIONS.length;
+            if (next != colDim && !drillPath.containsKey(next)) {
+                updateDrillLabel();
+                pivotRowsBox.setSelectedIndex(next);   // regenerates
+                return;
             }
         }
-        reportModel.setColumnIdentifiers(new String[]{"Metric", "Value"});
-        reportModel.setRowCount(0);
-        reportModel.addRow(new Object[]{"Total Collected Income", moneyFmt.format(total)});
-        reportModel.addRow(new Object[]{"Payments Count", payments.size()});
+        drillPath.remove(rowDim);   // every other dimension is already fixed
     }
-    
-    // Compare expected revenue vs actual collected
-    private void financeExpectedVsActual(List<String[]> records, List<String[]> payments) {
-        double expected = 0.0;
-        for (String[] r : records) {
-            if (r.length > 6 && !empty(r[6])) {
-                try { expected += Double.parseDouble(r[6]); } catch (NumberFormatException ignored) {}
-            }
-        }
-        double collected = 0.0;
-        for (String[] p : payments) {
-            if (p.length > 3 && !empty(p[3])) {
-                try { collected += Double.parseDouble(p[3]); } catch (NumberFormatException ignored) {}
-            }
-        }
-        reportModel.setColumnIdentifiers(new String[]{"Metric", "Value"});
-        reportModel.setRowCount(0);
-        reportModel.addRow(new Object[]{"Total Expected (from records)", moneyFmt.format(expected)});
-        reportModel.addRow(new Object[]{"Total Collected (payments)", moneyFmt.format(collected)});
-        reportModel.addRow(new Object[]{"Outstanding (expected - collected)", moneyFmt.format(expected - collected)});
-    }
-    
-    // Aggregate collected revenue by doctor
-    private void financeByDoctor(List<String[]> records, List<String[]> payments, List<String[]> appointments) {
-        // Build appointmentId -> doctorName (prefer appointment doctor name; fallback to record doctorId)
-        Map<String, String> apptToDoctorName = buildApptToDoctorNameMap(appointments, records);
-
-        Map<String, Double> collectedByDoctor = new HashMap<>();
-        for (String[] p : payments) {
-            if (p.length > 3) {
-                String apptId = p.length > 1 ? p[1] : "";
-                double amount = parseAmountSafe(p, 3);
-                String doctor = apptToDoctorName.getOrDefault(apptId, "Unknown Doctor");
-                collectedByDoctor.put(doctor, collectedByDoctor.getOrDefault(doctor, 0.0) + amount);
-            }
-        }
 
-        reportModel.setColumnIdentifiers(new String[]{"Doctor", "Collected Income"});
-        reportModel.setRowCount(0);
-        collectedByDoctor.forEach((doc, amt) -> reportModel.addRow(new Object[]{doc, moneyFmt.format(amt)}));
+    // Drops the last drill-down step and shows its dimension as rows again.
+    private void rollUp() {
+        if (drillPath.isEmpty()) return;
+        Integer last = null;
+        for (Integer d : drillPath.keySet()) last = d;
+        drillPath.remove(last);
+        updateDrillLabel();
+        if (pivotRowsBox.getSelectedIndex() != last) pivotRowsBox.setSelectedIndex(last);
+        else generateReport(false);
     }
-    
-    // Aggregate collected revenue by specialization
-    private void financeBySpecialization(List<String[]> records, List<String[]> payments, List<String[]> appointments) {
-        Map<String, String> apptToSpec = buildApptToSpecializationMap(appointments);
-
-        Map<String, Double> collectedBySpec = new HashMap<>();
-        for (String[] p : payments) {
-            if (p.length > 3) {
-                String apptId = p.length > 1 ? p[1] : "";
-                double amount = parseAmountSafe(p, 3);
-                String spec = apptToSpec.getOrDefault(apptId, "Unknown Specialization");
-                collectedBySpec.put(spec, collectedBySpec.getOrDefault(spec, 0.0) + amount);
-            }
-        }
 
-        reportModel.setColumnIdentifiers(new String[]{"Specialization", "Collected Income"});
-        reportModel.setRowCount(0);
-        collectedBySpec.forEach((spec, amt) -> reportModel.addRow(new Object[]{spec, moneyFmt.format(amt)}));
+    private void updateDrillLabel() {
+        StringBuilder sb = new StringBuilder();
+        drillPath.forEach((d, m) -> sb.append(sb.length() == 0 ? "" : " > ").append(ReportCube.DIMENSIONS[d]).append(": ").append(m));
+        drillLabel.setText(sb.toString());
     }
 
-    // Summarize revenue by payment method
-    private void financeByPaymentMethod(List<String[]> payments) {
-        Map<String, Double> byMethod = new HashMap<>();
-        Map<String, Integer> countByMethod = new HashMap<>();
-
-        for (String[] p : payments) {
-            if (p.length > 4) {
-                String method = empty(p[4]) ? "Unknown" : p[4];
-                double amount = parseAmountSafe(p, 3);
-                byMethod.put(method, byMethod.getOrDefault(method, 0.0) + amount);
-                countByMethod.put(method, countByMethod.getOrDefault(method, 0) + 1);
-            }
-        }
-
-        reportModel.setColumnIdentifiers(new String[]{"Payment Method", "Collected Amount", "Count"});
-        reportModel.setRowCount(0);
-        for (String method : byMethod.keySet()) {
-            reportModel.addRow(new Object[]{method, moneyFmt.format(byMethod.get(method)), countByMethod.getOrDefault(method, 0)});
+    // ---------- Export ----------
+    private void exportReport() {
+        if (shownTable == null) {
+            JOptionPane.showMessageDialog(this, "Generate a report first.");
+            return;
         }
+        ReportEngine.ReportTable table = shownTable;
+        File file = chooseExportFile(String.valueOf(reportTypeBox.getSelectedItem()));
+        if (file != null) runExport(file, () -> ReportExporter.export(table, file.toPath()));
     }
 
-    // ==================== CROSS REPORTS ====================
-    // List unpaid appointments (expected > 0, no payment)
-    private void crossUnpaidAppointments(List<String[]> records, List<String[]> payments, List<String[]> appointments) {
-        // payments by appointmentId set
-        Set<String> paidApptIds = payments.stream().filter(p -> p.length > 1).map(p -> p[1]).collect(Collectors.toSet());
-
-        // Build appointment map for lookup
-        Map<String, String[]> apptMap = appointments.stream().filter(a -> a.length > 0).collect(Collectors.toMap(a -> a[0], a -> a, (a, b) -> a));
-
-        reportModel.setColumnIdentifiers(new String[]{"ApptID", "Patient", "Doctor", "Expected Amount"});
-        reportModel.setRowCount(0);
-
-        for (String[] r : records) {
-            if (r.length > 0) {
-                String apptId = r[0];
-                if (paidApptIds.contains(apptId)) continue; // already paid
-
-                double amount = 0.0;
-                if (r.length > 6) {
-                    try { amount = Double.parseDouble(r[6]); } catch (Exception ignored) {}
-                }
-                if (amount <= 0.0) continue; // ignore zero-amount records
-
-                String[] appt = apptMap.getOrDefault(apptId, new String[]{apptId, "", "", "", "", "", "", "Unknown Doctor", "Unknown Spec"});
-                String patient = (appt.length > 2 ? appt[2] : "") + " " + (appt.length > 3 ? appt[3] : "");
-                String doctor = appt.length > 7 ? appt[7] : (r.length > 2 ? r[2] : "Unknown");
-                reportModel.addRow(new Object[]{apptId, patient.trim(), doctor, moneyFmt.format(amount)});
-            }
-        }
+    private void exportRaw(ReportExporter.RawTable raw) {
+        File file = chooseExportFile(raw.label);
+        if (file != null) runExport(file, () -> ReportExporter.export(raw, file.toPath()));
     }
-    
-    // Summarize expected vs collected revenue per doctor
-    private void crossRevenueByDoctor(List<String[]> records, List<String[]> payments, List<String[]> appointments) {
-        // expected per doctor (from records, doctorId in index 2)
-        Map<String, Double> expectedByDoctor = new HashMap<>();
-        // doctorId -> doctorName (from appointments)
-        Map<String, String> doctorNames = buildDoctorNameMap(appointments);
-
-        for (String[] r : records) {
-            String dId = r.length > 2 ? r[2] : "Unknown";
-            double amt = parseAmountSafe(r, 6);
-            expectedByDoctor.put(dId, expectedByDoctor.getOrDefault(dId, 0.0) + amt);
-        }
-
-        // collected by doctor via payment -> appointment -> doctor (lookup appointments)
-        Map<String, String> apptToDocId = appointments.stream()
-                .filter(a -> a.length > 6)
-                .collect(Collectors.toMap(a -> a[0], a -> a[6], (a, b) -> a));
-
-        Map<String, Double> collectedByDoctor = new HashMap<>();
-        for (String[] p : payments) {
-            String apptId = p.length > 1 ? p[1] : "";
-            String docId = apptToDocId.getOrDefault(apptId, "Unknown");
-            double amt = parseAmountSafe(p, 3);
-            collectedByDoctor.put(docId, collectedByDoctor.getOrDefault(docId, 0.0) + amt);
-        }
 
-        // Prepare table
-        reportModel.setColumnIdentifiers(new String[]{"Doctor ID", "Doctor Name", "Expected", "Collected", "Collection %"});
-        reportModel.setRowCount(0);
-
-        // union of doctor ids
-        Set<String> allDoctors = new HashSet<>();
-        allDoctors.addAll(expectedByDoctor.keySet());
-        allDoctors.addAll(collectedByDoctor.keySet());
-
-        for (String dId : allDoctors) {
-            double exp = expectedByDoctor.getOrDefault(dId, 0.0);
-            double col = collectedByDoctor.getOrDefault(dId, 0.0);
-            String name = doctorNames.getOrDefault(dId, dId);
-            String pct = exp == 0.0 ? "N/A" : moneyFmt.format((col / exp) * 100) + "%";
-            reportModel.addRow(new Object[]{dId, name, moneyFmt.format(exp), moneyFmt.format(col), pct});
-        }
+    // Save dialog; ".json" writes JSON, anything else CSV (".csv" is added when there is no extension).
+    private File chooseExportFile(String name) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File(name.replaceAll("[^A-Za-z0-9]+", "_").replaceAll("^_|_$", "") + ".csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return null;
+        File file = chooser.getSelectedFile();
+        return file.getName().contains(".") ? file : new File(file.getPath() + ".csv");
     }
-    
-    // Summarize expected vs collected revenue per specialization
-    private void crossRevenueBySpecialization(List<String[]> records, List<String[]> payments, List<String[]> appointments) {
-        // apptId -> specialization
-        Map<String, String> apptToSpec = buildApptToSpecializationMap(appointments);
-
-        Map<String, Double> expectedBySpec = new HashMap<>();
-        for (String[] r : records) {
-            String apptId = r.length > 0 ? r[0] : "";
-            String spec = apptToSpec.getOrDefault(apptId, "Unknown");
-            double amt = parseAmountSafe(r, 6);
-            expectedBySpec.put(spec, expectedBySpec.getOrDefault(spec, 0.0) + amt);
-        }
-
-        Map<String, Double> collectedBySpec = new HashMap<>();
-        for (String[] p : payments) {
-            String apptId = p.length > 1 ? p[1] : "";
-            String spec = apptToSpec.getOrDefault(apptId, "Unknown");
-            double amt = parseAmountSafe(p, 3);
-            collectedBySpec.put(spec, collectedBySpec.getOrDefault(spec, 0.0) + amt);
-        }
 
-        reportModel.setColumnIdentifiers(new String[]{"Specialization", "Expected", "Collected", "Collection %"});
-        reportModel.setRowCount(0);
-        Set<String> keys = new HashSet<>();
-        keys.addAll(expectedBySpec.keySet());
-        keys.addAll(collectedBySpec.keySet());
-
-        for (String k : keys) {
-            double exp = expectedBySpec.getOrDefault(k, 0.0);
-            double col = collectedBySpec.getOrDefault(k, 0.0);
-            String pct = exp == 0.0 ? "N/A" : moneyFmt.format((col / exp) * 100) + "%";
-            reportModel.addRow(new Object[]{k, moneyFmt.format(exp), moneyFmt.format(col), pct});
-        }
+    private interface ExportJob {
+        long run() throws Exception;
     }
 
-    // List top paying patients
-    private void crossTopPatients(List<String[]> payments, int topN) {
-        Map<String, Double> byPatient = new HashMap<>();
-        for (String[] p : payments) {
-            String patientId = p.length > 2 ? p[2] : "Unknown";
-            double amt = parseAmountSafe(p, 3);
-            byPatient.put(patientId, byPatient.getOrDefault(patientId, 0.0) + amt);
-        }
-        List<Map.Entry<String, Double>> ordered = byPatient.entrySet().stream()
-                .sorted((a, b) -> Double.compare(b.getValue(), a.getValue()))
-                .limit(topN)
-                .collect(Collectors.toList());
-
-        reportModel.setColumnIdentifiers(new String[]{"Patient ID", "Total Paid"});
-        reportModel.setRowCount(0);
-        for (Map.Entry<String, Double> e : ordered) {
-            reportModel.addRow(new Object[]{e.getKey(), moneyFmt.format(e.getValue())});
-        }
-    }
+    // Writes in the background; large raw exports can take a while.
+    private void runExport(File file, ExportJob job) {
+        new SwingWorker<Long, Void>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                return job.run();
+            }
 
-    // ==================== UTILITIES / LOADERS ====================
-    // Load a file into list of string arrays (split by '|')
-    private List<String[]> loadFile(String filename) {
-        List<String[]> out = new ArrayList<>();
-        Path p = Paths.get(filename);
-        if (!Files.exists(p)) return out;
-
-        try (BufferedReader br = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                out.add(line.split(Pattern.quote("|"), -1));
+            @Override
+            protected void done() {
+                try {
+                    JOptionPane.showMessageDialog(ReportGenerator.this, "Exported " + get() + " rows to " + file.getName());
+                } catch (InterruptedException | ExecutionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(ReportGenerator.this, "Error exporting: " + cause.getMessage());
+                }
             }
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Error reading " + filename + ": " + e.getMessage());
-        }
-        return out;
+        }.execute();
     }
 
-    // Build map: appointmentId -> specialization
-    private Map<String, String> buildApptToSpecializationMap(List<String[]> appointments) {
-        Map<String, String> map = new HashMap<>();
-        for (String[] a : appointments) {
-            if (a.length > 8) {
-                String apptId = a[0];
-                String spec = empty(a[8]) ? "Unknown" : a[8];
-                map.put(apptId, spec);
-            }
+    // {from, to} for the chosen period (either may be null for an open end). A custom range with an invalid
+    // date, or one ending before it starts, throws IllegalArgumentException with the message to show.
+    private LocalDate[] selectedRange() {
+        String period = (String) periodBox.getSelectedItem();
+        if (!"Custom range".equals(period)) {
+            LocalDate[] range = ReportEngine.periodRange(period == null ? "All time" : period, LocalDate.now());
+            return range != null ? range : new LocalDate[]{null, null};
         }
-        return map;
-    }
-    
-    // Build map: appointmentId -> doctor name (prefers appointment info, fallback to record)
-    private Map<String, String> buildApptToDoctorNameMap(List<String[]> appointments, List<String[]> records) {
-        // prefer doctor name from appointments; if missing, fallback to records' doctorId
-        Map<String, String> map = new HashMap<>();
-        for (String[] a : appointments) {
-            if (a.length > 0) {
-                String id = a[0];
-                String docName = a.length > 7 && !empty(a[7]) ? a[7] : (a.length > 6 ? a[6] : "Unknown");
-                map.put(id, docName);
-            }
+        LocalDate from, to;
+        try {
+            String f = fromField.getText().trim(), t = toField.getText().trim();
+            from = f.isEmpty() ? null : LocalDate.parse(f);
+            to = t.isEmpty() ? null : LocalDate.parse(t);
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Dates must be in yyyy-MM-dd format.");
         }
-        // fallback: if appt not present in appointments but present in records
-        for (String[] r : records) {
-            if (r.length > 0) {
-                String apptId = r[0];
-                if (!map.containsKey(apptId)) {
-                    String dId = r.length > 2 ? r[2] : "Unknown";
-                    map.put(apptId, dId);
-                }
-            }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("The 'from' date must not be after the 'to' date.");
         }
-        return map;
+        return new LocalDate[]{from, to};
     }
 
-    // Build map: doctorId -> doctor name
-    private Map<String, String> buildDoctorNameMap(List<String[]> appointments) {
-        Map<String, String> map = new HashMap<>();
-        for (String[] a : appointments) {
-            if (a.length > 6) {
-                String docId = a[6];
-                String docName = a.length > 7 && !empty(a[7]) ? a[7] : docId;
-                map.put(docId, docName);
-            }
+    // Replaces the model contents in one go (one table event instead of one per row).
+    private void showTable(ReportEngine.ReportTable table) {
+        shownTable = table;
+        if (table == null) {
+            reportModel.setRowCount(0);
+            reportModel.setColumnCount(0);
+            return;
         }
-        return map;
-    }
-
-    // Safely parse double from array at index, return 0.0 if invalid
-    private double parseAmountSafe(String[] row, int idx) {
-        if (row == null || row.length <= idx) return 0.0;
-        String s = row[idx];
-        if (empty(s)) return 0.0;
-        try { return Double.parseDouble(s); } catch (NumberFormatException ex) { return 0.0; }
-    }
-
-    // Safely parse double from array at index, return 0.0 if invalid
-    private boolean empty(String s) {
-        return s == null || s.trim().isEmpty();
+        reportModel.setDataVector(table.rows, table.columns);
     }
 }
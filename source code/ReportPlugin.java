@@ -0,0 +1,30 @@
+package assignment;
+
+import java.util.Map;
+
+// A report that plugs into the Reports screen and the batch runner without changes to the engine.
+// It names the files it reads and the fields it needs from each; ReportEngine loads only those files and
+// hands the plugin each row cut down to those fields, so e.g. a payments report never loads appointments.
+// Register it with ReportEngine.register, or list the class in
+// META-INF/services/assignment.ReportPlugin to have it picked up from the class path.
+//
+// Tables are cached like the built-in reports: by name plus the stamps of the files named in columns().
+public interface ReportPlugin {
+
+    // Name shown in the report list (unique; a built-in name is replaced).
+    String name();
+
+    // Files to read, in the order their rows are fed, each with the positions of the fields wanted.
+    Map<String, int[]> columns();
+
+    // A fresh computation; each report run gets its own.
+    Run start();
+
+    interface Run {
+        // One row of 'file': the requested fields in columns() order, null where the row is too short.
+        void row(String file, String[] fields);
+
+        // The finished table, once every row has been fed.
+        ReportEngine.ReportTable table();
+    }
+}
@@ -0,0 +1,215 @@
+package assignment;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Report tables computed ahead of time (see ReportBatch) and saved under "report_snapshots/", one file per run
+// named by its start time, so the Reports screen can show a heavy report the moment it opens.
+// Each table is stored with the cache key it was computed under (report type + stamps of its input files),
+// which tells whether it still matches the data: ReportEngine.preload serves it only while it does.
+//
+// File layout, pipe-delimited like the data files:
+//   created|yyyy-MM-dd HH:mm:ss
+//   report|<type>|<from or blank>|<to or blank>|<columns>|<rows>|<cache key>
+//   <column names>
+//   <rows...>
+// Report plugins may put any text in a cell, so in every field '\', '|' and line breaks are written as
+// "\\", "\|", "\n" and "\r". An entry whose lines do not have the stated number of fields is skipped.
+public final class ReportSnapshot {
+
+    private static final String SNAPSHOT_DIR = "report_snapshots";
+    private static final String PREFIX = "reports-";
+    private static final int KEEP = 7;   // older snapshot files are removed after each run
+    private static final DateTimeFormatter FILE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final DateTimeFormatter CREATED = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // One saved report: its type, date range (null for an open end) and table.
+    public static final class Entry {
+        public final String type;
+        public final LocalDate from, to;
+        public final String key;
+        public final ReportEngine.ReportTable table;
+
+        public Entry(String type, LocalDate from, LocalDate to, String key, ReportEngine.ReportTable table) {
+            this.type = type;
+            this.from = from;
+            this.to = to;
+            this.key = key;
+            this.table = table;
+        }
+    }
+
+    private final String created;
+    private final List<Entry> entries;
+
+    private ReportSnapshot(String created, List<Entry> entries) {
+        this.created = created;
+        this.entries = entries;
+    }
+
+    public String created() { return created; }
+
+    public List<Entry> entries() { return entries; }
+
+    // The saved table of a report over exactly that range, or null.
+    public Entry find(String type, LocalDate from, LocalDate to) {
+        for (Entry e : entries) {
+            if (e.type.equals(type) && Objects.equals(e.from, from) && Objects.equals(e.to, to)) return e;
+        }
+        return null;
+    }
+
+    // Tables by cache key, for ReportEngine.preload.
+    public Map<String, ReportEngine.ReportTable> byKey() {
+        Map<String, ReportEngine.ReportTable> out = new HashMap<>();
+        for (Entry e : entries) out.put(e.key, e.table);
+        return out;
+    }
+
+    // ---------------- SAVE ----------------
+    // Writes a new snapshot file (complete before it becomes visible) and returns its path.
+    public static Path save(List<Entry> entries) throws IOException {
+        LocalDateTime now = LocalDateTime.now();
+        Path dir = Paths.get(SNAPSHOT_DIR);
+        Files.createDirectories(dir);
+        Path out = dir.resolve(PREFIX + now.format(FILE_STAMP) + ".txt");
+        Path tmp = dir.resolve(out.getFileName() + ".tmp");
+
+        try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            w.write("created|" + now.format(CREATED));
+            w.newLine();
+            for (Entry e : entries) {
+                ReportEngine.ReportTable t = e.table;
+                w.write(line(new Object[]{"report", e.type, e.from == null ? "" : e.from.toString(),
+                        e.to == null ? "" : e.to.toString(), t.columns.length, t.rows.length, e.key}));
+                w.newLine();
+                w.write(line(t.columns));
+                w.newLine();
+                for (Object[] row : t.rows) {
+                    w.write(line(row));
+                    w.newLine();
+                }
+            }
+        }
+        Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING);
+        prune(dir);
+        return out;
+    }
+
+    private static void prune(Path dir) throws IOException {
+        List<Path> files = list(dir);
+        for (int i = 0; i < files.size() - KEEP; i++) Files.deleteIfExists(files.get(i));
+    }
+
+    // ---------------- LOAD ----------------
+    // The most recent snapshot, or null when there is none or it cannot be read.
+    public static ReportSnapshot latest() {
+        try {
+            List<Path> files = list(Paths.get(SNAPSHOT_DIR));
+            return files.isEmpty() ? null : read(files.get(files.size() - 1));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error reading report snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static ReportSnapshot read(Path p) throws IOException {
+        String created = "";
+        List<Entry> entries = new ArrayList<>();
+        try (BufferedReader r = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.startsWith("created|")) {
+                    created = line.substring("created|".length());
+                } else if (line.startsWith("report|")) {
+                    String[] h = fields(line);
+                    if (h.length != 7) continue;
+                    int columnCount = Integer.parseInt(h[4]), rowCount = Integer.parseInt(h[5]);
+                    String[] columns = fields(r.readLine());
+                    boolean intact = columns.length == columnCount;
+                    List<Object[]> rows = new ArrayList<>(rowCount);
+                    for (int i = 0; i < rowCount; i++) {
+                        String[] row = fields(r.readLine());
+                        intact &= row.length == columnCount;
+                        rows.add(values(row));
+                    }
+                    if (!intact) continue;
+                    entries.add(new Entry(h[1], h[2].isEmpty() ? null : LocalDate.parse(h[2]),
+                            h[3].isEmpty() ? null : LocalDate.parse(h[3]), h[6], new ReportEngine.ReportTable(columns, rows)));
+                }
+            }
+        }
+        return new ReportSnapshot(created, entries);
+    }
+
+    // One line of escaped fields.
+    private static String line(Object[] values) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) sb.append('|');
+            String v = String.valueOf(values[i]);
+            for (int j = 0; j < v.length(); j++) {
+                char c = v.charAt(j);
+                switch (c) {
+                    case '\\' -> sb.append("\\\\");
+                    case '|' -> sb.append("\\|");
+                    case '\n' -> sb.append("\\n");
+                    case '\r' -> sb.append("\\r");
+                    default -> sb.append(c);
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    // Fields of a line written by line(), unescaped; none for a missing line (end of file).
+    private static String[] fields(String line) {
+        if (line == null) return new String[0];
+        List<String> out = new ArrayList<>();
+        StringBuilder f = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '|') {
+                out.add(f.toString());
+                f.setLength(0);
+            } else if (c == '\\' && i + 1 < line.length()) {
+                char n = line.charAt(++i);
+                f.append(n == 'n' ? '\n' : n == 'r' ? '\r' : n);
+            } else {
+                f.append(c);
+            }
+        }
+        out.add(f.toString());
+        return out.toArray(new String[0]);
+    }
+
+    // Counts were numbers when saved; everything else (amounts are pre-formatted) stays text.
+    private static Object[] values(String[] fields) {
+        Object[] out = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            String f = fields[i];
+            out[i] = f;
+            if (!f.isEmpty() && f.length() < 18 && f.chars().allMatch(c -> c >= '0' && c <= '9')) out[i] = Long.parseLong(f);
+        }
+        return out;
+    }
+
+    // Snapshot files oldest first (the names sort by time).
+    private static List<Path> list(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) return new ArrayList<>();
+        try (Stream<Path> s = Files.list(dir)) {
+            return s.filter(f -> f.getFileName().toString().startsWith(PREFIX) && f.getFileName().toString().endsWith(".txt"))
+                    .sorted()
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+}
@@ -15,17 +15,14 @@ import java.util.List;
 public class RescheduleAppointment extends JPanel {
     static class Doctor {
         String id, shift;
-        Set<String> bookedSlots = new HashSet<>();
         Doctor(String id, String username, String firstName, String lastName, String specialization, String shift) {
             this.id = id == null ? "" : id;
             this.shift = shift == null ? "" : shift;
         }
-        boolean isAvailable(String dateTimeKey) { return dateTimeKey!=null && !bookedSlots.contains(dateTimeKey); }
-        void bookSlot(String dateTimeKey) { if (dateTimeKey!=null && !dateTimeKey.isBlank()) bookedSlots.add(dateTimeKey); }
-        void unbookSlot(String dateTimeKey) { if (dateTimeKey!=null) bookedSlots.remove(dateTimeKey); }
-        static Doctor fromLine(String line) {
-            if (line == null || line.isBlank()) return null;
-            String[] p = line.split("\\|", -1);
+        // Backed by the shared AvailabilityIndex, which follows appointments.txt on its own
+        boolean isAvailable(LocalDate date, String time) { return date!=null && AvailabilityIndex.get().isFree(id, date, time); }
+        static Doctor fromParts(String[] p) {
+            if (p == null || p.length == 0) return null;
             String id = p.length>0?p[0]:"";
             String username = p.length>1?p[1]:"";
             String firstName = p.length>2?p[2]:"";
@@ -42,7 +39,7 @@ public class RescheduleAppointment extends JPanel {
     private final DateTimeFormatter timeFmt = DateTimeFormatter.ofPattern("HH:mm");
     private final DateTimeFormatter stampFmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     private final Map<String, Doctor> doctorMap = new HashMap<>();
-    private DefaultTableModel model;
+    private PagedTableModel model;
     private JTable table;
     private final JTextField txtAppointmentID = new JTextField(10);
     private final JTextArea logArea = new JTextArea();
@@ -73,7 +70,6 @@ public class RescheduleAppointment extends JPanel {
         setLayout(new BorderLayout());
         setPreferredSize(new Dimension(1000, 700));
         loadDoctors();
-        loadAppointmentsIntoDoctors();
         setupUI();
         loadAppointmentsTable();
         generateCalendar();
@@ -117,9 +113,7 @@ public class RescheduleAppointment extends JPanel {
 
         String[] cols = {"Appt ID","Patient ID","First Name","Last Name",
                 "Date","Time","Doctor ID","Doctor Name","Faculty","Shift","Booked On","Booked By","Status","Reschedule","Delete"};
-        model = new DefaultTableModel(cols,0) {
-            @Override public boolean isCellEditable(int r,int c) { return false; } // make non-editable — we handle clicks via mouse
-        };
+        model = new PagedTableModel(cols, this::toTableRow); // read-only — we handle clicks via mouse
         table = new JTable(model);
         table.setFillsViewportHeight(true);
         table.setRowHeight(28);
@@ -171,7 +165,7 @@ public class RescheduleAppointment extends JPanel {
                     if (confirm == JOptionPane.YES_OPTION) {
                         if (deleteAppointmentAndArchive(apptId)) {
                             JOptionPane.showMessageDialog(RescheduleAppointment.this, "Deleted and archived.");
-                            loadAppointmentsTable(); loadAppointmentsIntoDoctors(); hideRightPanel();
+                            loadAppointmentsTable(); hideRightPanel();
                         } else JOptionPane.showMessageDialog(RescheduleAppointment.this, "Delete failed.");
                     }
                 }
@@ -301,33 +295,14 @@ public class RescheduleAppointment extends JPanel {
     }
 
     // ---------------- DOCTOR DATA ----------------
-    // Load doctor metadata from "doctors.txt" into doctorMap
+    // Load doctor metadata from the shared data store into doctorMap
     private void loadDoctors() {
         doctorMap.clear();
-        File f = new File("doctors.txt");
-        if (!f.exists()) { log("doctors.txt not found - continuing without doctor metadata."); return; }
-        try (BufferedReader br = new BufferedReader(new FileReader(f))) {
-            String ln; while ((ln = br.readLine()) != null) {
-                Doctor d = Doctor.fromLine(ln); if (d != null && d.id != null && !d.id.isBlank()) doctorMap.put(d.id, d);
-            }
-        } catch (IOException e) { JOptionPane.showMessageDialog(this,"Error reading doctors.txt: " + e.getMessage()); }
-    }
-
-    // Populate booked slots for each doctor based on existing appointments
-    private void loadAppointmentsIntoDoctors() {
-        for (Doctor d : doctorMap.values()) d.bookedSlots.clear();
-        File f = new File(APPT_FILE);
-        if (!f.exists()) return;
-        try (BufferedReader br = new BufferedReader(new FileReader(f))) {
-            String ln; while ((ln = br.readLine()) != null) {
-                if (ln.trim().isEmpty()) continue;
-                String[] p = ln.split("\\|", -1);
-                if (p.length >= 7) {
-                    Doctor d = doctorMap.get(p[6]);
-                    if (d != null && p.length > 5) d.bookSlot(p[4] + "-" + p[5]);
-                }
-            }
-        } catch (IOException ex) { log("Error reading appointments: " + ex.getMessage()); }
+        DataStore.Table doctors = DataStore.get().users("doctor");
+        if (!doctors.exists()) { log("doctors.txt not found - continuing without doctor metadata."); return; }
+        for (String[] p : doctors.rows()) {
+            Doctor d = Doctor.fromParts(p); if (d != null && d.id != null && !d.id.isBlank()) doctorMap.put(d.id, d);
+        }
     }
 
     // Determine the effective status of an appointment (Completed / Upcoming / Rescheduled)
@@ -345,42 +320,28 @@ public class RescheduleAppointment extends JPanel {
     // ---------------- APPOINTMENT TABLE ----------------
     // Load all appointments into the JTable
     private void loadAppointmentsTable() {
-        model.setRowCount(0);
-        File f = new File(APPT_FILE);
-        if (!f.exists()) { log("appointments.txt not found."); return; }
-        try (BufferedReader br = new BufferedReader(new FileReader(f))) {
-            String ln; while ((ln = br.readLine()) != null) {
-                if (ln.trim().isEmpty()) continue;
-                String[] p = ln.split("\\|", -1);
-                Object[] row = new Object[model.getColumnCount()];
-                for (int i=0;i<12;i++) row[i] = i < p.length ? p[i] : "";
-                String fileStatus = p.length >= 13 ? p[12] : "";
-                row[12] = effectiveStatus(fileStatus, String.valueOf(row[4]), String.valueOf(row[5]));
-                row[13] = "Reschedule"; row[14] = "Delete";
-                model.addRow(row);
-            }
-        } catch (IOException ex) { JOptionPane.showMessageDialog(this,"Error loading appointments: " + ex.getMessage()); }
+        DataStore.Table appts = DataStore.get().appointments();
+        if (!appts.exists()) { model.setRows(Collections.emptyList()); log("appointments.txt not found."); return; }
+        model.setRows(appts.rows());
     }
 
     // Load only appointments matching a specific ID into the JTable
     private void loadAppointmentsTableFiltered(String apptId) {
-        model.setRowCount(0);
-        File f = new File(APPT_FILE);
-        if (!f.exists()) { log("appointments.txt not found."); return; }
-        try (BufferedReader br = new BufferedReader(new FileReader(f))) {
-            String ln; while ((ln = br.readLine()) != null) {
-                if (ln.trim().isEmpty()) continue;
-                String[] p = ln.split("\\|", -1);
-                if (p.length >= 1 && p[0].equals(apptId)) {
-                    Object[] row = new Object[model.getColumnCount()];
-                    for (int i=0;i<12;i++) row[i] = i < p.length ? p[i] : "";
-                    String fileStatus = p.length >= 13 ? p[12] : "";
-                    row[12] = effectiveStatus(fileStatus, String.valueOf(row[4]), String.valueOf(row[5]));
-                    row[13] = "Reschedule"; row[14] = "Delete";
-                    model.addRow(row);
-                }
-            }
-        } catch (IOException ex) { JOptionPane.showMessageDialog(this,"Error searching appointments: " + ex.getMessage()); }
+        DataStore.Table appts = DataStore.get().appointments();
+        if (!appts.exists()) { model.setRows(Collections.emptyList()); log("appointments.txt not found."); return; }
+        String[] p = appts.byId(apptId);
+        model.setRows(p != null ? Collections.singletonList(p) : Collections.emptyList());
+    }
+
+    // Convert an appointment row into a table row with effective status and action columns
+    // (called by the table model as rows come into view)
+    private Object[] toTableRow(String[] p) {
+        Object[] row = new Object[model.getColumnCount()];
+        for (int i=0;i<12;i++) row[i] = i < p.length ? p[i] : "";
+        String fileStatus = p.length >= 13 ? p[12] : "";
+        row[12] = effectiveStatus(fileStatus, String.valueOf(row[4]), String.valueOf(row[5]));
+        row[13] = "Reschedule"; row[14] = "Delete";
+        return row;
     }
 
     // ---------------- CALENDAR & SLOTS ----------------
@@ -414,7 +375,7 @@ public class RescheduleAppointment extends JPanel {
     private void loadSlotsForDate(LocalDate date) {
         slotPanel.removeAll();
         if (date == null) return;
-        loadDoctors(); loadAppointmentsIntoDoctors();
+        loadDoctors();
 
         String docId = restoreMode && restoreEntry != null && restoreEntry.originalParts!=null && restoreEntry.originalParts.length>6
                 ? restoreEntry.originalParts[6] : selectedDoctorId;
@@ -454,7 +415,7 @@ public class RescheduleAppointment extends JPanel {
 
             boolean isOld = oldSlotKey != null && oldSlotKey.equals(key) && !restoreMode;
 
-            if (doc.isAvailable(key) || isOld) {
+            if (doc.isAvailable(cur.toLocalDate(), ts) || isOld) {
                 slotBtn.setBackground(Color.GREEN); slotBtn.setEnabled(true);
                 final LocalDate chosenDate = cur.toLocalDate(); final String chosenTime = ts;
                 slotBtn.addActionListener(e -> {
@@ -469,13 +430,12 @@ public class RescheduleAppointment extends JPanel {
                                 "Reschedule " + apptId + "\nFrom: " + oldDate + " " + oldTime + "\nTo: " + chosenDate + " " + chosenTime + "\nConfirm?",
                                 "Confirm Reschedule", JOptionPane.YES_NO_OPTION);
                         if (confirm != JOptionPane.YES_OPTION) return;
-                        loadAppointmentsIntoDoctors();
                         Doctor checkDoc = doctorMap.get(selectedDoctorId);
-                        boolean still = checkDoc != null && (checkDoc.isAvailable(chosenDate + "-" + chosenTime) || isOld);
+                        boolean still = checkDoc != null && (checkDoc.isAvailable(chosenDate, chosenTime) || isOld);
                         if (!still) { JOptionPane.showMessageDialog(this,"Slot taken. Choose another."); loadSlotsForDate(selectedDate); return; }
                         if (performReschedule(apptId, chosenDate, chosenTime)) {
                             JOptionPane.showMessageDialog(this,"Rescheduled.");
-                            loadAppointmentsTable(); loadAppointmentsIntoDoctors();
+                            loadAppointmentsTable();
                             oldSlotKey = chosenDate + "-" + chosenTime;
                             selectedDate = chosenDate; currentYearMonth = YearMonth.of(chosenDate.getYear(), chosenDate.getMonthValue());
                             updateMonthLabel(); generateCalendar(); loadSlotsForDate(selectedDate);
@@ -483,10 +443,9 @@ public class RescheduleAppointment extends JPanel {
                         }
                     } else {
                         if (restoreEntry == null) { JOptionPane.showMessageDialog(this,"Restore context missing."); return; }
-                        loadAppointmentsIntoDoctors();
                         String docIndex = restoreEntry.originalParts.length>6 ? restoreEntry.originalParts[6] : null;
                         Doctor checkDoc = docIndex!=null?doctorMap.get(docIndex):null;
-                        if (checkDoc == null || !checkDoc.isAvailable(chosenDate + "-" + chosenTime)) {
+                        if (checkDoc == null || !checkDoc.isAvailable(chosenDate, chosenTime)) {
                             JOptionPane.showMessageDialog(this,"Slot taken. Choose another."); loadSlotsForDate(selectedDate); return;
                         }
                         finalizeRestoreWithSelection(chosenDate, chosenTime);
@@ -503,84 +462,51 @@ public class RescheduleAppointment extends JPanel {
     // Perform the actual rescheduling: update appointment file, update doctor slots
     private boolean performReschedule(String apptId, LocalDate newDate, String newTime) {
         if (apptId == null || apptId.isBlank()) { JOptionPane.showMessageDialog(this,"No appointment selected."); return false; }
-        File in = new File(APPT_FILE); if (!in.exists()) { JOptionPane.showMessageDialog(this,"appointments.txt not found."); return false; }
-        File tmp = new File(APPT_FILE + ".tmp");
-        boolean found = false;
+        DataStore.Table appts = DataStore.get().appointments();
+        if (!appts.exists()) { JOptionPane.showMessageDialog(this,"appointments.txt not found."); return false; }
+        String[] p = appts.byId(apptId);
+        if (p == null) { JOptionPane.showMessageDialog(this,"Appointment ID not found."); return false; }
         String nowStamp = LocalDateTime.now().format(stampFmt);
         LocalDate today = LocalDate.now(); LocalTime now = LocalTime.now();
 
-        try (BufferedReader r = new BufferedReader(new FileReader(in)); BufferedWriter w = new BufferedWriter(new FileWriter(tmp))) {
-            String ln;
-            while ((ln = r.readLine()) != null) {
-                if (ln.trim().isEmpty()) { w.write(ln + System.lineSeparator()); continue; }
-                String[] p = ln.split("\\|", -1);
-                if (p.length >= 1 && p[0].equals(apptId)) {
-                    found = true;
-                    String fileStatus = p.length >= 13 ? p[12] : "";
-                    boolean statusCompleted = "completed".equalsIgnoreCase(fileStatus);
-                    boolean elapsed = false;
-                    try {
-                        LocalDate d = LocalDate.parse(p[4], dateFmt);
-                        LocalTime t2 = LocalTime.parse(p[5], timeFmt);
-                        elapsed = d.isBefore(today) || (d.isEqual(today) && t2.isBefore(now));
-                    } catch (Exception ignored) {}
-                    if (statusCompleted || elapsed) { JOptionPane.showMessageDialog(this,"Completed appointments cannot be rescheduled."); w.write(ln + System.lineSeparator()); continue; }
-
-                    String[] newParts = Arrays.copyOf(p, Math.max(p.length, 13));
-                    newParts[4] = newDate.toString();
-                    newParts[5] = newTime;
-                    newParts[10] = nowStamp;
-                    newParts[11] = currentStaffUsername;
-                    newParts[12] = "Rescheduled";
-                    w.write(String.join("|", newParts) + System.lineSeparator());
-
-                    if (p.length >= 7) {
-                        Doctor dd = doctorMap.get(p[6]);
-                        if (dd != null && p.length > 5) { dd.unbookSlot(p[4] + "-" + p[5]); dd.bookSlot(newDate.toString() + "-" + newTime); }
-                    }
-                } else w.write(ln + System.lineSeparator());
-            }
-        } catch (IOException ex) { JOptionPane.showMessageDialog(this,"Error rescheduling: " + ex.getMessage()); return false; }
+        String fileStatus = p.length >= 13 ? p[12] : "";
+        boolean statusCompleted = "completed".equalsIgnoreCase(fileStatus);
+        boolean elapsed = false;
+        try {
+            LocalDate d = LocalDate.parse(p[4], dateFmt);
+            LocalTime t2 = LocalTime.parse(p[5], timeFmt);
+            elapsed = d.isBefore(today) || (d.isEqual(today) && t2.isBefore(now));
+        } catch (Exception ignored) {}
+        if (statusCompleted || elapsed) { JOptionPane.showMessageDialog(this,"Completed appointments cannot be rescheduled."); return true; }
 
-        if (!found) { tmp.delete(); JOptionPane.showMessageDialog(this,"Appointment ID not found."); return false; }
-        if (!in.delete()) { JOptionPane.showMessageDialog(this,"Could not delete original file."); return false; }
-        if (!tmp.renameTo(in)) { JOptionPane.showMessageDialog(this,"Could not rename temp file."); return false; }
+        String[] newParts = Arrays.copyOf(p, Math.max(p.length, 13));
+        newParts[4] = newDate.toString();
+        newParts[5] = newTime;
+        newParts[10] = nowStamp;
+        newParts[11] = currentStaffUsername;
+        newParts[12] = "Rescheduled";
+
+        // One appended change record instead of rewriting the whole appointments file
+        try { DataStore.get().upsert(APPT_FILE, newParts); }
+        catch (IOException ex) { JOptionPane.showMessageDialog(this,"Error rescheduling: " + ex.getMessage()); return false; }
         return true;
     }
 
     // Delete an appointment and archive it into "appointments_deleted.txt"
     private boolean deleteAppointmentAndArchive(String apptId) {
         if (apptId == null || apptId.isBlank()) { JOptionPane.showMessageDialog(this,"No appointment selected."); return false; }
-        File in = new File(APPT_FILE); if (!in.exists()) { JOptionPane.showMessageDialog(this,"appointments.txt missing."); return false; }
-        File tmp = new File(APPT_FILE + ".tmp");
-        File arch = new File(ARCHIVE_FILE);
-        boolean found = false;
+        DataStore.Table appts = DataStore.get().appointments();
+        if (!appts.exists()) { JOptionPane.showMessageDialog(this,"appointments.txt missing."); return false; }
+        List<String[]> matches = appts.lookup(0, apptId);
+        if (matches.isEmpty()) { JOptionPane.showMessageDialog(this,"Appointment ID not found."); return false; }
         String ts = LocalDateTime.now().format(stampFmt);
 
-        try (BufferedReader r = new BufferedReader(new FileReader(in));
-             BufferedWriter w = new BufferedWriter(new FileWriter(tmp));
-             BufferedWriter a = new BufferedWriter(new FileWriter(arch, true))) {
-            String ln;
-            while ((ln = r.readLine()) != null) {
-                if (ln.trim().isEmpty()) { w.write(ln + System.lineSeparator()); continue; }
-                String[] p = ln.split("\\|", -1);
-                if (p.length >= 1 && p[0].equals(apptId)) {
-                    found = true;
-                    if (p.length >= 7) {
-                        Doctor dd = doctorMap.get(p[6]);
-                        if (dd != null && p.length > 5) dd.unbookSlot(p[4] + "-" + p[5]);
-                    }
-                    a.write(ts + "|" + currentStaffUsername + "|" + ln + System.lineSeparator());
-                    continue;
-                }
-                w.write(ln + System.lineSeparator());
-            }
+        // Archive first, then append a delete record; the base file is folded later by the store's compactor
+        try (BufferedWriter a = new BufferedWriter(new FileWriter(ARCHIVE_FILE, true))) {
+            for (String[] p : matches) a.write(ts + "|" + currentStaffUsername + "|" + String.join("|", p) + System.lineSeparator());
         } catch (IOException ex) { JOptionPane.showMessageDialog(this,"Error deleting appointment: " + ex.getMessage()); return false; }
-
-        if (!found) { tmp.delete(); JOptionPane.showMessageDialog(this,"Appointment ID not found."); return false; }
-        if (!in.delete()) { JOptionPane.showMessageDialog(this,"Could not delete original file."); return false; }
-        if (!tmp.renameTo(in)) { JOptionPane.showMessageDialog(this,"Could not rename temp file."); return false; }
-        loadAppointmentsIntoDoctors();
+        try { DataStore.get().delete(APPT_FILE, apptId); }
+        catch (IOException ex) { JOptionPane.showMessageDialog(this,"Error deleting appointment: " + ex.getMessage()); return false; }
         return true;
     }
 
@@ -589,7 +515,7 @@ public class RescheduleAppointment extends JPanel {
         File arch = new File(ARCHIVE_FILE);
         if (!arch.exists()) { JOptionPane.showMessageDialog(this,"No archived appointments found."); return; }
         List<String> lines = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(arch))) { String ln; while ((ln = br.readLine()) != null) if (!ln.trim().isEmpty()) lines.add(ln); }
+        try { PipeRecordReader.scan(arch.toPath(), r -> lines.add(r.line())); }
         catch (IOException ex) { JOptionPane.showMessageDialog(this,"Error reading archive: " + ex.getMessage()); return; }
         if (lines.isEmpty()) { JOptionPane.showMessageDialog(this,"No archived appointments found."); return; }
 
@@ -639,8 +565,9 @@ public class RescheduleAppointment extends JPanel {
         String[] p = ae.originalParts;
         if (p == null || p.length < 6) { JOptionPane.showMessageDialog(this,"Corrupt archived appointment."); restoreEntry = null; return; }
         boolean elapsed = false;
+        LocalDate d = null;
         try {
-            LocalDate d = LocalDate.parse(p[4], dateFmt);
+            d = LocalDate.parse(p[4], dateFmt);
             LocalTime t = LocalTime.parse(p[5], timeFmt);
             LocalDate today = LocalDate.now(); LocalTime now = LocalTime.now();
             if (d.isBefore(today) || (d.isEqual(today) && t.isBefore(now))) elapsed = true;
@@ -661,7 +588,7 @@ public class RescheduleAppointment extends JPanel {
         } else {
             String docId = p.length>6 ? p[6] : null;
             String key = p.length>5 ? (p[4] + "-" + p[5]) : null;
-            loadDoctors(); loadAppointmentsIntoDoctors();
+            loadDoctors();
             Doctor doc = docId!=null?doctorMap.get(docId):null;
             if (doc == null) {
                 JOptionPane.showMessageDialog(this,"Doctor info not available - choose new slot.");
@@ -670,7 +597,8 @@ public class RescheduleAppointment extends JPanel {
                 updateMonthLabel(); generateCalendar(); loadSlotsForDate(selectedDate); showRightPanel();
                 return;
             }
-            if (key == null || !doc.isAvailable(key)) {
+            // an unreadable date (d left null) counts as taken
+            if (key == null || !doc.isAvailable(d, p[5])) {
                 int ans = JOptionPane.showConfirmDialog(this, "Original slot is taken. Choose a new slot!", "Slot taken", JOptionPane.YES_NO_OPTION);
                 if (ans != JOptionPane.YES_OPTION) { restoreEntry = null; return; }
                 restoreMode = true; rescheduleInfoLabel.setText("Restoring archived appointment: choose new slot");
@@ -680,7 +608,7 @@ public class RescheduleAppointment extends JPanel {
             }
             // immediate restore
             restoreEntry = ae;
-            finalizeRestoreWithSelection(LocalDate.parse(p[4], dateFmt), p[5]);
+            finalizeRestoreWithSelection(d, p[5]);
         }
     }
 
@@ -690,16 +618,11 @@ public class RescheduleAppointment extends JPanel {
         String[] orig = restoreEntry.originalParts;
         String desiredId = orig.length>0 ? orig[0] : "";
         String assignedId = desiredId;
-        try {
-            Set<String> existing = new HashSet<>();
-            File f = new File(APPT_FILE);
-            if (f.exists()) {
-                try (BufferedReader br = new BufferedReader(new FileReader(f))) {
-                    String ln; while ((ln = br.readLine()) != null) { if (ln.trim().isEmpty()) continue; String[] p = ln.split("\\|", -1); if (p.length>0) existing.add(p[0]); }
-                }
-            }
-            if (assignedId == null || assignedId.isBlank() || existing.contains(assignedId)) assignedId = generateUniqueApptId(existing);
-        } catch (IOException ignored) {}
+        DataStore.Table appts = DataStore.get().appointments();
+        if (assignedId == null || assignedId.isBlank() || appts.contains(assignedId)) {
+            try { assignedId = IdAllocator.next('A'); }
+            catch (IOException ex) { JOptionPane.showMessageDialog(this,"Error restoring appointment: " + ex.getMessage()); return; }
+        }
 
         String[] newParts = Arrays.copyOf(orig, Math.max(orig.length, 13));
         newParts[0] = assignedId;
@@ -709,17 +632,12 @@ public class RescheduleAppointment extends JPanel {
         newParts[11] = currentStaffUsername;
         newParts[12] = "Upcoming";
 
-        String newLine = String.join("|", newParts);
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(APPT_FILE, true))) { bw.write(newLine + System.lineSeparator()); }
+        try { DataStore.get().upsert(APPT_FILE, newParts); }
         catch (IOException ex) { JOptionPane.showMessageDialog(this,"Error restoring appointment: " + ex.getMessage()); return; }
 
-        if (newParts.length >= 7) {
-            Doctor d = doctorMap.get(newParts[6]); if (d!=null) d.bookSlot(newParts[4] + "-" + newParts[5]);
-        }
-
         removeArchivedLine(restoreEntry.timestamp + "|" + restoreEntry.deletedBy + "|" + restoreEntry.originalLine);
         restoreMode = false; restoreEntry = null; hideRightPanel();
-        loadAppointmentsIntoDoctors(); loadAppointmentsTable();
+        loadAppointmentsTable();
         JOptionPane.showMessageDialog(this, "Appointment restored (ID: " + newParts[0] + ")");
     }
 
@@ -727,18 +645,6 @@ public class RescheduleAppointment extends JPanel {
     // Check if a row in the JTable represents a completed appointment
     private boolean isRowCompleted(int row) { try { String s = String.valueOf(model.getValueAt(row,12)); return "Completed".equalsIgnoreCase(s); } catch (Exception e) { return false; } }
 
-    // Generate a unique appointment ID not conflicting with existing ones
-    private String generateUniqueApptId(Set<String> existing) {
-        int max = 0;
-        for (String id : existing) {
-            if (id!=null && id.matches("A\\d+")) {
-                try { int v = Integer.parseInt(id.substring(1)); if (v>max) max=v; } catch (NumberFormatException ignored) {}
-            }
-        }
-        int next = max + 1;
-        return String.format("A%05d", next);
-    }
-
     // ---------------- TABLE RENDERERS ----------------
     // Custom renderer for Status column (Completed/Rescheduled/Upcoming) with color
     private class StatusRenderer extends JLabel implements javax.swing.table.TableCellRenderer {
@@ -781,4 +687,4 @@ public class RescheduleAppointment extends JPanel {
         if (!arch.delete()) { log("Could not delete original archive file."); return; }
         if (!tmp.renameTo(arch)) log("Could not rename archive temp file.");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,97 @@
+package assignment;
+
+import java.time.LocalDate;
+import java.util.*;
+
+// Rows of appointments, records and payments ordered by day, for date-range reports.
+// Appointments and records are filed under their date (field 4), payments under the day of their
+// timestamp (field 5, "yyyy-MM-dd HH:mm:ss"). Each file keeps a TreeMap from "yyyy-MM-dd" to that day's rows,
+// so "last 7 days" is a sub-map walk over seven entries rather than a scan of the whole history.
+// Rows without a readable date are left out of every range. Follows the store through listeners.
+public final class TimeIndex implements DataStore.Listener {
+
+    private static final Map<String, Integer> DATE_FIELD = Map.of(
+            DataStore.APPOINTMENTS_FILE, 4,
+            DataStore.RECORDS_FILE, 4,
+            DataStore.PAYMENTS_FILE, 5
+    );
+
+    // Created on first use, so dateField() can be used without indexing anything.
+    private static final class Holder {
+        static final TimeIndex INSTANCE = new TimeIndex();
+    }
+
+    private final Map<String, TreeMap<String, List<String[]>>> byFile = new HashMap<>();
+
+    private TimeIndex() {
+        for (String file : DATE_FIELD.keySet()) DataStore.get().addListener(file, this);
+    }
+
+    // Returns the shared index, brought up to date with the three files.
+    public static TimeIndex get() {
+        for (String file : DATE_FIELD.keySet()) DataStore.get().table(file);
+        return Holder.INSTANCE;
+    }
+
+    // ---------------- QUERIES ----------------
+    // Rows of the file dated from..to (both inclusive, either may be null for an open end), oldest day first.
+    // Empty when from is after to.
+    public synchronized List<String[]> between(String file, LocalDate from, LocalDate to) {
+        TreeMap<String, List<String[]>> days = byFile.get(file);
+        if (days == null || (from != null && to != null && from.isAfter(to))) return Collections.emptyList();
+        NavigableMap<String, List<String[]>> range = days;
+        if (from != null && to != null) range = days.subMap(from.toString(), true, to.toString(), true);
+        else if (from != null) range = days.tailMap(from.toString(), true);
+        else if (to != null) range = days.headMap(to.toString(), true);
+
+        List<String[]> out = new ArrayList<>();
+        for (List<String[]> rows : range.values()) out.addAll(rows);
+        return out;
+    }
+
+    // Field holding the date of a file's rows, or -1 for files without one.
+    static int dateField(String file) {
+        return DATE_FIELD.getOrDefault(file, -1);
+    }
+
+    // "yyyy-MM-dd" at the start of the value, or null when it does not start with a date.
+    private static String dayOf(String value) {
+        if (value == null) return null;
+        String v = value.trim();
+        if (v.length() < 10 || v.charAt(4) != '-' || v.charAt(7) != '-') return null;
+        for (int i : new int[]{0, 1, 2, 3, 5, 6, 8, 9}) {
+            if (!Character.isDigit(v.charAt(i))) return null;
+        }
+        return v.substring(0, 10);
+    }
+
+    // ---------------- STORE LISTENER ----------------
+    @Override
+    public synchronized void reloaded(DataStore.Table table) {
+        TreeMap<String, List<String[]>> days = new TreeMap<>();
+        int field = DATE_FIELD.get(table.fileName());
+        for (String[] r : table.rows()) {
+            String day = r.length > field ? dayOf(r[field]) : null;
+            if (day != null) days.computeIfAbsent(day, k -> new ArrayList<>()).add(r);
+        }
+        byFile.put(table.fileName(), days);
+    }
+
+    @Override
+    public synchronized void changed(DataStore.Table table, String[] oldRow, String[] newRow) {
+        TreeMap<String, List<String[]>> days = byFile.computeIfAbsent(table.fileName(), k -> new TreeMap<>());
+        int field = DATE_FIELD.get(table.fileName());
+        if (oldRow != null && oldRow.length > field) {
+            String day = dayOf(oldRow[field]);
+            List<String[]> rows = day == null ? null : days.get(day);
+            if (rows != null) {
+                rows.removeIf(r -> r == oldRow);
+                if (rows.isEmpty()) days.remove(day);
+            }
+        }
+        if (newRow != null && newRow.length > field) {
+            String day = dayOf(newRow[field]);
+            if (day != null) days.computeIfAbsent(day, k -> new ArrayList<>()).add(newRow);
+        }
+    }
+}
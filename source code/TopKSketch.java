@@ -0,0 +1,105 @@
+package assignment;
+
+import java.util.*;
+
+// Approximate heaviest keys in bounded memory, for top-N reports over very large histories.
+// Weights go into a Count-Min sketch (depth rows of width counters); a small candidate set remembers
+// the keys whose estimates were highest when they were last touched. Memory is fixed by the sketch size
+// and the candidate capacity, however many distinct keys are seen.
+//
+// Weights may be negative (a row being taken back), as long as no key's true total drops below zero.
+// An estimate never undershoots the true weight and, with probability 1 - delta, overshoots it by at most
+// epsilon * total weight (see errorBound()).
+public final class TopKSketch {
+
+    private final int width, depth, capacity;
+    private final double epsilon;
+    private final double[][] counts;
+    private final Map<String, Double> candidates = new HashMap<>();   // key -> estimate when last touched
+    private double total;
+
+    // epsilon: error as a share of the total weight; delta: chance of exceeding it; capacity: keys tracked.
+    public TopKSketch(double epsilon, double delta, int capacity) {
+        this.epsilon = epsilon;
+        this.width = (int) Math.ceil(Math.E / epsilon);
+        this.depth = (int) Math.ceil(Math.log(1 / delta));
+        this.capacity = capacity;
+        this.counts = new double[depth][width];
+    }
+
+    public void add(String key, double weight) {
+        for (int d = 0; d < depth; d++) counts[d][bucket(key, d)] += weight;
+        total += weight;
+
+        double est = estimate(key);
+        if (candidates.containsKey(key)) {
+            if (est > 0) candidates.put(key, est);
+            else candidates.remove(key);
+        } else if (weight > 0) {
+            offer(key, est);
+        }
+    }
+
+    // Upper estimate of the key's total weight.
+    public double estimate(String key) {
+        double min = Double.MAX_VALUE;
+        for (int d = 0; d < depth; d++) min = Math.min(min, counts[d][bucket(key, d)]);
+        return Math.max(min, 0);
+    }
+
+    // How far any estimate may exceed the true value (with probability 1 - delta).
+    public double errorBound() {
+        return epsilon * Math.max(total, 0);
+    }
+
+    // Up to n candidate keys with their current estimates, largest first.
+    public List<Map.Entry<String, Double>> top(int n) {
+        List<Map.Entry<String, Double>> out = new ArrayList<>(candidates.size());
+        for (String key : candidates.keySet()) out.add(Map.entry(key, estimate(key)));
+        out.sort((a, b) -> Double.compare(b.getValue(), a.getValue()));
+        return out.size() > n ? out.subList(0, n) : out;
+    }
+
+    // Adds the other sketch's weights (same dimensions) and candidates into this one.
+    public void merge(TopKSketch o) {
+        for (int d = 0; d < depth; d++) {
+            for (int w = 0; w < width; w++) counts[d][w] += o.counts[d][w];
+        }
+        total += o.total;
+        Set<String> keys = new HashSet<>(candidates.keySet());
+        keys.addAll(o.candidates.keySet());
+        candidates.clear();
+        for (String key : keys) offer(key, estimate(key));
+    }
+
+    // Keeps the key if there is room or it beats the weakest candidate.
+    private void offer(String key, double est) {
+        if (candidates.size() < capacity) {
+            candidates.put(key, est);
+            return;
+        }
+        String weakest = null;
+        double min = Double.MAX_VALUE;
+        for (Map.Entry<String, Double> e : candidates.entrySet()) {
+            if (e.getValue() < min) {
+                min = e.getValue();
+                weakest = e.getKey();
+            }
+        }
+        if (est > min) {
+            candidates.remove(weakest);
+            candidates.put(key, est);
+        }
+    }
+
+    // Row d's counter for the key: the string hash mixed with a per-row seed (64-bit finalizer).
+    private int bucket(String key, int d) {
+        long h = key.hashCode() * 0x9E3779B97F4A7C15L + (d + 1) * 0xC2B2AE3D27D4EB4FL;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return (int) Math.floorMod(h, (long) width);
+    }
+}
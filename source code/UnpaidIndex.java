@@ -0,0 +1,101 @@
+package assignment;
+
+import java.util.*;
+
+// Appointments that have a medical record but no payment yet, for the payment screen's search.
+// The unpaid set follows records and payments through JoinIndex (a record saved adds its appointment,
+// a payment taken removes it); patient names come from the shared NameDirectory.
+// A search is then a walk over the unpaid appointments alone, instead of every record with a patient
+// file lookup each. Appointments are listed in the order of their first record in the records file;
+// ones that become unpaid later are added at the end.
+public final class UnpaidIndex implements JoinIndex.Listener {
+
+    private static final UnpaidIndex INSTANCE = new UnpaidIndex();
+
+    private final JoinIndex joins = JoinIndex.get();
+    private final Set<String> unpaid = new LinkedHashSet<>();      // appointment IDs
+    private DataStore.Table records;
+
+    private UnpaidIndex() {
+        joins.addListener(this);
+    }
+
+    // Returns the shared index, brought up to date with records and payments.
+    public static UnpaidIndex get() {
+        JoinIndex.get();
+        return INSTANCE;
+    }
+
+    // ---------------- QUERIES ----------------
+    // Records of unpaid appointments whose patient name contains the text (any case; all when blank),
+    // as {apptId, patientId, doctorId, date, time, treatment, amount}. Records with fewer than 8 fields are left out.
+    public List<String[]> search(String text) {
+        String key = text == null ? "" : text.trim().toLowerCase();
+        // Brought up to date through the store before our lock is taken (store lock first).
+        NameDirectory names = NameDirectory.get();
+        List<String[]> out = new ArrayList<>();
+        synchronized (this) {
+            for (String apptId : unpaid) {
+                for (String[] r : joins.records(apptId)) {
+                    if (r.length < 8) continue;
+                    if (!key.isEmpty() && !names.patientName(r[1], "").toLowerCase().contains(key)) continue;
+                    out.add(new String[]{r[0], r[1], r[2], r[4], r[5], r[7], r[6]});
+                }
+            }
+        }
+        return out;
+    }
+
+    public synchronized int size() {
+        return unpaid.size();
+    }
+
+    // ---------------- LISTENERS ----------------
+    @Override
+    public synchronized void reloaded(DataStore.Table table) {
+        switch (table.fileName()) {
+            case DataStore.RECORDS_FILE -> {
+                records = table;
+                rebuild();
+            }
+            case DataStore.PAYMENTS_FILE -> rebuild();
+            default -> { }
+        }
+    }
+
+    @Override
+    public void changing(DataStore.Table table, String[] oldRow, String[] newRow) { }
+
+    @Override
+    public synchronized void changed(DataStore.Table table, String[] oldRow, String[] newRow) {
+        switch (table.fileName()) {
+            case DataStore.RECORDS_FILE -> {
+                if (oldRow != null) refresh(oldRow[0]);
+                if (newRow != null) refresh(newRow[0]);
+            }
+            case DataStore.PAYMENTS_FILE -> {
+                if (oldRow != null && oldRow.length > 1) refresh(oldRow[1]);
+                if (newRow != null && newRow.length > 1) refresh(newRow[1]);
+            }
+            default -> { }
+        }
+    }
+
+    private void rebuild() {
+        unpaid.clear();
+        if (records == null) return;
+        for (String[] r : records.rows()) {
+            if (r.length >= 8 && !joins.isPaid(r[0])) unpaid.add(r[0]);
+        }
+    }
+
+    // Re-checks one appointment after its records or payments changed (the join is already updated).
+    private void refresh(String apptId) {
+        boolean hasRecord = false;
+        for (String[] r : joins.records(apptId)) {
+            if (r.length >= 8) { hasRecord = true; break; }
+        }
+        if (hasRecord && !joins.isPaid(apptId)) unpaid.add(apptId);
+        else unpaid.remove(apptId);
+    }
+}
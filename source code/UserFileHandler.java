@@ -7,21 +7,9 @@ public class UserFileHandler {
 
     // ---------------- READ ----------------
     // Reads all users of a given role from the corresponding file.
-    // Each line is split by "|" and returned as a list of String arrays.
+    // Rows come from the shared DataStore; the returned list is a fresh copy the caller may modify.
     public static List<String[]> readUsersFromFile(String role) {
-        List<String[]> users = new ArrayList<>();
-        String fileName = role + "s.txt";
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                users.add(line.split("\\|"));
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading file: " + fileName);
-        }
-
-        return users;
+        return new ArrayList<>(DataStore.get().users(role).rows());
     }
 
     // ---------------- WRITE ----------------
@@ -38,6 +26,7 @@ public class UserFileHandler {
         } catch (IOException e) {
             System.err.println("Error writing file: " + fileName);
         }
+        DataStore.get().invalidate(fileName);
     }
 
     // ---------------- DELETE ----------------
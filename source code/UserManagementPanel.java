@@ -18,9 +18,9 @@ public class UserManagementPanel extends JPanel {
     // --- UI components ---
     private final JTable userTable;
     private final JComboBox<String> roleSelector;
-    private final DefaultTableModel model;
+    private final PagedTableModel model;
     private final JTextField searchField;
-    private final TableRowSorter<DefaultTableModel> rowSorter;
+    private final TableRowSorter<PagedTableModel> rowSorter;
 
 
     // --- Constructor ---
@@ -45,7 +45,7 @@ public class UserManagementPanel extends JPanel {
         topPanel.add(updateBtn);
         topPanel.add(deleteBtn);
 
-        model = new DefaultTableModel();
+        model = new PagedTableModel(new String[0]);
         userTable = new JTable(model);
         JScrollPane scrollPane = new JScrollPane(userTable);
         
@@ -114,9 +114,6 @@ public class UserManagementPanel extends JPanel {
             return;
         }
 
-        model.setRowCount(0);
-        model.setColumnCount(0);
-
         // Set headers based on role (doctor has specialization & shift)
         String[] headers = role.equalsIgnoreCase("doctor") ?
                 new String[]{"ID", "Username", "Password", "First Name", "Last Name", "Gender",
@@ -124,22 +121,18 @@ public class UserManagementPanel extends JPanel {
                 new String[]{"ID", "Username", "Password", "First Name", "Last Name", "Gender",
                         "DOB", "Age", "Email", "Contact", "Address", "Postcode", "State"};
 
-        for (String header : headers) {
-            model.addColumn(header);
-        }
-
-        for (String[] user : users) {
-            model.addRow(user);
-        }
+        model.setColumns(headers);
+        model.setRows(users);
     }
 
     // --- Update selected user ---
     private void updateSelected() {
-        int row = userTable.getSelectedRow();
-        if (row == -1) {
+        int viewRow = userTable.getSelectedRow();
+        if (viewRow == -1) {
             JOptionPane.showMessageDialog(this, "Please select a user to update.");
             return;
         }
+        int row = userTable.convertRowIndexToModel(viewRow);
 
         String role = roleSelector.getSelectedItem().toString().toLowerCase();
         int columnCount = model.getColumnCount();
@@ -175,9 +168,7 @@ public class UserManagementPanel extends JPanel {
                     UserFileHandler.updateUserById(role, updatedData[0], updatedData);
                     JOptionPane.showMessageDialog(this, "User updated successfully.");
 
-                    for (int i = 0; i < updatedData.length; i++) {
-                        model.setValueAt(updatedData[i], row, i);
-                    }
+                    model.setRow(row, updatedData);
                 }
             }
         );
@@ -202,7 +193,7 @@ public class UserManagementPanel extends JPanel {
 
         if (confirm == JOptionPane.YES_OPTION) {
             UserFileHandler.deleteUserById(role, id);
-            model.removeRow(row);
+            model.removeRow(userTable.convertRowIndexToModel(row));
             JOptionPane.showMessageDialog(this, "User deleted successfully.");
         }
     }
@@ -365,20 +356,11 @@ class UpdateUserDialog extends JDialog {
         // Username uniqueness
         String[] roles = {"manager", "staff", "doctor", "patient"};
         for (String r : roles) {
-            File file = new File(r + "s.txt");
-            if (!file.exists()) continue;
-            try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-                String line;
-                while ((line = br.readLine()) != null) {
-                    String[] parts = line.split("\\|");
-                    if (parts.length > 2 && parts[1].equalsIgnoreCase(username) && !parts[0].equals(id)) {
-                        JOptionPane.showMessageDialog(this, "Username already exists in " + r + "s.");
-                        return false;
-                    }
+            for (String[] parts : DataStore.get().users(r).rows()) {
+                if (parts.length > 2 && parts[1].equalsIgnoreCase(username) && !parts[0].equals(id)) {
+                    JOptionPane.showMessageDialog(this, "Username already exists in " + r + "s.");
+                    return false;
                 }
-            } catch (IOException ex) {
-                JOptionPane.showMessageDialog(this, "Error reading " + r + "s.txt");
-                return false;
             }
         }
 